@@ -0,0 +1,51 @@
+package com.bibliotheque.bench;
+
+import org.springframework.boot.system.JavaVersion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Même rejeu de charge joué deux fois sur une instance locale, threads de plateforme puis threads virtuels,
+// avec un mélange dominé par les accès base (listes de prêts, recherche) et un débit proche de la saturation :
+//   mvn -Pbenchmark compile exec:exec@comparer-threads -Dcomparaison.args="--debit=400 --duree=30"
+//
+// Les options sont celles de RejeuCharge (sauf --cible et --mode). Les deux passages ont le même pool de
+// connexions ; seul le modèle de threads change. Java 21 requis : sur une JVM antérieure, Spring Boot
+// ignorerait spring.threads.virtual.enabled et les deux passages compareraient des threads de plateforme,
+// la comparaison s'arrête donc avant le premier passage (code de sortie 1).
+public class ComparaisonThreads {
+
+    public static void main(String[] args) throws Exception {
+        if (!JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            System.err.printf("Threads virtuels indisponibles : la JVM est en Java %s, Java 21 requis. Comparaison abandonnée.%n",
+                    JavaVersion.getJavaVersion());
+            System.exit(1);
+        }
+        Map<String, String> options = RejeuCharge.options(args);
+        if (options.containsKey("cible") || options.containsKey("mode")) {
+            throw new IllegalArgumentException("--cible et --mode sont fixés par la comparaison");
+        }
+        options.putIfAbsent("melange", "prets:50,recherche:50");
+        options.putIfAbsent("debit", "400");
+        options.putIfAbsent("clients", "64");
+        options.putIfAbsent("en-vol-max", "1024");
+        options.remove("rapport");
+
+        List<Map<String, Object>> resumes = new ArrayList<>();
+        for (String mode : List.of("plateforme", "virtuels")) {
+            Map<String, String> passage = new LinkedHashMap<>(options);
+            passage.put("mode", mode);
+            System.out.printf("%n=== Threads %s ===%n", mode);
+            resumes.add(RejeuCharge.lancer(passage));
+        }
+
+        System.out.printf("%n%-12s %12s %10s %10s %8s%n", "Threads", "Débit (req/s)", "p50 (ms)", "p99 (ms)", "Erreurs");
+        for (Map<String, Object> resume : resumes) {
+            System.out.printf("%-12s %12.0f %10.2f %10.2f %8d%n", resume.get("mode"), resume.get("debitObtenu"),
+                    resume.get("p50Ms"), resume.get("p99Ms"), resume.get("erreurs"));
+        }
+        System.exit(0);
+    }
+}
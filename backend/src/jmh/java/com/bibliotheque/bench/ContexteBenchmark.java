@@ -0,0 +1,61 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.BibliothequeApplication;
+import com.bibliotheque.config.CacheConfig;
+import com.bibliotheque.services.CachesReference;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerCustomizer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Contexte Spring partagé par les benchmarks : profil "benchmark" (H2 en mode MySQL, voir
+// application-benchmark.yml), sans serveur web, base remplie par GenerateurDonnees.
+@State(Scope.Benchmark)
+public class ContexteBenchmark {
+
+    // Un prêt compte dans le quota du profil sur toute son inscription, même rendu : avec les quotas du
+    // générateur (5/10/5/2), les prêts et réservations en rotation les épuiseraient en quelques invocations
+    private static final int QUOTA = 1_000_000;
+
+    // Nombre de livres ; profils et prêts historiques en sont déduits (GenerateurDonnees.Volumes.pourTaille)
+    @Param({ "1000" })
+    public int taille;
+
+    public GenerateurDonnees.Volumes volumes;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        context = new SpringApplicationBuilder(BibliothequeApplication.class)
+                .profiles("benchmark")
+                .web(WebApplicationType.NONE)
+                // Tâches planifiées sur threads démons : un essai interrompu (sans @TearDown) ne bloque pas
+                // la sortie de la VM forkée
+                .initializers(contexte -> contexte.getBeanFactory().registerSingleton("planificateurDemon",
+                        (ThreadPoolTaskSchedulerCustomizer) planificateur -> planificateur.setDaemon(true)))
+                .run();
+        volumes = GenerateurDonnees.remplir(context, GenerateurDonnees.Volumes.pourTaille(taille), 42L);
+        context.getBean(JdbcTemplate.class).update("UPDATE settings SET student_quota = ?, professor_quota = ?, " +
+                "professional_quota = ?, anonymous_quota = ?", QUOTA, QUOTA, QUOTA, QUOTA);
+        context.getBean(CachesReference.class).vider(CacheConfig.SETTINGS);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,357 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.BibliothequeApplication;
+import com.bibliotheque.services.CompteursTableauDeBord;
+import com.bibliotheque.services.IndexCatalogue;
+import com.bibliotheque.services.StatistiquesService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongFunction;
+
+// Jeu de données synthétique inséré par lots JDBC, dans la forme des entités JPA.
+// Les identifiants sont attribués explicitement (1..n par table) pour que les benchmarks
+// puissent désigner profils, livres et exemplaires sans relire la base.
+//
+// En ligne de commande, remplit la base configurée (MySQL par défaut, voir application.yml) :
+//   mvn -Pbenchmark compile exec:exec@generer -Dgenerateur.args="--generateur.volumes=dimensionnement"
+// Les options --generateur.<champ de Volumes> surchargent un volume, --spring.datasource.* la cible.
+public class GenerateurDonnees {
+
+    static final String[] TYPES_ADHERANT = { "Etudiant", "Prof", "Professionnel", "Anonyme" };
+
+    static final String[] MOTS = {
+        "jardin", "secret", "nuit", "mer", "histoire", "voyage", "ombre", "lumière", "roman", "guerre",
+        "paix", "été", "hiver", "château", "forêt", "rivière", "étoile", "mémoire", "silence", "cœur",
+        "ville", "montagne", "enfant", "prince", "révolution", "science", "cuisine", "musique", "temps", "île"
+    };
+
+    static final String[] NOMS = {
+        "Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard", "Petit", "Durand", "Leroy", "Moreau",
+        "Simon", "Laurent", "Lefebvre", "Michel", "Garcia", "David", "Bertrand", "Roux", "Vincent", "Fournier"
+    };
+
+    static final String[] PRENOMS = {
+        "Marie", "Jean", "Pierre", "Sophie", "Luc", "Camille", "Louis", "Emma", "Hugo", "Léa",
+        "Paul", "Chloé", "Jules", "Alice", "Nathan", "Manon", "Arthur", "Inès", "Victor", "Julie"
+    };
+
+    private static final int TAILLE_LOT = 1000;
+    private static final int DUREE_PRET = 14;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+
+    public GenerateurDonnees(JdbcTemplate jdbcTemplate, long graine) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new Random(graine);
+    }
+
+    public static class Volumes {
+        public int profils = 1_000;
+        public int livres = 1_000;
+        public int exemplairesParLivre = 3;
+        public int pretsHistoriques = 5_000;
+        // Prêts non rendus, un par exemplaire au plus ; 0 laisse tous les exemplaires libres
+        public int pretsEnCours = 0;
+        public int auteurs = 200;
+        public int categories = 20;
+        public int editeurs = 50;
+        public int bibliothequaires = 5;
+        // Exposants de Zipf : popularité des livres et activité des profils (0 = uniforme)
+        public double asymetrieLivres = 1.0;
+        public double asymetrieProfils = 0.6;
+
+        // Volumes proportionnels à une taille de référence (nombre de livres)
+        public static Volumes pourTaille(int taille) {
+            Volumes volumes = new Volumes();
+            volumes.livres = taille;
+            volumes.profils = taille;
+            volumes.pretsHistoriques = taille * 5;
+            volumes.auteurs = Math.max(10, taille / 5);
+            return volumes;
+        }
+
+        // Dimensionnement de production : 100k profils, 1M exemplaires, 10M prêts
+        public static Volumes dimensionnement() {
+            Volumes volumes = new Volumes();
+            volumes.profils = 100_000;
+            volumes.livres = 250_000;
+            volumes.exemplairesParLivre = 4;
+            volumes.pretsHistoriques = 10_000_000;
+            volumes.pretsEnCours = 30_000;
+            volumes.auteurs = 40_000;
+            volumes.categories = 60;
+            volumes.editeurs = 1_500;
+            volumes.bibliothequaires = 25;
+            return volumes;
+        }
+
+        // "dimensionnement" ou un nombre de livres
+        public static Volumes depuis(String nom) {
+            return "dimensionnement".equals(nom) ? dimensionnement() : pourTaille(Integer.parseInt(nom.replace("_", "")));
+        }
+
+        public int exemplaires() {
+            return livres * exemplairesParLivre;
+        }
+
+        public int prets() {
+            return pretsHistoriques + pretsEnCours;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d profils, %d livres, %d exemplaires, %d prêts dont %d en cours",
+                    profils, livres, exemplaires(), prets(), pretsEnCours);
+        }
+    }
+
+    // Tirage d'identifiants 1..n selon une loi de Zipf ; les rangs sont mélangés pour que
+    // les identifiants populaires ne soient pas simplement les premiers
+    static class Popularite {
+        private final double[] cumul;
+        private final int[] identifiants;
+
+        Popularite(int n, double exposant, Random random) {
+            cumul = new double[n];
+            double total = 0;
+            for (int rang = 0; rang < n; rang++) {
+                total += 1.0 / Math.pow(rang + 1, exposant);
+                cumul[rang] = total;
+            }
+            identifiants = new int[n];
+            for (int i = 0; i < n; i++) {
+                identifiants[i] = i + 1;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int echange = identifiants[i];
+                identifiants[i] = identifiants[j];
+                identifiants[j] = echange;
+            }
+        }
+
+        long tirer(Random random) {
+            double cible = random.nextDouble() * cumul[cumul.length - 1];
+            int bas = 0;
+            int haut = cumul.length - 1;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (cumul[milieu] < cible) {
+                    bas = milieu + 1;
+                } else {
+                    haut = milieu;
+                }
+            }
+            return identifiants[bas];
+        }
+    }
+
+    public Volumes generer(Volumes volumes) {
+        LocalDate aujourdhui = LocalDate.now();
+
+        inserer("INSERT INTO adherant_type (id, type) VALUES (?, ?)", TYPES_ADHERANT.length,
+                i -> new Object[] { i, TYPES_ADHERANT[(int) i - 1] });
+        inserer("INSERT INTO settings (id, daily_penalty, max_penalty, grace_period, default_loan_duration, max_renewals, " +
+                "reminder_days, student_quota, professor_quota, professional_quota, anonymous_quota) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", 1,
+                i -> new Object[] { i, 0.5, 20.0, 2, 14, 2, 3, 5, 10, 5, 2 });
+        inserer("INSERT INTO tarif_inscription (tarif_id, description, montant, nb_mois, type_adherant_id) VALUES (?, ?, ?, ?, ?)",
+                TYPES_ADHERANT.length,
+                i -> new Object[] { i, "Abonnement annuel " + TYPES_ADHERANT[(int) i - 1], 10 * i, 12, i });
+        inserer("INSERT INTO bibliothequaire (bibliothequaire_id, nom, email, pwd) VALUES (?, ?, ?, ?)", volumes.bibliothequaires,
+                i -> new Object[] { i, nom(i), "biblio" + i + "@bibliotheque.fr", "biblio" });
+        inserer("INSERT INTO editeur (editeur_id, nom) VALUES (?, ?)", volumes.editeurs,
+                i -> new Object[] { i, "Éditions " + NOMS[(int) (i % NOMS.length)] + " " + i });
+        inserer("INSERT INTO auteur (auteur_id, nom, prenom) VALUES (?, ?, ?)", volumes.auteurs,
+                i -> new Object[] { i, nom(i), PRENOMS[random.nextInt(PRENOMS.length)] });
+        inserer("INSERT INTO categorie (categorie_id, nom) VALUES (?, ?)", volumes.categories,
+                i -> new Object[] { i, capitaliser(MOTS[(int) ((i - 1) % MOTS.length)]) + " " + i });
+
+        inserer("INSERT INTO livre (livre_id, titre, isbn, edition, description, date_publication, editeur_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", volumes.livres,
+                i -> new Object[] { i, titre(), String.format("978-%010d", i), (1 + random.nextInt(5)) + "e édition",
+                        phrase(12), Date.valueOf(aujourdhui.minusDays(random.nextInt(20_000))), 1 + random.nextInt(volumes.editeurs) });
+        inserer("INSERT INTO livre_auteur (livre_id, auteur_id) VALUES (?, ?)", volumes.livres,
+                i -> new Object[] { i, 1 + random.nextInt(volumes.auteurs) });
+        inserer("INSERT INTO livre_categorie (livre_id, categorie_id) VALUES (?, ?)", volumes.livres,
+                i -> new Object[] { i, 1 + random.nextInt(volumes.categories) });
+
+        // Exemplaire i appartient au livre (i - 1) / exemplairesParLivre + 1
+        inserer("INSERT INTO exemplaire (exemplaire_id, livre_id, num_exemplaire, etat, date_acquisition) VALUES (?, ?, ?, ?, ?)",
+                volumes.exemplaires(),
+                i -> new Object[] { i, (i - 1) / volumes.exemplairesParLivre + 1, "EX-" + i, random.nextInt(4),
+                        Date.valueOf(aujourdhui.minusDays(random.nextInt(3_000))) });
+
+        inserer("INSERT INTO adherant (adherant_id, type_id) VALUES (?, ?)", volumes.profils,
+                i -> new Object[] { i, 1 + (i - 1) % TYPES_ADHERANT.length });
+        inserer("INSERT INTO profil (profil_id, nom, prenom, adherant_id, pwd, email, telephone, date_inscription) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", volumes.profils,
+                i -> new Object[] { i, nom(i), PRENOMS[(int) (i % PRENOMS.length)], i, "password", "profil" + i + "@exemple.fr",
+                        String.format("06%08d", i), Date.valueOf(aujourdhui.minusDays(random.nextInt(1_000))) });
+        // Une inscription en cours par profil
+        inserer("INSERT INTO inscription (inscription_id, profil_id, tarif_id, date_debut, date_fin) VALUES (?, ?, ?, ?, ?)", volumes.profils,
+                i -> {
+                    LocalDate debut = aujourdhui.minusDays(random.nextInt(300));
+                    return new Object[] { i, i, 1 + (i - 1) % TYPES_ADHERANT.length, Date.valueOf(debut), Date.valueOf(debut.plusYears(1)) };
+                });
+
+        // Historique de prêts rendus sur deux ans, puis prêts en cours (dont une partie en retard).
+        // Les livres empruntés suivent la popularité, les emprunteurs l'activité des profils.
+        Popularite livresPopulaires = new Popularite(volumes.livres, volumes.asymetrieLivres, random);
+        Popularite profilsActifs = new Popularite(volumes.profils, volumes.asymetrieProfils, random);
+        BitSet exemplairesSortis = new BitSet(volumes.exemplaires() + 1);
+        inserer("INSERT INTO pret (pret_id, exemplaire_id, profil_id, bibliothequaire_id, date_pret, date_fin_pret, date_rendu, " +
+                "en_retard, rendu, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)", volumes.prets(),
+                i -> {
+                    long profilId = profilsActifs.tirer(random);
+                    long bibliothequaireId = 1 + random.nextInt(volumes.bibliothequaires);
+                    if (i <= volumes.pretsHistoriques) {
+                        LocalDate datePret = aujourdhui.minusDays(40 + random.nextInt(700));
+                        // Un retour sur dix après l'échéance
+                        int duree = random.nextInt(10) == 0 ? DUREE_PRET + 1 + random.nextInt(21) : 1 + random.nextInt(DUREE_PRET);
+                        return new Object[] { i, exemplaire(livresPopulaires.tirer(random), volumes), profilId, bibliothequaireId,
+                                Date.valueOf(datePret), Date.valueOf(datePret.plusDays(DUREE_PRET)), Date.valueOf(datePret.plusDays(duree)),
+                                duree > DUREE_PRET, true };
+                    }
+                    LocalDate datePret = aujourdhui.minusDays(random.nextInt(30));
+                    return new Object[] { i, exemplaireLibre(livresPopulaires, exemplairesSortis, volumes), profilId, bibliothequaireId,
+                            Date.valueOf(datePret), Date.valueOf(datePret.plusDays(DUREE_PRET)), null,
+                            datePret.plusDays(DUREE_PRET).isBefore(aujourdhui), false };
+                });
+        inserer("INSERT INTO pret_type (id, pret_id, type_pret) VALUES (?, ?, ?)", volumes.prets(),
+                i -> new Object[] { i, i, random.nextInt(20) == 0 ? 1 : 0 });
+
+        redemarrerIdentites();
+        return volumes;
+    }
+
+    // Génère puis remet à jour ce que l'application dérive de la base au démarrage
+    // (index du catalogue, agrégats statistiques, compteurs du tableau de bord)
+    public static Volumes remplir(ConfigurableApplicationContext context, Volumes volumes, long graine) {
+        new GenerateurDonnees(context.getBean(JdbcTemplate.class), graine).generer(volumes);
+        context.getBean(IndexCatalogue.class).reconstruire();
+        context.getBean(StatistiquesService.class).reconstruire();
+        context.getBean(CompteursTableauDeBord.class).recalculer();
+        return volumes;
+    }
+
+    public static void main(String[] args) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BibliothequeApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args)) {
+            Environment env = context.getEnvironment();
+            Volumes volumes = Volumes.depuis(env.getProperty("generateur.volumes", "dimensionnement"));
+            volumes.profils = env.getProperty("generateur.profils", Integer.class, volumes.profils);
+            volumes.livres = env.getProperty("generateur.livres", Integer.class, volumes.livres);
+            volumes.exemplairesParLivre = env.getProperty("generateur.exemplaires-par-livre", Integer.class, volumes.exemplairesParLivre);
+            volumes.pretsHistoriques = env.getProperty("generateur.prets-historiques", Integer.class, volumes.pretsHistoriques);
+            volumes.pretsEnCours = env.getProperty("generateur.prets-en-cours", Integer.class, volumes.pretsEnCours);
+            volumes.auteurs = env.getProperty("generateur.auteurs", Integer.class, volumes.auteurs);
+            volumes.asymetrieLivres = env.getProperty("generateur.asymetrie-livres", Double.class, volumes.asymetrieLivres);
+            volumes.asymetrieProfils = env.getProperty("generateur.asymetrie-profils", Double.class, volumes.asymetrieProfils);
+            long graine = env.getProperty("generateur.graine", Long.class, 42L);
+
+            Long livresExistants = context.getBean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM livre", Long.class);
+            if (livresExistants != null && livresExistants > 0) {
+                throw new IllegalStateException("La base contient déjà " + livresExistants + " livres : le générateur attend une base vide");
+            }
+            if (volumes.pretsEnCours > volumes.exemplaires() / 2) {
+                throw new IllegalArgumentException("Trop de prêts en cours pour " + volumes.exemplaires() + " exemplaires");
+            }
+            long debut = System.nanoTime();
+            System.out.println("Génération : " + volumes);
+            remplir(context, volumes, graine);
+            System.out.printf("Terminé en %d s%n", (System.nanoTime() - debut) / 1_000_000_000L);
+        }
+    }
+
+    // H2 n'avance pas ses colonnes IDENTITY sur les identifiants explicites (MySQL le fait seul)
+    private void redemarrerIdentites() {
+        String produit = jdbcTemplate.execute((Connection connection) -> {
+            try {
+                return connection.getMetaData().getDatabaseProductName();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        if (!"H2".equals(produit)) {
+            return;
+        }
+        String[][] tables = {
+            { "adherant_type", "id" }, { "settings", "id" }, { "tarif_inscription", "tarif_id" },
+            { "bibliothequaire", "bibliothequaire_id" }, { "editeur", "editeur_id" }, { "auteur", "auteur_id" },
+            { "categorie", "categorie_id" }, { "livre", "livre_id" }, { "exemplaire", "exemplaire_id" },
+            { "adherant", "adherant_id" }, { "profil", "profil_id" },
+            { "inscription", "inscription_id" }, { "pret", "pret_id" }, { "pret_type", "id" }
+        };
+        for (String[] table : tables) {
+            Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + table[1] + "), 0) FROM " + table[0], Long.class);
+            jdbcTemplate.execute("ALTER TABLE " + table[0] + " ALTER COLUMN " + table[1] + " RESTART WITH " + (max + 1));
+        }
+    }
+
+    private void inserer(String sql, long nombre, LongFunction<Object[]> ligne) {
+        List<Object[]> lot = new ArrayList<>(TAILLE_LOT);
+        for (long i = 1; i <= nombre; i++) {
+            lot.add(ligne.apply(i));
+            if (lot.size() == TAILLE_LOT) {
+                jdbcTemplate.batchUpdate(sql, lot);
+                lot.clear();
+            }
+        }
+        if (!lot.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, lot);
+        }
+    }
+
+    private long exemplaire(long livreId, Volumes volumes) {
+        return (livreId - 1) * volumes.exemplairesParLivre + 1 + random.nextInt(volumes.exemplairesParLivre);
+    }
+
+    // Exemplaire pas encore prêté, d'un livre populaire de préférence
+    private long exemplaireLibre(Popularite livresPopulaires, BitSet sortis, Volumes volumes) {
+        long exemplaireId = exemplaire(livresPopulaires.tirer(random), volumes);
+        for (int essai = 0; sortis.get((int) exemplaireId) && essai < volumes.exemplairesParLivre * 4; essai++) {
+            exemplaireId = exemplaire(livresPopulaires.tirer(random), volumes);
+        }
+        if (sortis.get((int) exemplaireId)) {
+            exemplaireId = sortis.nextClearBit(1);
+        }
+        sortis.set((int) exemplaireId);
+        return exemplaireId;
+    }
+
+    private String nom(long i) {
+        return NOMS[(int) (i % NOMS.length)];
+    }
+
+    private String titre() {
+        return capitaliser(MOTS[random.nextInt(MOTS.length)]) + " " + MOTS[random.nextInt(MOTS.length)]
+                + (random.nextBoolean() ? " et " + MOTS[random.nextInt(MOTS.length)] : "");
+    }
+
+    private String phrase(int mots) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < mots; i++) {
+            phrase.append(i == 0 ? "" : " ").append(MOTS[random.nextInt(MOTS.length)]);
+        }
+        return phrase.append('.').toString();
+    }
+
+    private static String capitaliser(String mot) {
+        return Character.toUpperCase(mot.charAt(0)) + mot.substring(1);
+    }
+}
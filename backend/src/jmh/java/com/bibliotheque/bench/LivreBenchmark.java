@@ -0,0 +1,88 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.controllers.LivreController;
+import com.bibliotheque.entities.Exemplaire;
+import com.bibliotheque.entities.Livre;
+import com.bibliotheque.repository.LivreRepository;
+import com.bibliotheque.services.LivreService;
+import org.hibernate.Hibernate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+// Recherche dans le catalogue et conversion Livre -> Map de LivreController.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LivreBenchmark {
+
+    private static final int LIVRES_CONVERTIS = 50;
+
+    // Un mot, deux mots, un préfixe (saisie en cours)
+    @State(Scope.Thread)
+    public static class Recherche {
+        @Param({ "jardin", "secret nuit", "rév" })
+        public String saisie;
+    }
+
+    private LivreService livreService;
+    private LivreController livreController;
+    private Method convertToResponse;
+    private List<Livre> livres;
+    private int curseur;
+
+    @Setup(Level.Trial)
+    public void preparer(ContexteBenchmark contexte) throws ReflectiveOperationException {
+        livreService = contexte.bean(LivreService.class);
+        livreController = contexte.bean(LivreController.class);
+        convertToResponse = LivreController.class.getDeclaredMethod("convertToResponse", Livre.class);
+        convertToResponse.setAccessible(true);
+
+        // Livres chargés avec leurs associations : seule la conversion est mesurée
+        LivreRepository livreRepository = contexte.bean(LivreRepository.class);
+        livres = contexte.bean(TransactionTemplate.class).execute(status -> {
+            List<Livre> charges = livreRepository.findAllById(LongStream.rangeClosed(1, LIVRES_CONVERTIS).boxed().toList());
+            for (Livre livre : charges) {
+                Hibernate.initialize(livre.getAuteurs());
+                Hibernate.initialize(livre.getCategories());
+                Hibernate.initialize(livre.getExemplaires());
+                for (Exemplaire exemplaire : livre.getExemplaires()) {
+                    Hibernate.initialize(exemplaire.getExemplaireEtat());
+                    Hibernate.initialize(exemplaire.getLivre());
+                }
+            }
+            return charges;
+        });
+    }
+
+    @Benchmark
+    public List<Livre> searchLivres(Recherche recherche) {
+        return livreService.searchLivres(recherche.saisie);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> convertToResponse() throws ReflectiveOperationException {
+        Livre livre = livres.get(curseur++ % livres.size());
+        return (Map<String, Object>) convertToResponse.invoke(livreController, livre);
+    }
+}
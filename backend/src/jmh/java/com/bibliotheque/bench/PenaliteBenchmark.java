@@ -0,0 +1,68 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.BibliothequeApplication;
+import com.bibliotheque.dto.CumulPenalitesRapport;
+import com.bibliotheque.services.CumulPenalitesService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Cumul nocturne des pénalités en cours, calculé un mois après la génération : tous les prêts
+// en cours sont alors en retard. Le temps doit croître linéairement avec le nombre de prêts en cours.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PenaliteBenchmark {
+
+    @Param({ "5000", "20000" })
+    public int pretsEnCours;
+
+    private ConfigurableApplicationContext context;
+    private CumulPenalitesService cumulPenalitesService;
+    private LocalDate jour;
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        context = new SpringApplicationBuilder(BibliothequeApplication.class)
+                .profiles("benchmark")
+                .web(WebApplicationType.NONE)
+                .run();
+        // Deux exemplaires libres au moins par prêt en cours
+        GenerateurDonnees.Volumes volumes = GenerateurDonnees.Volumes.pourTaille(pretsEnCours / 2);
+        volumes.pretsEnCours = pretsEnCours;
+        GenerateurDonnees.remplir(context, volumes, 42L);
+        cumulPenalitesService = context.getBean(CumulPenalitesService.class);
+        jour = LocalDate.now().plusDays(30);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public CumulPenalitesRapport cumuler() {
+        return cumulPenalitesService.executer(jour);
+    }
+}
@@ -0,0 +1,93 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.entities.Pret;
+import com.bibliotheque.services.PretService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Création et retour de prêt. Chaque prêt créé est rendu hors mesure (et inversement),
+// si bien que le nombre de prêts en cours reste constant d'une itération à l'autre.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PretBenchmark {
+
+    @State(Scope.Thread)
+    public static class Comptoir {
+        PretService pretService;
+        int exemplaires;
+        int profils;
+        int bibliothequaires;
+        long curseur;
+
+        @Setup(Level.Trial)
+        public void preparer(ContexteBenchmark contexte) {
+            pretService = contexte.bean(PretService.class);
+            exemplaires = contexte.volumes.exemplaires();
+            profils = contexte.volumes.profils;
+            bibliothequaires = contexte.volumes.bibliothequaires;
+        }
+
+        // Parcourt exemplaires et profils en rotation : un exemplaire n'est repris qu'après avoir été rendu
+        Pret emprunter() {
+            curseur++;
+            long exemplaireId = 1 + curseur % exemplaires;
+            long profilId = 1 + curseur % profils;
+            long bibliothequaireId = 1 + curseur % bibliothequaires;
+            return pretService.createPret(exemplaireId, profilId, bibliothequaireId, 0, 14);
+        }
+
+        void rendre(Pret pret) {
+            pretService.retournerPret(pret.getPretId(), LocalDate.now());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PretCree {
+        Pret pret;
+
+        @TearDown(Level.Invocation)
+        public void rendre(Comptoir comptoir) {
+            if (pret != null) {
+                comptoir.rendre(pret);
+                pret = null;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PretEnCours {
+        Pret pret;
+
+        @Setup(Level.Invocation)
+        public void emprunter(Comptoir comptoir) {
+            pret = comptoir.emprunter();
+        }
+    }
+
+    @Benchmark
+    public Pret createPret(Comptoir comptoir, PretCree cree) {
+        cree.pret = comptoir.emprunter();
+        return cree.pret;
+    }
+
+    @Benchmark
+    public Pret retournerPret(Comptoir comptoir, PretEnCours enCours) {
+        return comptoir.pretService.retournerPret(enCours.pret.getPretId(), LocalDate.now());
+    }
+}
@@ -0,0 +1,316 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.BibliothequeApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Rejeu de charge sur l'API REST : un mélange pondéré de requêtes envoyées à débit fixe,
+// latences p50/p99 par point d'accès.
+//
+// Sans --cible, démarre l'application en local sur H2 (profil benchmark) remplie par GenerateurDonnees :
+//   mvn -Pbenchmark compile exec:exec@rejouer -Drejeu.args="--taille=10000 --debit=200 --duree=60"
+// Avec --cible=http://localhost:8080/api, vise une instance déjà lancée (--profils et --livres bornent les identifiants).
+// --mode=virtuels démarre l'instance locale avec le profil threads-virtuels (voir ComparaisonThreads).
+//
+// Charge en boucle ouverte : chaque requête a une heure d'envoi prévue et sa latence est mesurée
+// depuis cette heure, pour qu'un serveur saturé ne ralentisse pas silencieusement le rythme d'envoi.
+public class RejeuCharge {
+
+    static final String MELANGE_DEFAUT =
+            "prets:20,prets-profil:15,reservations-profil:15,reservation-creation:5,recherche:30,stats-dashboard:10,stats-mois:5";
+
+    private final Map<String, String> options;
+    private final ExecutorService executeur;
+    private final HttpClient client;
+    private final String cible;
+    private final int profils;
+    private final int livres;
+    private final String[] operations;
+    private final int[] poidsCumules;
+    private final Map<String, Mesures> mesures = new LinkedHashMap<>();
+    private double dureeMesureeS;
+
+    RejeuCharge(Map<String, String> options, String cible, int profils, int livres) {
+        this.options = options;
+        this.cible = cible;
+        this.profils = profils;
+        this.livres = livres;
+        this.executeur = Executors.newFixedThreadPool(entier("clients", 32));
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executeur)
+                .build();
+
+        String[] parts = options.getOrDefault("melange", MELANGE_DEFAUT).split(",");
+        operations = new String[parts.length];
+        poidsCumules = new int[parts.length];
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            String[] operation = parts[i].trim().split(":");
+            operations[i] = operation[0];
+            total += Integer.parseInt(operation[1]);
+            poidsCumules[i] = total;
+            mesures.put(operations[i], new Mesures());
+            requete(operations[i]);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        lancer(options(args));
+    }
+
+    static Map<String, String> options(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Option attendue sous la forme --nom=valeur : " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    // Un rejeu complet ; renvoie le résumé global (débit obtenu, p99, erreurs)
+    static Map<String, Object> lancer(Map<String, String> options) throws Exception {
+        ConfigurableApplicationContext context = null;
+        try {
+            String cible = options.get("cible");
+            int profils;
+            int livres;
+            if (cible == null) {
+                // --mode=virtuels : requêtes Tomcat et tâches sur threads virtuels (Java 21 requis)
+                String mode = options.getOrDefault("mode", "plateforme");
+                if (!mode.equals("plateforme") && !mode.equals("virtuels")) {
+                    throw new IllegalArgumentException("Mode attendu : plateforme ou virtuels");
+                }
+                if (mode.equals("virtuels") && !JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+                    throw new IllegalStateException("Le mode virtuels exige Java 21, la JVM est en Java " + JavaVersion.getJavaVersion());
+                }
+                context = new SpringApplicationBuilder(BibliothequeApplication.class)
+                        .profiles(mode.equals("virtuels") ? new String[] { "benchmark", "threads-virtuels" } : new String[] { "benchmark" })
+                        .run("--server.port=0");
+                GenerateurDonnees.Volumes volumes = GenerateurDonnees.Volumes.depuis(options.getOrDefault("taille", "10000"));
+                System.out.println("Génération : " + volumes);
+                GenerateurDonnees.remplir(context, volumes, Long.parseLong(options.getOrDefault("graine", "42")));
+                cible = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                        + context.getEnvironment().getProperty("server.servlet.context-path", "");
+                profils = volumes.profils;
+                livres = volumes.livres;
+            } else {
+                profils = Integer.parseInt(options.getOrDefault("profils", "1000"));
+                livres = Integer.parseInt(options.getOrDefault("livres", "1000"));
+            }
+
+            RejeuCharge rejeu = new RejeuCharge(options, cible, profils, livres);
+            rejeu.executer();
+            return rejeu.rapporter();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    void executer() throws InterruptedException {
+        int debit = entier("debit", 50);
+        int duree = entier("duree", 60);
+        int echauffement = entier("echauffement", 10);
+        Semaphore enVol = new Semaphore(entier("en-vol-max", 256));
+        long intervalle = TimeUnit.SECONDS.toNanos(1) / debit;
+        long debut = System.nanoTime();
+        long finEchauffement = debut + TimeUnit.SECONDS.toNanos(echauffement);
+        long fin = finEchauffement + TimeUnit.SECONDS.toNanos(duree);
+        AtomicLong echecsConnexion = new AtomicLong();
+
+        System.out.printf("Rejeu sur %s : %d req/s, %d s d'échauffement, %d s mesurées%n", cible, debit, echauffement, duree);
+        for (long n = 0; ; n++) {
+            long prevu = debut + n * intervalle;
+            if (prevu >= fin) {
+                break;
+            }
+            long attente = prevu - System.nanoTime();
+            if (attente > 0) {
+                LockSupport.parkNanos(attente);
+            }
+            String operation = tirerOperation();
+            boolean mesure = prevu >= finEchauffement;
+            enVol.acquire();
+            client.sendAsync(requete(operation), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((reponse, erreur) -> {
+                        enVol.release();
+                        long latence = System.nanoTime() - prevu;
+                        if (erreur != null) {
+                            echecsConnexion.incrementAndGet();
+                        }
+                        if (mesure) {
+                            mesures.get(operation).ajouter(latence, erreur == null && reponse.statusCode() < 400);
+                        }
+                    });
+        }
+        enVol.acquire(entier("en-vol-max", 256));
+        // Jusqu'à la dernière réponse : un serveur saturé étire la fenêtre et fait baisser le débit obtenu
+        dureeMesureeS = (System.nanoTime() - finEchauffement) / 1e9;
+        if (echecsConnexion.get() > 0) {
+            System.out.println(echecsConnexion.get() + " requêtes sans réponse (connexion ou délai)");
+        }
+        executeur.shutdown();
+    }
+
+    Map<String, Object> rapporter() throws IOException {
+        List<Map<String, Object>> lignes = new ArrayList<>();
+        long[] toutes = new long[0];
+        long erreurs = 0;
+        System.out.printf("%n%-22s %8s %7s %10s %10s %10s%n", "Point d'accès", "Requêtes", "Erreurs", "p50 (ms)", "p99 (ms)", "max (ms)");
+        for (Map.Entry<String, Mesures> entry : mesures.entrySet()) {
+            Mesures m = entry.getValue();
+            long[] latences = m.triees();
+            toutes = fusionner(toutes, latences);
+            erreurs += m.erreurs;
+            Map<String, Object> ligne = new LinkedHashMap<>();
+            ligne.put("operation", entry.getKey());
+            ligne.put("requetes", latences.length);
+            ligne.put("erreurs", m.erreurs);
+            ligne.put("p50Ms", centile(latences, 0.50));
+            ligne.put("p99Ms", centile(latences, 0.99));
+            ligne.put("maxMs", latences.length > 0 ? latences[latences.length - 1] / 1e6 : 0.0);
+            lignes.add(ligne);
+            System.out.printf("%-22s %8d %7d %10.2f %10.2f %10.2f%n", entry.getKey(), latences.length, m.erreurs,
+                    ligne.get("p50Ms"), ligne.get("p99Ms"), ligne.get("maxMs"));
+        }
+        Map<String, Object> resume = new LinkedHashMap<>();
+        resume.put("mode", options.getOrDefault("mode", "plateforme"));
+        resume.put("debitObtenu", (toutes.length - erreurs) / dureeMesureeS);
+        resume.put("requetes", toutes.length);
+        resume.put("erreurs", erreurs);
+        resume.put("p50Ms", centile(toutes, 0.50));
+        resume.put("p99Ms", centile(toutes, 0.99));
+        System.out.printf("%-22s %8d %7d %10.2f %10.2f    débit obtenu %.0f req/s%n", "total", toutes.length, erreurs,
+                resume.get("p50Ms"), resume.get("p99Ms"), resume.get("debitObtenu"));
+        String rapport = options.get("rapport");
+        if (rapport != null) {
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(new File(rapport), lignes);
+            System.out.println("Rapport écrit dans " + rapport);
+        }
+        return resume;
+    }
+
+    private static long[] fusionner(long[] a, long[] b) {
+        long[] fusion = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, fusion, a.length, b.length);
+        Arrays.sort(fusion);
+        return fusion;
+    }
+
+    private String tirerOperation() {
+        int tirage = ThreadLocalRandom.current().nextInt(poidsCumules[poidsCumules.length - 1]);
+        int i = 0;
+        while (poidsCumules[i] <= tirage) {
+            i++;
+        }
+        return operations[i];
+    }
+
+    private HttpRequest requete(String operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long profilId = 1 + random.nextInt(profils);
+        long livreId = 1 + random.nextInt(livres);
+        switch (operation) {
+            case "prets":
+                return get("/prets?taille=50");
+            case "prets-profil":
+                return get("/prets?profilId=" + profilId + "&taille=20");
+            case "prets-retard":
+                return get("/prets/retard");
+            case "reservations-profil":
+                return get("/reservations/profil/" + profilId);
+            case "reservations-attente":
+                return get("/reservations/en-attente");
+            case "reservation-creation":
+                return post("/reservations", "{\"livreId\":" + livreId + ",\"profilId\":" + profilId + "}");
+            case "recherche":
+                String mot = GenerateurDonnees.MOTS[random.nextInt(GenerateurDonnees.MOTS.length)];
+                // Une saisie sur trois est incomplète (recherche au fil de la frappe)
+                String saisie = random.nextInt(3) == 0 ? mot.substring(0, Math.min(mot.length(), 3)) : mot;
+                return get("/livres/search?q=" + URLEncoder.encode(saisie, StandardCharsets.UTF_8));
+            case "stats-dashboard":
+                return get("/stats/dashboard");
+            case "stats-mois":
+                return get("/stats/prets-par-mois");
+            case "stats-statistiques":
+                return get("/stats/statistics");
+            default:
+                throw new IllegalArgumentException("Opération inconnue : " + operation);
+        }
+    }
+
+    private HttpRequest get(String chemin) {
+        return HttpRequest.newBuilder(URI.create(cible + chemin)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest post(String chemin, String json) {
+        return HttpRequest.newBuilder(URI.create(cible + chemin))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private int entier(String nom, int defaut) {
+        return Integer.parseInt(options.getOrDefault(nom, String.valueOf(defaut)));
+    }
+
+    private static double centile(long[] triees, double centile) {
+        if (triees.length == 0) {
+            return 0.0;
+        }
+        int rang = (int) Math.ceil(centile * triees.length) - 1;
+        return triees[Math.max(0, rang)] / 1e6;
+    }
+
+    // Latences en nanosecondes d'un point d'accès
+    static class Mesures {
+        private long[] latences = new long[1024];
+        private int nombre;
+        private long erreurs;
+
+        synchronized void ajouter(long latence, boolean succes) {
+            if (nombre == latences.length) {
+                latences = Arrays.copyOf(latences, nombre * 2);
+            }
+            latences[nombre++] = latence;
+            if (!succes) {
+                erreurs++;
+            }
+        }
+
+        synchronized long[] triees() {
+            long[] copie = Arrays.copyOf(latences, nombre);
+            Arrays.sort(copie);
+            return copie;
+        }
+    }
+}
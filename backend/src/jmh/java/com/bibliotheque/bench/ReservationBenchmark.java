@@ -0,0 +1,56 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.entities.Reservation;
+import com.bibliotheque.services.ReservationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Création de réservation ; chaque réservation est annulée hors mesure.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReservationBenchmark {
+
+    private ReservationService reservationService;
+    private int livres;
+    private int profils;
+    private long curseur;
+    private Reservation derniere;
+
+    @Setup(Level.Trial)
+    public void preparer(ContexteBenchmark contexte) {
+        reservationService = contexte.bean(ReservationService.class);
+        livres = contexte.volumes.livres;
+        profils = contexte.volumes.profils;
+    }
+
+    @TearDown(Level.Invocation)
+    public void annuler() {
+        if (derniere != null) {
+            reservationService.annulerReservation(derniere.getReservationId());
+            derniere = null;
+        }
+    }
+
+    @Benchmark
+    public Reservation createReservation() {
+        curseur++;
+        derniere = reservationService.createReservation(1 + curseur % livres, 1 + curseur % profils);
+        return derniere;
+    }
+}
@@ -0,0 +1,105 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.BibliothequeApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Filtres les plus fréquents sur les statuts, avant (jointure sur les anciennes tables 1:1, recréées
+// ici à l'identique à partir des colonnes) et après le passage en colonnes indexées des tables parentes.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatutsBenchmark {
+
+    private static final Map<String, String[]> REQUETES = Map.of(
+            "jointure", new String[] {
+                    "SELECT COUNT(*) FROM pret p JOIN bench_pret_status ps ON ps.pret_id = p.pret_id " +
+                    "WHERE ps.rendu = false AND p.date_fin_pret < :date",
+                    "SELECT p.pret_id, p.date_fin_pret FROM pret p JOIN bench_pret_status ps ON ps.pret_id = p.pret_id " +
+                    "WHERE p.profil_id = :profilId AND ps.rendu = false",
+                    "SELECT e.exemplaire_id FROM exemplaire e JOIN bench_exemplaire_etat ee ON ee.exemplaire_id = e.exemplaire_id " +
+                    "WHERE e.livre_id = :livreId AND ee.etat < 4 AND NOT EXISTS (SELECT 1 FROM pret p " +
+                    "  JOIN bench_pret_status ps ON ps.pret_id = p.pret_id WHERE p.exemplaire_id = e.exemplaire_id AND ps.rendu = false)" },
+            "colonnes", new String[] {
+                    "SELECT COUNT(*) FROM pret p WHERE p.rendu = false AND p.date_fin_pret < :date",
+                    "SELECT p.pret_id, p.date_fin_pret FROM pret p WHERE p.profil_id = :profilId AND p.rendu = false",
+                    "SELECT e.exemplaire_id FROM exemplaire e WHERE e.livre_id = :livreId AND e.etat < 4 AND NOT EXISTS " +
+                    "(SELECT 1 FROM pret p WHERE p.exemplaire_id = e.exemplaire_id AND p.rendu = false)" });
+
+    @Param({ "jointure", "colonnes" })
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private NamedParameterJdbcTemplate jdbc;
+    private GenerateurDonnees.Volumes volumes;
+    private String[] requetes;
+    private final SplittableRandom random = new SplittableRandom(7L);
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        context = new SpringApplicationBuilder(BibliothequeApplication.class)
+                .profiles("benchmark")
+                .web(WebApplicationType.NONE)
+                .run();
+        volumes = GenerateurDonnees.Volumes.pourTaille(20_000);
+        GenerateurDonnees.remplir(context, volumes, 42L);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        // Anciennes tables de statut : une ligne par parent, clé unique sur la référence
+        jdbcTemplate.execute("CREATE TABLE bench_pret_status (id BIGINT PRIMARY KEY, pret_id BIGINT NOT NULL UNIQUE, " +
+                "en_retard BOOLEAN, rendu BOOLEAN)");
+        jdbcTemplate.execute("INSERT INTO bench_pret_status SELECT pret_id, pret_id, en_retard, rendu FROM pret");
+        jdbcTemplate.execute("CREATE TABLE bench_exemplaire_etat (id BIGINT PRIMARY KEY, exemplaire_id BIGINT NOT NULL UNIQUE, " +
+                "etat INT, date_acquisition DATE)");
+        jdbcTemplate.execute("INSERT INTO bench_exemplaire_etat SELECT exemplaire_id, exemplaire_id, etat, date_acquisition FROM exemplaire");
+        jdbc = context.getBean(NamedParameterJdbcTemplate.class);
+        requetes = REQUETES.get(mode);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Long pretsEnRetard() {
+        return jdbc.queryForObject(requetes[0], Map.of("date", Date.valueOf(LocalDate.now())), Long.class);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> pretsEnCoursProfil() {
+        return jdbc.queryForList(requetes[1], Map.of("profilId", 1L + random.nextInt(volumes.profils)));
+    }
+
+    @Benchmark
+    public List<Long> exemplairesDisponibles() {
+        return jdbc.queryForList(requetes[2], Map.of("livreId", 1L + random.nextInt(volumes.livres)), Long.class);
+    }
+}
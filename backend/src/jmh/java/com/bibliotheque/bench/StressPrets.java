@@ -0,0 +1,213 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.BibliothequeApplication;
+import com.bibliotheque.dto.EligibiliteProfil;
+import com.bibliotheque.entities.Pret;
+import com.bibliotheque.services.EligibiliteService;
+import com.bibliotheque.services.PretService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Test de charge des prêts concurrents : à chaque manche, des centaines d'emprunts simultanés visent
+// un petit lot d'exemplaires (prêts unitaires et prêts en lot mélangés). Après chaque manche, la base
+// ne doit contenir qu'un prêt en cours au plus par exemplaire, et autant de prêts que de succès ;
+// les prêts sont ensuite rendus en lot avant la manche suivante.
+//
+//   mvn -Pbenchmark compile exec:exec@stress -Dstress.args="--exemplaires=10 --emprunts=300 --manches=20"
+//
+// Code de sortie 1 si un exemplaire a été prêté deux fois.
+public class StressPrets {
+
+    private static final String SQL_DOUBLONS =
+            "SELECT p.exemplaire_id, COUNT(*) FROM pret p " +
+            "WHERE p.rendu = false AND p.exemplaire_id IN (:ids) GROUP BY p.exemplaire_id HAVING COUNT(*) > 1";
+
+    private static final String SQL_EN_COURS =
+            "SELECT COUNT(*) FROM pret p WHERE p.rendu = false AND p.exemplaire_id IN (:ids)";
+
+    private static final String SQL_EXEMPLAIRES_LIBRES =
+            "SELECT e.exemplaire_id FROM exemplaire e " +
+            "WHERE e.etat < 4 AND NOT EXISTS (SELECT 1 FROM pret p " +
+            "  WHERE p.exemplaire_id = e.exemplaire_id AND p.rendu = false) ORDER BY e.exemplaire_id LIMIT :nombre";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Option attendue sous la forme --nom=valeur : " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int taille = Integer.parseInt(options.getOrDefault("taille", "1000"));
+        int nbExemplaires = Integer.parseInt(options.getOrDefault("exemplaires", "10"));
+        int emprunts = Integer.parseInt(options.getOrDefault("emprunts", "300"));
+        int manches = Integer.parseInt(options.getOrDefault("manches", "20"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "64"));
+        int pourcentLots = Integer.parseInt(options.getOrDefault("lots", "20"));
+        long graine = Long.parseLong(options.getOrDefault("graine", "42"));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BibliothequeApplication.class)
+                .profiles("benchmark")
+                .web(WebApplicationType.NONE)
+                .run();
+        int code = 0;
+        try {
+            GenerateurDonnees.Volumes volumes = GenerateurDonnees.remplir(context, GenerateurDonnees.Volumes.pourTaille(taille), graine);
+            PretService pretService = context.getBean(PretService.class);
+            NamedParameterJdbcTemplate jdbc = context.getBean(NamedParameterJdbcTemplate.class);
+
+            List<Long> exemplaires = jdbc.queryForList(SQL_EXEMPLAIRES_LIBRES,
+                    new MapSqlParameterSource("nombre", nbExemplaires), Long.class);
+            List<Long> profils = profilsEligibles(context.getBean(EligibiliteService.class), volumes.profils);
+            if (exemplaires.size() < nbExemplaires || profils.isEmpty()) {
+                throw new IllegalStateException("Jeu de données insuffisant : " + exemplaires.size() + " exemplaires libres, "
+                        + profils.size() + " profils éligibles");
+            }
+            System.out.printf("%d emprunts simultanés par manche sur %d exemplaires, %d threads, %d manches, %d%% en lot (%d profils)%n",
+                    emprunts, nbExemplaires, threads, manches, pourcentLots, profils.size());
+
+            ExecutorService executeur = Executors.newFixedThreadPool(threads);
+            Map<String, AtomicInteger> issues = new ConcurrentHashMap<>();
+            Random random = new Random(graine);
+            AtomicInteger curseurProfil = new AtomicInteger();
+            long[] latences = new long[emprunts * manches];
+            AtomicInteger nbLatences = new AtomicInteger();
+            long dureeTotale = 0;
+            int doublons = 0;
+            int succesTotal = 0;
+
+            for (int manche = 1; manche <= manches; manche++) {
+                ConcurrentLinkedQueue<Long> pretsCrees = new ConcurrentLinkedQueue<>();
+                AtomicLong exemplairesPretes = new AtomicLong();
+                CountDownLatch depart = new CountDownLatch(1);
+                CountDownLatch fin = new CountDownLatch(emprunts);
+                for (int i = 0; i < emprunts; i++) {
+                    boolean enLot = random.nextInt(100) < pourcentLots;
+                    List<Long> cibles = new ArrayList<>(exemplaires);
+                    Collections.shuffle(cibles, random);
+                    List<Long> choisis = new ArrayList<>(cibles.subList(0, enLot ? Math.min(3, cibles.size()) : 1));
+                    executeur.execute(() -> {
+                        try {
+                            depart.await();
+                            Long profilId = profils.get(Math.floorMod(curseurProfil.getAndIncrement(), profils.size()));
+                            long debut = System.nanoTime();
+                            try {
+                                if (enLot) {
+                                    List<Map<String, Object>> resultats = pretService.creerPretsEnLot(choisis, profilId, 1L, 0, 14);
+                                    for (Map<String, Object> resultat : resultats) {
+                                        if (Boolean.TRUE.equals(resultat.get("succes"))) {
+                                            pretsCrees.add((Long) resultat.get("pretId"));
+                                            exemplairesPretes.incrementAndGet();
+                                            compter(issues, "succès (lot)");
+                                        } else {
+                                            compter(issues, "refus (lot) : " + resultat.get("error"));
+                                        }
+                                    }
+                                } else {
+                                    Pret pret = pretService.createPret(choisis.get(0), profilId, 1L, 0, 14);
+                                    pretsCrees.add(pret.getPretId());
+                                    exemplairesPretes.incrementAndGet();
+                                    compter(issues, "succès");
+                                }
+                            } catch (RuntimeException e) {
+                                compter(issues, "refus : " + e.getMessage());
+                            }
+                            latences[nbLatences.getAndIncrement()] = System.nanoTime() - debut;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            fin.countDown();
+                        }
+                    });
+                }
+                long debutManche = System.nanoTime();
+                depart.countDown();
+                fin.await();
+                dureeTotale += System.nanoTime() - debutManche;
+
+                MapSqlParameterSource ids = new MapSqlParameterSource("ids", exemplaires);
+                List<Map<String, Object>> doubles = jdbc.queryForList(SQL_DOUBLONS, ids);
+                Long enCours = jdbc.queryForObject(SQL_EN_COURS, ids, Long.class);
+                if (!doubles.isEmpty() || enCours == null || enCours != exemplairesPretes.get()) {
+                    doublons += doubles.size();
+                    System.out.printf("Manche %d : %d exemplaire(s) prêté(s) plusieurs fois %s, %d prêts en cours pour %d succès%n",
+                            manche, doubles.size(), doubles, enCours, exemplairesPretes.get());
+                }
+                succesTotal += exemplairesPretes.get();
+                if (!pretsCrees.isEmpty()) {
+                    pretService.retournerPretsEnLot(new ArrayList<>(pretsCrees), LocalDate.now());
+                }
+            }
+            executeur.shutdown();
+            executeur.awaitTermination(1, TimeUnit.MINUTES);
+
+            long[] triees = Arrays.copyOf(latences, nbLatences.get());
+            Arrays.sort(triees);
+            System.out.printf("%nDébit : %.0f emprunts/s (%d tentatives en %.2f s), %d exemplaires prêtés%n",
+                    triees.length / (dureeTotale / 1e9), triees.length, dureeTotale / 1e9, succesTotal);
+            System.out.printf("Latence : p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    centile(triees, 0.50), centile(triees, 0.99), triees.length > 0 ? triees[triees.length - 1] / 1e6 : 0.0);
+            new TreeMap<>(issues).forEach((issue, nombre) -> System.out.printf("  %6d  %s%n", nombre.get(), issue));
+            if (doublons > 0) {
+                System.out.println("ÉCHEC : " + doublons + " double(s) allocation(s)");
+                code = 1;
+            } else {
+                System.out.println("Aucune double allocation");
+            }
+        } finally {
+            context.close();
+        }
+        System.exit(code);
+    }
+
+    // Profils sans pénalité, inscrits, avec assez de quota pour plusieurs manches
+    private static List<Long> profilsEligibles(EligibiliteService eligibiliteService, int profils) {
+        List<Long> eligibles = new ArrayList<>();
+        for (long profilId = 1; profilId <= profils; profilId++) {
+            try {
+                EligibiliteProfil eligibilite = eligibiliteService.evaluer(profilId, null, null);
+                eligibiliteService.verifierPenalites(eligibilite);
+                eligibiliteService.verifierInscription(eligibilite);
+                if (eligibiliteService.getPretsRestants(eligibilite) >= 3) {
+                    eligibles.add(profilId);
+                }
+            } catch (RuntimeException e) {
+                // Profil inéligible : écarté
+            }
+        }
+        return eligibles;
+    }
+
+    private static void compter(Map<String, AtomicInteger> issues, String issue) {
+        issues.computeIfAbsent(issue, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static double centile(long[] triees, double centile) {
+        if (triees.length == 0) {
+            return 0.0;
+        }
+        int rang = (int) Math.ceil(centile * triees.length) - 1;
+        return triees[Math.max(0, rang)] / 1e6;
+    }
+}
@@ -0,0 +1,306 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.BibliothequeApplication;
+import com.bibliotheque.utils.CompteurRequetes;
+import jakarta.persistence.EntityManager;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Vérification des plans d'exécution : chaque méthode de requête des dépôts Spring Data (@Query et
+// requêtes dérivées) est exécutée sur une base H2 remplie par GenerateurDonnees, dans une transaction
+// annulée ; chaque requête SQL qu'elle émet, ainsi que les constantes SQL_* des dépôts JDBC, passe
+// par EXPLAIN. Une lecture complète (table ou index sans condition) d'une table de plus de --seuil
+// lignes fait échouer la vérification, sauf si la requête figure dans ANALYSES_ADMISES.
+// Le schéma est celui des migrations Flyway ; l'optimiseur est celui de H2, pas celui de MySQL :
+// la vérification garantit qu'un index utilisable existe, pas le choix final de MySQL.
+//
+//   mvn -Pbenchmark compile exec:exec@plans -Dplans.args="--taille=2000 --seuil=1000"
+//
+// Code de sortie 1 si une requête lit entièrement une grande table ou si son EXPLAIN échoue.
+public class VerificationPlans {
+
+    private static final String PAQUET_DEPOTS = "com.bibliotheque.repository";
+
+    // Lectures complètes voulues : requête → raison
+    static final Map<String, String> ANALYSES_ADMISES = Map.ofEntries(
+            Map.entry("ExemplaireRepository.findExemplairesEnBonEtat", "quasi-totalité des exemplaires (état < 4)"),
+            Map.entry("LivreRepository.findLivresDisponibles", "quasi-totalité du catalogue"),
+            Map.entry("LivreRepository.findByTitreContaining", "recherche de sous-chaîne (LIKE %…%), sans index B-tree utilisable"),
+            Map.entry("LivreRepository.findByAuteurNomOrPrenom", "recherche de sous-chaîne (LIKE %…%), sans index B-tree utilisable"),
+            Map.entry("LivreRepository.searchLivres", "repli LIKE %…% tant que l'index du catalogue (IndexCatalogue) n'est pas construit"),
+            Map.entry("ProfilRepository.findByNomOrPrenom", "recherche de sous-chaîne (LIKE %…%), sans index B-tree utilisable"),
+            Map.entry("ProfilRepository.findByAdherantType", "un type d'adhérant regroupe une grande partie des profils"),
+            Map.entry("NotificationRepository.findAllOrderByDateEnvoiDesc", "liste complète des notifications (administration)"),
+            Map.entry("ExportPretsRepository.SQL_PRETS", "export complet en flux, filtres ajoutés à l'exécution"));
+
+    // Table lue dans un plan H2 : "schéma"."table" ["alias"] /* index[: condition] */ ou /* schéma.table.tableScan */
+    private static final Pattern LECTURE = Pattern.compile("\"(\\w+)\"\\.\"(\\w+)\"(?: \"\\w+\")?\\s*/\\* (\\S+?)(:| \\*/)");
+
+    record Requete(String nom, String sql) {}
+
+    record Lecture(String table, String index, boolean complete) {}
+
+    public static void main(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Option attendue sous la forme --nom=valeur : " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int taille = Integer.parseInt(options.getOrDefault("taille", "2000"));
+        long seuil = Long.parseLong(options.getOrDefault("seuil", "1000"));
+        long graine = Long.parseLong(options.getOrDefault("graine", "42"));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BibliothequeApplication.class)
+                .profiles("benchmark")
+                .web(WebApplicationType.NONE)
+                .run();
+        int code = 0;
+        try {
+            GenerateurDonnees.remplir(context, GenerateurDonnees.Volumes.pourTaille(taille), graine);
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            completer(jdbcTemplate);
+            jdbcTemplate.execute("ANALYZE");
+            Map<String, Long> lignes = compterLignes(jdbcTemplate);
+            System.out.println("Lignes par table : " + lignes);
+
+            List<Requete> requetes = new ArrayList<>();
+            List<String> erreurs = new ArrayList<>();
+            requetes.addAll(requetesSpringData(context, erreurs));
+            requetes.addAll(requetesJdbc(context));
+
+            int analysees = 0;
+            List<String> admises = new ArrayList<>();
+            Set<String> admissionsUtilisees = new LinkedHashSet<>();
+            for (Requete requete : requetes) {
+                String plan;
+                try {
+                    plan = jdbcTemplate.queryForObject("EXPLAIN " + requete.sql(), String.class);
+                } catch (RuntimeException e) {
+                    // Requête dont le plan n'est pas vérifiable : échec, plutôt qu'un trou dans la vérification
+                    erreurs.add(requete.nom() + " sans plan (EXPLAIN refusé) : " + e.getMessage().lines().findFirst().orElse("")
+                            + "\n    " + requete.sql());
+                    continue;
+                }
+                analysees++;
+                List<Lecture> completes = lectures(plan).stream()
+                        .filter(l -> l.complete() && lignes.getOrDefault(l.table(), 0L) >= seuil)
+                        .toList();
+                if (completes.isEmpty()) {
+                    continue;
+                }
+                String detail = String.format("%s lit entièrement %s%n    %s", requete.nom(),
+                        completes.stream().map(l -> l.table() + " (" + lignes.get(l.table()) + " lignes, " + l.index() + ")").distinct().toList(),
+                        requete.sql());
+                String raison = ANALYSES_ADMISES.get(requete.nom());
+                if (raison != null) {
+                    admissionsUtilisees.add(requete.nom());
+                    admises.add(detail + "\n    admise : " + raison);
+                } else {
+                    erreurs.add(detail);
+                }
+            }
+
+            System.out.printf("%n%d requêtes SQL analysées%n", analysees);
+            admises.forEach(a -> System.out.println("ADMISE     " + a));
+            ANALYSES_ADMISES.keySet().stream()
+                    .filter(nom -> !admissionsUtilisees.contains(nom))
+                    .sorted()
+                    .forEach(nom -> System.out.println("inutile    " + nom + " : plus de lecture complète, admission à retirer"));
+            erreurs.forEach(e -> System.out.println("ÉCHEC      " + e));
+            code = erreurs.isEmpty() ? 0 : 1;
+        } finally {
+            context.close();
+        }
+        System.exit(code);
+    }
+
+    // Méthodes de requête de chaque dépôt Spring Data, exécutées avec des arguments quelconques
+    // dans une transaction annulée ; une méthode = toutes les requêtes SQL qu'elle a émises
+    private static List<Requete> requetesSpringData(ConfigurableApplicationContext context, List<String> erreurs) {
+        Repositories repositories = new Repositories(context);
+        TransactionTemplate transaction = context.getBean(TransactionTemplate.class);
+        EntityManager entityManager = context.getBean(EntityManager.class);
+        List<Requete> requetes = new ArrayList<>();
+        Map<String, RepositoryInformation> depots = new TreeMap<>();
+        for (Class<?> domaine : repositories) {
+            repositories.getRepositoryInformationFor(domaine)
+                    .ifPresent(info -> depots.put(info.getRepositoryInterface().getSimpleName(), info));
+        }
+        for (RepositoryInformation info : depots.values()) {
+            Object depot = repositories.getRepositoryFor(info.getDomainType()).orElseThrow();
+            List<Method> methodes = info.getQueryMethods().stream()
+                    .sorted(Comparator.comparing(Method::getName))
+                    .toList();
+            for (Method methode : methodes) {
+                String nom = info.getRepositoryInterface().getSimpleName() + "." + methode.getName();
+                Set<String> formes = new LinkedHashSet<>();
+                try {
+                    transaction.executeWithoutResult(statut -> {
+                        statut.setRollbackOnly();
+                        try (CompteurRequetes.Contexte contexte = CompteurRequetes.ouvrir()) {
+                            Object[] arguments = new Object[methode.getParameterCount()];
+                            for (int i = 0; i < arguments.length; i++) {
+                                arguments[i] = exemple(methode.getParameterTypes()[i], methode.getGenericParameterTypes()[i], entityManager);
+                            }
+                            try {
+                                methode.invoke(depot, arguments);
+                            } catch (InvocationTargetException e) {
+                                throw new IllegalStateException(e.getCause());
+                            } catch (IllegalAccessException e) {
+                                throw new IllegalStateException(e);
+                            }
+                            formes.addAll(contexte.getRepetitions(1).keySet());
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    erreurs.add(nom + " non exécutée : " + e.getMessage());
+                    continue;
+                }
+                formes.forEach(sql -> requetes.add(new Requete(nom, sql)));
+            }
+        }
+        return requetes;
+    }
+
+    // Constantes SQL_* des dépôts JDBC, paramètres nommés remplacés par ?
+    private static List<Requete> requetesJdbc(ConfigurableApplicationContext context) {
+        List<Requete> requetes = new ArrayList<>();
+        Map<String, Class<?>> classes = new TreeMap<>();
+        for (Object bean : context.getBeansWithAnnotation(Repository.class).values()) {
+            Class<?> classe = AopUtils.getTargetClass(bean);
+            if (classe.getPackageName().equals(PAQUET_DEPOTS) && !classe.isInterface()) {
+                classes.put(classe.getSimpleName(), classe);
+            }
+        }
+        for (Class<?> classe : classes.values()) {
+            for (Field champ : classe.getDeclaredFields()) {
+                if (!Modifier.isStatic(champ.getModifiers()) || champ.getType() != String.class || !champ.getName().startsWith("SQL_")) {
+                    continue;
+                }
+                champ.setAccessible(true);
+                String sql;
+                try {
+                    sql = (String) champ.get(null);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+                if (sql.stripLeading().toUpperCase().startsWith("INSERT")) {
+                    continue;
+                }
+                requetes.add(new Requete(classe.getSimpleName() + "." + champ.getName(), NamedParameterUtils.parseSqlStatementIntoString(sql)));
+            }
+        }
+        return requetes;
+    }
+
+    static List<Lecture> lectures(String plan) {
+        List<Lecture> lectures = new ArrayList<>();
+        Matcher matcher = LECTURE.matcher(plan);
+        while (matcher.find()) {
+            String index = matcher.group(3);
+            boolean complete = index.endsWith(".tableScan") || !":".equals(matcher.group(4));
+            lectures.add(new Lecture(matcher.group(2).toLowerCase(), index, complete));
+        }
+        return lectures;
+    }
+
+    private static Object exemple(Class<?> type, Type generique, EntityManager entityManager) {
+        if (type == Long.class || type == long.class) {
+            return 1L;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 1;
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return false;
+        }
+        if (type == String.class) {
+            return "a";
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.now();
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (type == BigDecimal.class) {
+            return BigDecimal.ONE;
+        }
+        if (Pageable.class.isAssignableFrom(type)) {
+            return PageRequest.of(0, 20);
+        }
+        if (type == Sort.class) {
+            return Sort.unsorted();
+        }
+        if (type.isEnum()) {
+            return type.getEnumConstants()[0];
+        }
+        if (Collection.class.isAssignableFrom(type) && generique instanceof ParameterizedType parametre
+                && parametre.getActualTypeArguments()[0] instanceof Class<?> element) {
+            return List.of(exemple(element, element, entityManager), exemple(element, element, entityManager));
+        }
+        if (type.isAnnotationPresent(jakarta.persistence.Entity.class)) {
+            return entityManager.find(type, 1L);
+        }
+        throw new IllegalArgumentException("Type d'argument non géré : " + type.getName());
+    }
+
+    // Tables que le générateur ne remplit pas : réservations, notifications, pénalités et prolongements
+    // dérivés des prêts, pour que leurs requêtes portent sur des volumes réalistes
+    private static void completer(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("INSERT INTO reservation (exemplaire_id, profil_id, date_resa, date_expiration, statut) " +
+                "SELECT exemplaire_id, profil_id, date_pret, DATEADD(DAY, 7, date_pret), MOD(pret_id, 4) FROM pret " +
+                "WHERE profil_id IS NOT NULL AND MOD(pret_id, 3) = 0");
+        jdbcTemplate.update("INSERT INTO notification (profil_id, message, date_envoi, statut) " +
+                "SELECT profil_id, 'Rappel', CAST(date_pret AS TIMESTAMP), MOD(pret_id, 2) FROM pret WHERE profil_id IS NOT NULL");
+        jdbcTemplate.update("INSERT INTO penalite (profil_id, pret_id, date_debut, date_fin, montant, statut) " +
+                "SELECT profil_id, pret_id, date_fin_pret, DATEADD(DAY, 14, date_fin_pret), 2.50, MOD(pret_id, 3) FROM pret " +
+                "WHERE profil_id IS NOT NULL AND en_retard = true");
+        jdbcTemplate.update("INSERT INTO prolongement_pret (pret_id, date_demande, nouvelle_date_fin, statut) " +
+                "SELECT pret_id, CAST(date_pret AS TIMESTAMP), CAST(DATEADD(DAY, 21, date_pret) AS TIMESTAMP), 1 FROM pret " +
+                "WHERE MOD(pret_id, 5) = 0");
+    }
+
+    private static Map<String, Long> compterLignes(JdbcTemplate jdbcTemplate) {
+        Map<String, Long> lignes = new TreeMap<>();
+        for (String table : jdbcTemplate.queryForList("SELECT table_name FROM information_schema.tables " +
+                "WHERE table_schema = 'public' AND table_type = 'BASE TABLE'", String.class)) {
+            lignes.put(table.toLowerCase(), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class));
+        }
+        return lignes;
+    }
+}
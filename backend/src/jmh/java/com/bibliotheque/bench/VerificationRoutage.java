@@ -0,0 +1,142 @@
+package com.bibliotheque.bench;
+
+import com.bibliotheque.BibliothequeApplication;
+import com.bibliotheque.config.GardeReplique;
+import com.bibliotheque.entities.Livre;
+import com.bibliotheque.repository.LivreRepository;
+import com.bibliotheque.services.LivreService;
+import com.bibliotheque.utils.CompteurRequetes;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Vérification du routage primaire / réplique sur deux bases H2 en mémoire (mode MySQL) : le primaire
+// est migré par Flyway et rempli par GenerateurDonnees, la réplique en est une copie (SCRIPT / RUNSCRIPT)
+// dont le titre du livre 1 diffère ; le titre lu indique la base qui a servi la lecture.
+// La réplication est simulée en écrivant directement le battement sur la réplique, la mesure de retard
+// est déclenchée à la main (GardeReplique.mesurer).
+//
+//   mvn -Pbenchmark compile exec:exec@routage -Droutage.args="--taille=500"
+//
+// Code de sortie 1 si une lecture ou une écriture n'est pas servie par la base attendue.
+public class VerificationRoutage {
+
+    private static final String H2 = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String TITRE_REPLIQUE = "titre sur la réplique";
+    private static final String SQL_TITRE = "SELECT titre FROM livre WHERE livre_id = 1";
+    private static final String SQL_BATTEMENT = "UPDATE replique_battement SET horodatage = ? WHERE id = 1";
+
+    private static int erreurs;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Option attendue sous la forme --nom=valeur : " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int taille = Integer.parseInt(options.getOrDefault("taille", "500"));
+        long retardMaxMs = Long.parseLong(options.getOrDefault("retard-max-ms", "5000"));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BibliothequeApplication.class)
+                .profiles("benchmark")
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:primaire" + H2,
+                        "--bibliotheque.replique.actif=true",
+                        "--bibliotheque.replique.url=jdbc:h2:mem:replique" + H2,
+                        "--bibliotheque.replique.retard-max-ms=" + retardMaxMs,
+                        "--bibliotheque.replique.battement-ms=3600000");
+        try {
+            JdbcTemplate primaire = new JdbcTemplate(context.getBean("dataSourcePrimaire", DataSource.class));
+            JdbcTemplate replique = new JdbcTemplate(context.getBean("dataSourceReplique", DataSource.class));
+            JdbcTemplate routage = context.getBean(JdbcTemplate.class);
+            GardeReplique garde = context.getBean(GardeReplique.class);
+            LivreService livreService = context.getBean(LivreService.class);
+            LivreRepository livreRepository = context.getBean(LivreRepository.class);
+            PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+            TransactionTemplate ecriture = new TransactionTemplate(transactionManager);
+            TransactionTemplate lecture = new TransactionTemplate(transactionManager);
+            lecture.setReadOnly(true);
+            lecture.setName(VerificationRoutage.class.getName() + ".lecture");
+
+            String tablesHistorique = "SELECT COUNT(*) FROM information_schema.tables WHERE table_name = 'flyway_schema_history'";
+            verifier("migrations Flyway sur le primaire", 1L, primaire.queryForObject(tablesHistorique, Long.class));
+            verifier("aucune migration sur la réplique", 0L, replique.queryForObject(tablesHistorique, Long.class));
+
+            GenerateurDonnees.remplir(context, GenerateurDonnees.Volumes.pourTaille(taille), 42L);
+            Path copie = Files.createTempFile("replique", ".sql");
+            try {
+                primaire.execute("SCRIPT TO '" + copie + "'");
+                replique.execute("RUNSCRIPT FROM '" + copie + "'");
+            } finally {
+                Files.deleteIfExists(copie);
+            }
+            String titrePrimaire = primaire.queryForObject(SQL_TITRE, String.class);
+            replique.update("UPDATE livre SET titre = ? WHERE livre_id = 1", TITRE_REPLIQUE);
+            System.out.printf("Livre 1 : « %s » sur le primaire, « %s » sur la réplique%n", titrePrimaire, TITRE_REPLIQUE);
+
+            repliquer(replique, garde, 0);
+            verifier("réplique à jour utilisable", true, garde.isUtilisable());
+            verifier("service en lecture seule → réplique", TITRE_REPLIQUE, titre(livreService));
+            verifier("dépôt Spring Data hors transaction → primaire", titrePrimaire,
+                    livreRepository.findById(1L).map(Livre::getTitre).orElse(null));
+            verifier("service en lecture seule dans une transaction d'écriture → primaire", titrePrimaire,
+                    ecriture.execute(statut -> titre(livreService)));
+            try (CompteurRequetes.Contexte requetes = CompteurRequetes.ouvrir()) {
+                verifier("JdbcTemplate en transaction en lecture seule → réplique", TITRE_REPLIQUE,
+                        lecture.execute(statut -> routage.queryForObject(SQL_TITRE, String.class)));
+                verifier("requête comptée une seule fois", 1, requetes.getTotal());
+            }
+
+            livreService.updateLivre(1L, "titre modifié", null, null, null, null);
+            verifier("écriture → primaire", "titre modifié", primaire.queryForObject(SQL_TITRE, String.class));
+            verifier("écriture absente de la réplique", TITRE_REPLIQUE, replique.queryForObject(SQL_TITRE, String.class));
+
+            repliquer(replique, garde, retardMaxMs + 1000);
+            verifier("réplique en retard écartée", false, garde.isUtilisable());
+            verifier("service en lecture seule, réplique en retard → primaire", "titre modifié", titre(livreService));
+
+            repliquer(replique, garde, 0);
+            verifier("service en lecture seule, réplique rattrapée → réplique", TITRE_REPLIQUE, titre(livreService));
+
+            replique.execute("DROP TABLE replique_battement");
+            garde.mesurer();
+            verifier("battement illisible → primaire", "titre modifié", titre(livreService));
+        } finally {
+            context.close();
+        }
+        System.out.printf("%n%d vérification(s) en échec%n", erreurs);
+        System.exit(erreurs == 0 ? 0 : 1);
+    }
+
+    // Battement tel que répliqué avec le retard donné, puis mesure
+    private static void repliquer(JdbcTemplate replique, GardeReplique garde, long retardMs) {
+        replique.update(SQL_BATTEMENT, System.currentTimeMillis() - retardMs);
+        garde.mesurer();
+        System.out.printf("Retard mesuré : %d ms%n", garde.getRetardMs());
+    }
+
+    private static String titre(LivreService livreService) {
+        return livreService.getLivreById(1L).map(Livre::getTitre).orElse(null);
+    }
+
+    private static void verifier(String cas, Object attendu, Object obtenu) {
+        if (Objects.equals(attendu, obtenu)) {
+            System.out.printf("OK         %s : %s%n", cas, obtenu);
+        } else {
+            erreurs++;
+            System.out.printf("ÉCHEC      %s : %s, attendu %s%n", cas, obtenu, attendu);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.bibliotheque.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+// Caches des données de référence (paramètres, types d'adhérent, tarifs), sous forme de valeurs
+// détachées de toute session : entité sans association, identifiant ou projection.
+// Les services qui écrivent ces données vident le cache concerné après commit (CachesReference) ;
+// l'expiration ne sert qu'à rattraper les modifications faites directement en base.
+// Situations des comptes (SituationsComptes) : cache par profil, à taille et expiration propres.
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String SETTINGS = "settings";
+    public static final String ADHERANT_TYPES = "adherantTypes";
+    public static final String TARIFS = "tarifsInscription";
+    public static final String SITUATIONS_COMPTES = "situationsComptes";
+
+    public static final List<String> CACHES = List.of(SETTINGS, ADHERANT_TYPES, TARIFS);
+
+    @Bean
+    public CacheManager cacheManager(@Value("${bibliotheque.cache.expiration-minutes:60}") long expirationMinutes,
+                                     @Value("${bibliotheque.cache.taille-max:1000}") long tailleMax,
+                                     @Value("${bibliotheque.cache.situations.expiration-minutes:10}") long expirationSituations,
+                                     @Value("${bibliotheque.cache.situations.taille-max:20000}") long tailleMaxSituations) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(Duration.ofMinutes(expirationMinutes))
+                .recordStats());
+        cacheManager.setCacheNames(CACHES);
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(SITUATIONS_COMPTES, Caffeine.newBuilder()
+                .maximumSize(tailleMaxSituations)
+                .expireAfterWrite(Duration.ofMinutes(expirationSituations))
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
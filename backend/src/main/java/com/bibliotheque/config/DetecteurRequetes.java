@@ -0,0 +1,126 @@
+package com.bibliotheque.config;
+
+import com.bibliotheque.utils.CompteurRequetes;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+// Requêtes SQL par requête HTTP : signale les requêtes HTTP au-delà du seuil et les requêtes SQL
+// répétées à des identifiants près (chargements paresseux en boucle, N+1), ainsi que les requêtes lentes.
+// Les requêtes SQL sont vues au niveau de la DataSource (JPA et JdbcTemplate), voir DetectionRequetesConfig ;
+// le contexte CompteurRequetes ouvert ici couvre toute la requête, rendu de la réponse compris (open-in-view).
+@Component
+public class DetecteurRequetes extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(DetecteurRequetes.class);
+
+    static final String ENTETE_NOMBRE = "X-Requetes-Sql";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${bibliotheque.requetes.actif:true}")
+    private boolean actif;
+
+    @Value("${bibliotheque.requetes.seuil-par-requete:30}")
+    private int seuilParRequete;
+
+    @Value("${bibliotheque.requetes.seuil-repetitions:5}")
+    private int seuilRepetitions;
+
+    @Value("${bibliotheque.requetes.seuil-lente-ms:500}")
+    private long seuilLenteMs;
+
+    // Mode test : nombre de requêtes SQL renvoyé dans l'en-tête X-Requetes-Sql
+    @Value("${bibliotheque.requetes.mode-test:false}")
+    private boolean modeTest;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !actif;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try (CompteurRequetes.Contexte requetes = CompteurRequetes.ouvrir()) {
+            if (modeTest) {
+                // L'en-tête doit être posé avant l'écriture du corps : on compte au moment du commit de la réponse
+                response = new EnteteNombreRequetes(response, requetes);
+            }
+            chain.doFilter(request, response);
+            analyser(request, requetes);
+        }
+    }
+
+    void requeteLente(String sql, long dureeMs) {
+        if (actif && dureeMs >= seuilLenteMs) {
+            meterRegistry.counter("bibliotheque.requetes.sql.lentes").increment();
+            log.warn("Requête SQL lente ({} ms) : {}", dureeMs, sql.length() > 500 ? sql.substring(0, 500) + "…" : sql);
+        }
+    }
+
+    private void analyser(HttpServletRequest request, CompteurRequetes.Contexte requetes) {
+        Object motif = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = motif != null ? motif.toString() : "UNKNOWN";
+        meterRegistry.summary("bibliotheque.requetes.sql.par_requete", "method", request.getMethod(), "uri", uri)
+                .record(requetes.getTotal());
+
+        Map<String, Integer> repetitions = requetes.getRepetitions(seuilRepetitions);
+        if (!repetitions.isEmpty()) {
+            meterRegistry.counter("bibliotheque.requetes.sql.n_plus_un", "method", request.getMethod(), "uri", uri).increment();
+        }
+        if (requetes.getTotal() > seuilParRequete || !repetitions.isEmpty()) {
+            log.warn("{} {} : {} requêtes SQL en {} ms (seuil {}){}", request.getMethod(), request.getRequestURI(),
+                    requetes.getTotal(), requetes.getDureeTotaleMs(), seuilParRequete, requetes.resume(seuilRepetitions));
+        }
+    }
+
+    private static class EnteteNombreRequetes extends HttpServletResponseWrapper {
+        private final CompteurRequetes.Contexte requetes;
+
+        EnteteNombreRequetes(HttpServletResponse response, CompteurRequetes.Contexte requetes) {
+            super(response);
+            this.requetes = requetes;
+        }
+
+        private void poserEntete() {
+            if (!isCommitted()) {
+                setIntHeader(ENTETE_NOMBRE, requetes.getTotal());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            poserEntete();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            poserEntete();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            poserEntete();
+            super.flushBuffer();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.bibliotheque.config;
+
+import com.bibliotheque.utils.CompteurRequetes;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+// Enveloppe la DataSource pour que chaque requête SQL exécutée (JPA comme JdbcTemplate) soit comptée
+// dans les contextes CompteurRequetes du thread et passée à DetecteurRequetes.
+@Configuration
+public class DetectionRequetesConfig {
+
+    @Bean
+    public static EcouteurRequetes ecouteurRequetes(ObjectProvider<DetecteurRequetes> detecteur) {
+        return new EcouteurRequetes(detecteur);
+    }
+
+    @Bean
+    public static BeanPostProcessor dataSourceDetectionRequetes(EcouteurRequetes ecouteur) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Routage primaire / réplique non enveloppé : chaque requête est vue une fois, sur le pool qui l'exécute
+                if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource
+                        || bean instanceof DelegatingDataSource || bean instanceof AbstractRoutingDataSource) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create((DataSource) bean)
+                        .name(beanName)
+                        .listener(ecouteur)
+                        .build();
+            }
+        };
+    }
+
+    // Le détecteur (et son MeterRegistry) n'est résolu qu'une fois le contexte démarré :
+    // les requêtes de l'initialisation JPA ne doivent pas en déclencher la création
+    public static class EcouteurRequetes implements QueryExecutionListener, ApplicationListener<ContextRefreshedEvent> {
+
+        private final ObjectProvider<DetecteurRequetes> fournisseur;
+        private volatile DetecteurRequetes detecteur;
+
+        EcouteurRequetes(ObjectProvider<DetecteurRequetes> fournisseur) {
+            this.fournisseur = fournisseur;
+        }
+
+        @Override
+        public void onApplicationEvent(ContextRefreshedEvent event) {
+            if (detecteur == null) {
+                detecteur = fournisseur.getIfAvailable();
+            }
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            // Un lot compte pour une requête
+            String sql = queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery();
+            CompteurRequetes.enregistrer(sql, execInfo.getElapsedTime());
+            DetecteurRequetes courant = detecteur;
+            if (courant != null) {
+                courant.requeteLente(sql, execInfo.getElapsedTime());
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.bibliotheque.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+// Mode d'exécution des requêtes et des tâches : threads de plateforme par défaut, threads virtuels avec
+// le profil threads-virtuels. Spring Boot ignore spring.threads.virtual.enabled avant Java 21 ;
+// on le signale au démarrage plutôt que de laisser croire le mode actif.
+// Les sections critiques qui entourent un accès JDBC ou disque (recalculs, index) prennent un ReentrantLock
+// plutôt que synchronized : en Java 21, un thread virtuel bloqué dans un bloc synchronized immobilise son
+// thread porteur pendant toute l'attente.
+@Configuration
+public class ExecutionConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean threadsVirtuels;
+
+    @Value("${server.tomcat.threads.max:200}")
+    private int threadsTomcat;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connexions;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void signalerMode() {
+        if (threadsVirtuels && !JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            log.warn("Threads virtuels demandés mais la JVM est en Java {} : requêtes et tâches restent sur {} threads Tomcat",
+                    JavaVersion.getJavaVersion(), threadsTomcat);
+        } else if (threadsVirtuels) {
+            log.info("Requêtes HTTP et tâches planifiées sur threads virtuels, {} connexions JDBC au plus", connexions);
+        } else {
+            log.info("Requêtes HTTP sur {} threads Tomcat au plus, {} connexions JDBC", threadsTomcat, connexions);
+        }
+    }
+}
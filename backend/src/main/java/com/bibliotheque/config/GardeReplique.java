@@ -0,0 +1,76 @@
+package com.bibliotheque.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+// Retard de réplication mesuré par battement : le primaire horodate la ligne de replique_battement,
+// la réplique la relit telle que répliquée ; retard = maintenant - horodatage relu.
+// La réplique n'est utilisable que si le retard mesuré, augmenté de l'âge de la mesure, reste sous
+// retard-max-ms : sans mesure récente (réplique injoignable, ordonnanceur bloqué) les lectures restent sur le primaire.
+public class GardeReplique {
+
+    private static final Logger log = LoggerFactory.getLogger(GardeReplique.class);
+
+    private static final String SQL_BATTEMENT = "UPDATE replique_battement SET horodatage = ? WHERE id = 1";
+    private static final String SQL_HORODATAGE = "SELECT horodatage FROM replique_battement WHERE id = 1";
+
+    private final JdbcTemplate primaire;
+    private final JdbcTemplate replique;
+    private final long retardMaxMs;
+
+    private volatile long retardMs = Long.MAX_VALUE;
+    private volatile long mesureMs;
+    private volatile boolean utilisable;
+
+    public GardeReplique(DataSource primaire, DataSource replique, long retardMaxMs, MeterRegistry meterRegistry) {
+        this.primaire = new JdbcTemplate(primaire);
+        this.replique = new JdbcTemplate(replique);
+        this.retardMaxMs = retardMaxMs;
+        Gauge.builder("bibliotheque.replique.retard", this, g -> g.retardMs == Long.MAX_VALUE ? Double.NaN : g.retardMs)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${bibliotheque.replique.battement-ms:1000}")
+    public void mesurer() {
+        try {
+            primaire.update(SQL_BATTEMENT, System.currentTimeMillis());
+        } catch (DataAccessException e) {
+            log.warn("Réplique : battement non écrit sur le primaire : {}", e.getMessage());
+        }
+        try {
+            Long horodatage = replique.queryForObject(SQL_HORODATAGE, Long.class);
+            long maintenant = System.currentTimeMillis();
+            retardMs = Math.max(0, maintenant - horodatage);
+            mesureMs = maintenant;
+        } catch (DataAccessException e) {
+            retardMs = Long.MAX_VALUE;
+            log.warn("Réplique : battement illisible : {}", e.getMessage());
+        }
+        boolean etait = utilisable;
+        utilisable = retardMs <= retardMaxMs;
+        if (etait != utilisable) {
+            if (utilisable) {
+                log.info("Réplique : retard {} ms, lectures en lecture seule de nouveau sur la réplique", retardMs);
+            } else {
+                log.warn("Réplique : retard {} au-delà de {} ms, lectures en lecture seule sur le primaire",
+                        retardMs == Long.MAX_VALUE ? "inconnu" : retardMs + " ms", retardMaxMs);
+            }
+        }
+    }
+
+    public boolean isUtilisable() {
+        return utilisable && retardMs + (System.currentTimeMillis() - mesureMs) <= retardMaxMs;
+    }
+
+    public long getRetardMs() {
+        return retardMs;
+    }
+}
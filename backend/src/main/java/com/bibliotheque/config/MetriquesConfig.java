@@ -0,0 +1,39 @@
+package com.bibliotheque.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.HibernateQueryMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+// Métriques applicatives : @Timed sur les services et repositories JDBC, et un timer par requête
+// JPQL/HQL (tag query) à partir des statistiques Hibernate. Les timers HTTP, le pool de connexions,
+// les caches et les statistiques de session Hibernate sont fournis par l'actuator.
+@Configuration
+public class MetriquesConfig {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void lierMetriquesRequetes() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        if (sessionFactory.getStatistics().isStatisticsEnabled()) {
+            new HibernateQueryMetrics(sessionFactory, "entityManagerFactory", Tags.empty()).bindTo(meterRegistry);
+        }
+    }
+}
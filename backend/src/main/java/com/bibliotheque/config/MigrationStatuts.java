@@ -0,0 +1,187 @@
+package com.bibliotheque.config;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Version 2 du schéma : tables de statut 1:1 (pret_status, reservation_status, notification_status,
+// penalite_status, exemplaire_etat) remplacées par des colonnes indexées des tables parentes.
+// Une base créée par la version 1 a déjà les colonnes ; une base antérieure à ce changement, marquée
+// à la version 1 sans exécuter le script, reçoit d'abord les colonnes et index manquants.
+// Pour chaque ancienne table : recopie par tranches de clés, copie sans contraintes en
+// <table>_avant_migration (retour arrière, à supprimer à la main), suppression de l'ancienne table
+// puis vue de compatibilité du même nom pour les lectures SQL externes (rapports, exports).
+// Sans ancienne version de l'application qui écrirait encore dans les anciennes tables.
+@Component
+public class MigrationStatuts implements JavaMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationStatuts.class);
+
+    // Ancienne table, table parente, clé, colonnes recopiées (même nom des deux côtés) avec leur définition,
+    // index de la table parente (nom (colonnes)), filtre de la vue
+    record Migration(String table, String parent, String cle, List<String> colonnes, List<String> index, String filtreVue) {
+
+        List<String> nomsColonnes() {
+            return colonnes.stream().map(c -> c.substring(0, c.indexOf(' '))).toList();
+        }
+    }
+
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration("pret_status", "pret", "pret_id",
+                    List.of("en_retard BOOLEAN DEFAULT FALSE NOT NULL", "rendu BOOLEAN DEFAULT FALSE NOT NULL",
+                            "version BIGINT DEFAULT 0 NOT NULL"),
+                    List.of("idx_pret_rendu_fin (rendu, date_fin_pret)", "idx_pret_exemplaire_rendu (exemplaire_id, rendu)",
+                            "idx_pret_profil_rendu (profil_id, rendu)"),
+                    null),
+            new Migration("reservation_status", "reservation", "reservation_id",
+                    List.of("statut INT DEFAULT 0 NOT NULL"),
+                    List.of("idx_reservation_exemplaire_statut (exemplaire_id, statut)", "idx_reservation_statut (statut)"),
+                    null),
+            new Migration("notification_status", "notification", "notification_id",
+                    List.of("statut INT DEFAULT 0 NOT NULL"),
+                    List.of("idx_notification_profil_statut (profil_id, statut)"),
+                    null),
+            // Pénalités et exemplaires sans ligne de statut : colonnes laissées nulles, absents de la vue
+            new Migration("penalite_status", "penalite", "penalite_id",
+                    List.of("statut INT"),
+                    List.of("idx_penalite_profil_statut (profil_id, statut)"),
+                    "statut IS NOT NULL"),
+            new Migration("exemplaire_etat", "exemplaire", "exemplaire_id",
+                    List.of("etat INT", "date_acquisition DATE"),
+                    List.of("idx_exemplaire_livre_etat (livre_id, etat)"),
+                    "etat IS NOT NULL"));
+
+    @Value("${bibliotheque.migration-statuts.tranche:10000}")
+    private int tranche;
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("2");
+    }
+
+    @Override
+    public String getDescription() {
+        return "statuts en colonnes";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    // Hors transaction : chaque tranche est validée seule (le DDL MySQL valide de toute façon)
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        Map<String, String> types = typesTables(connection);
+        for (Migration migration : MIGRATIONS) {
+            completerParent(connection, jdbcTemplate, migration);
+            String type = types.get(migration.table());
+            if ("VIEW".equals(type)) {
+                continue;
+            }
+            if (type != null) {
+                recopier(jdbcTemplate, migration);
+                if (types.containsKey(migration.table() + "_avant_migration")) {
+                    throw new IllegalStateException("Migration des statuts : " + migration.table()
+                            + "_avant_migration existe déjà alors que " + migration.table() + " est encore une table");
+                }
+                jdbcTemplate.execute("CREATE TABLE " + migration.table() + "_avant_migration AS SELECT * FROM " + migration.table());
+                jdbcTemplate.execute("DROP TABLE " + migration.table());
+            }
+            jdbcTemplate.execute("CREATE VIEW " + migration.table() + " AS SELECT " + migration.cle() + " AS id, "
+                    + migration.cle() + ", " + String.join(", ", migration.nomsColonnes()) + " FROM " + migration.parent()
+                    + (migration.filtreVue() != null ? " WHERE " + migration.filtreVue() : ""));
+            log.info("Statuts : {} remplacée par une vue sur {}", migration.table(), migration.parent());
+        }
+    }
+
+    // Colonnes et index absents d'une base antérieure aux statuts en colonnes
+    private void completerParent(Connection connection, JdbcTemplate jdbcTemplate, Migration migration) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Set<String> colonnes = new HashSet<>();
+        try (ResultSet rs = metaData.getColumns(connection.getCatalog(), connection.getSchema(), migration.parent(), "%")) {
+            while (rs.next()) {
+                colonnes.add(rs.getString("COLUMN_NAME").toLowerCase());
+            }
+        }
+        Set<String> index = new HashSet<>();
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), migration.parent(), false, true)) {
+            while (rs.next()) {
+                if (rs.getString("INDEX_NAME") != null) {
+                    index.add(rs.getString("INDEX_NAME").toLowerCase());
+                }
+            }
+        }
+        for (int i = 0; i < migration.colonnes().size(); i++) {
+            if (!colonnes.contains(migration.nomsColonnes().get(i))) {
+                jdbcTemplate.execute("ALTER TABLE " + migration.parent() + " ADD COLUMN " + migration.colonnes().get(i));
+            }
+        }
+        for (String definition : migration.index()) {
+            if (!index.contains(definition.substring(0, definition.indexOf(' ')))) {
+                jdbcTemplate.execute("CREATE INDEX " + definition.replaceFirst(" ", " ON " + migration.parent() + " "));
+            }
+        }
+    }
+
+    // Recopie par tranches de clés : chaque tranche est une instruction courte, validée seule
+    private void recopier(JdbcTemplate jdbcTemplate, Migration migration) {
+        long debut = System.nanoTime();
+        Map<String, Object> bornes = jdbcTemplate.queryForMap(
+                "SELECT MIN(" + migration.cle() + ") AS mini, MAX(" + migration.cle() + ") AS maxi FROM " + migration.parent());
+        if (bornes.get("mini") == null) {
+            return;
+        }
+        long mini = ((Number) bornes.get("mini")).longValue();
+        long maxi = ((Number) bornes.get("maxi")).longValue();
+        String correspondance = "FROM " + migration.table() + " a WHERE a." + migration.cle() + " = "
+                + migration.parent() + "." + migration.cle();
+        String sql = "UPDATE " + migration.parent() + " SET "
+                + migration.nomsColonnes().stream()
+                        .map(c -> c + " = (SELECT a." + c + " " + correspondance + " ORDER BY a.id DESC LIMIT 1)")
+                        .collect(Collectors.joining(", "))
+                + " WHERE " + migration.cle() + " BETWEEN ? AND ? AND EXISTS (SELECT 1 " + correspondance + ")";
+        long lignes = 0;
+        for (long borne = mini; borne <= maxi; borne += tranche) {
+            lignes += jdbcTemplate.update(sql, borne, borne + tranche - 1);
+        }
+        log.info("Statuts : {} ligne(s) de {} recopiée(s) dans {} en {} ms", lignes, migration.table(),
+                migration.parent(), (System.nanoTime() - debut) / 1_000_000);
+    }
+
+    // Tables et vues du schéma courant : nom en minuscules → "VIEW" ou type de table
+    private Map<String, String> typesTables(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Map<String, String> types = new HashMap<>();
+        try (ResultSet rs = metaData.getTables(connection.getCatalog(), connection.getSchema(), "%", null)) {
+            while (rs.next()) {
+                types.put(rs.getString("TABLE_NAME").toLowerCase(), rs.getString("TABLE_TYPE"));
+            }
+        }
+        return types;
+    }
+}
@@ -0,0 +1,80 @@
+package com.bibliotheque.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+// Lectures sur réplique (bibliotheque.replique.actif) : deux pools, primaire (spring.datasource) et
+// réplique (bibliotheque.replique), derrière une DataSource de routage utilisée par JPA et JdbcTemplate.
+// Les migrations Flyway ne passent que par le primaire, la réplique les reçoit par réplication.
+@Configuration
+@ConditionalOnProperty(name = "bibliotheque.replique.actif", havingValue = "true")
+public class RepliqueConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimaire(DataSourceProperties properties) {
+        HikariDataSource primaire = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primaire.setPoolName("primaire");
+        return primaire;
+    }
+
+    @Bean
+    @ConfigurationProperties("bibliotheque.replique.hikari")
+    public HikariDataSource dataSourceReplique(DataSourceProperties properties,
+                                               @Value("${bibliotheque.replique.url}") String url,
+                                               @Value("${bibliotheque.replique.username:${spring.datasource.username:}}") String username,
+                                               @Value("${bibliotheque.replique.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource replique = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        replique.setPoolName("replique");
+        // Toute écriture envoyée par erreur à la réplique est refusée par MySQL (transaction en lecture seule)
+        replique.setReadOnly(true);
+        return replique;
+    }
+
+    @Bean
+    public GardeReplique gardeReplique(@Qualifier("dataSourcePrimaire") DataSource primaire,
+                                       @Qualifier("dataSourceReplique") DataSource replique,
+                                       @Value("${bibliotheque.replique.retard-max-ms:5000}") long retardMaxMs,
+                                       MeterRegistry meterRegistry) {
+        return new GardeReplique(primaire, replique, retardMaxMs, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("dataSourcePrimaire") DataSource primaire,
+                                 @Qualifier("dataSourceReplique") DataSource replique,
+                                 GardeReplique gardeReplique, MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(new RoutageDataSource(primaire, replique, gardeReplique, meterRegistry));
+    }
+
+    // Connexion rendue au pool à la fin de chaque transaction : avec open-in-view, la session Hibernate
+    // garderait sinon la connexion de la première transaction (réplique) pour les suivantes de la requête HTTP
+    @Bean
+    public HibernatePropertiesCustomizer liberationConnexionApresTransaction() {
+        return proprietes -> proprietes.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,61 @@
+package com.bibliotheque.config;
+
+import com.bibliotheque.BibliothequeApplication;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Transactions en lecture seule ouvertes par l'application (@Transactional(readOnly = true) des services
+// et contrôleurs) → réplique, tant que GardeReplique la juge à jour ; tout le reste → primaire.
+// Les lectures des dépôts Spring Data hors transaction sont aussi en lecture seule, mais ouvertes par
+// SimpleJpaRepository : elles restent sur le primaire, les services qui lisent puis écrivent sans
+// transaction (prolongation, mise à jour d'un livre…) relisent ainsi leurs propres écritures.
+// La connexion est choisie à la première requête (LazyConnectionDataSourceProxy, voir RepliqueConfig),
+// une fois la transaction et son attribut readOnly connus.
+public class RoutageDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMAIRE = "primaire";
+    static final String REPLIQUE = "replique";
+
+    private static final String PREFIXE_APPLICATION = BibliothequeApplication.class.getPackageName() + ".";
+
+    private final GardeReplique garde;
+    private final Counter lecturesReplique;
+    private final Counter lecturesReportees;
+
+    public RoutageDataSource(DataSource primaire, DataSource replique, GardeReplique garde, MeterRegistry meterRegistry) {
+        this.garde = garde;
+        this.lecturesReplique = meterRegistry.counter("bibliotheque.replique.connexions", "route", REPLIQUE);
+        this.lecturesReportees = meterRegistry.counter("bibliotheque.replique.connexions", "route", "primaire_retard");
+        setTargetDataSources(Map.of(PRIMAIRE, primaire, REPLIQUE, replique));
+        setDefaultTargetDataSource(primaire);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!lectureApplication()) {
+            return PRIMAIRE;
+        }
+        if (!garde.isUtilisable()) {
+            lecturesReportees.increment();
+            return PRIMAIRE;
+        }
+        lecturesReplique.increment();
+        return REPLIQUE;
+    }
+
+    static boolean lectureApplication() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        String nom = TransactionSynchronizationManager.getCurrentTransactionName();
+        return nom != null && nom.startsWith(PREFIXE_APPLICATION);
+    }
+}
@@ -15,9 +15,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.bibliotheque.dto.TarifResume;
 import com.bibliotheque.entities.Inscription;
 import com.bibliotheque.entities.InscriptionStatus;
-import com.bibliotheque.entities.TarifInscription;
 import com.bibliotheque.services.InscriptionService;
 
 @RestController
@@ -75,7 +75,7 @@ public class InscriptionController {
 
     @GetMapping("/tarifs")
     public ResponseEntity<List<Map<String, Object>>> getAllTarifs() {
-        List<TarifInscription> tarifs = inscriptionService.getAllTarifs();
+        List<TarifResume> tarifs = inscriptionService.getAllTarifs();
         System.out.println("Nombre de tarifs trouvés: " + tarifs.size());
         
         List<Map<String, Object>> response = tarifs.stream().map(tarif -> {
@@ -91,8 +91,8 @@ public class InscriptionController {
     }
 
     @GetMapping("/tarifs/{id}")
-    public ResponseEntity<TarifInscription> getTarif(@PathVariable Long id) {
-        TarifInscription tarif = inscriptionService.getTarif(id);
+    public ResponseEntity<TarifResume> getTarif(@PathVariable Long id) {
+        TarifResume tarif = inscriptionService.getTarif(id);
         if (tarif != null) return ResponseEntity.ok(tarif);
         return ResponseEntity.notFound().build();
     }
@@ -112,7 +112,7 @@ public class InscriptionController {
     public ResponseEntity<Map<String, Object>> debugInscriptions() {
         Map<String, Object> debug = new HashMap<>();
         List<Inscription> inscriptions = inscriptionService.getAllInscriptions();
-        List<TarifInscription> tarifs = inscriptionService.getAllTarifs();
+        List<TarifResume> tarifs = inscriptionService.getAllTarifs();
         
         debug.put("nombreInscriptions", inscriptions.size());
         debug.put("nombreTarifs", tarifs.size());
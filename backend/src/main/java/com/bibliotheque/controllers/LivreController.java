@@ -46,6 +46,20 @@ public class LivreController {
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping("/search/reindex")
+    public ResponseEntity<Map<String, Object>> reindexerCatalogue() {
+        try {
+            int livresIndexes = livreService.reindexerCatalogue();
+            Map<String, Object> response = new HashMap<>();
+            response.put("livresIndexes", livresIndexes);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
     @GetMapping("/disponibles")
     public ResponseEntity<List<Map<String, Object>>> getLivresDisponibles() {
         List<Livre> livres = livreService.getLivresDisponibles();
@@ -127,6 +141,19 @@ public class LivreController {
         }
     }
     
+    @PutMapping("/exemplaires/{exemplaireId}/etat")
+    public ResponseEntity<Map<String, Object>> changerEtatExemplaire(@PathVariable Long exemplaireId, @RequestBody Map<String, Object> body) {
+        try {
+            Integer etat = Integer.valueOf(body.get("etat").toString());
+            Exemplaire exemplaire = livreService.changerEtatExemplaire(exemplaireId, etat);
+            return ResponseEntity.ok(convertExemplaireToResponse(exemplaire));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
     private Map<String, Object> convertToResponse(Livre livre) {
         Map<String, Object> response = new HashMap<>();
         response.put("id", livre.getLivreId());
@@ -182,10 +209,8 @@ public class LivreController {
             response.put("dateAcquisition", exemplaire.getExemplaireEtat().getDateAcquisition().toString());
         }
         
-        // Vérifier si l'exemplaire est disponible (pas de prêt actif)
-        boolean disponible = exemplaire.getPrets() == null || 
-                exemplaire.getPrets().stream()
-                        .noneMatch(pret -> pret.getPretStatus() != null && !pret.getPretStatus().getRendu());
+        // Disponibilité lue dans l'index en mémoire, sans charger l'historique des prêts
+        boolean disponible = livreService.isExemplaireDisponible(exemplaire.getLivre().getLivreId(), exemplaire.getExemplaireId());
         response.put("disponible", disponible);
         
         return response;
@@ -1,6 +1,7 @@
 package com.bibliotheque.controllers;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,12 +12,19 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.bibliotheque.dto.CumulPenalitesRapport;
 import com.bibliotheque.entities.Penalite;
+import com.bibliotheque.repository.PenaliteCumulRepository;
 import com.bibliotheque.repository.PenaliteRepository;
+import com.bibliotheque.services.CompteursTableauDeBord;
+import com.bibliotheque.services.CumulPenalitesService;
+import com.bibliotheque.services.SituationsComptes;
 
 @RestController
 @RequestMapping("/penalites")
@@ -26,6 +34,18 @@ public class PenaliteController {
     @Autowired
     private PenaliteRepository penaliteRepository;
     
+    @Autowired
+    private PenaliteCumulRepository penaliteCumulRepository;
+    
+    @Autowired
+    private CumulPenalitesService cumulPenalitesService;
+    
+    @Autowired
+    private CompteursTableauDeBord compteursTableauDeBord;
+    
+    @Autowired
+    private SituationsComptes situationsComptes;
+    
     @GetMapping
     public ResponseEntity<List<Map<String, Object>>> getAllPenalites() {
         try {
@@ -128,6 +148,40 @@ public class PenaliteController {
         return ResponseEntity.ok(total != null ? total : BigDecimal.ZERO);
     }
     
+    // Pénalités en cours des prêts en retard non encore rendus (montants du dernier cumul)
+    @GetMapping("/en-cours")
+    public ResponseEntity<?> getPenalitesEnCours(@RequestParam(required = false) Long profilId,
+                                                 @RequestParam(defaultValue = "100") int limite) {
+        try {
+            return ResponseEntity.ok(penaliteCumulRepository.findEnCours(profilId, limite));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @PostMapping("/cumul/traitement")
+    public ResponseEntity<?> lancerCumul(@RequestParam(required = false) String date) {
+        try {
+            LocalDate jour = date != null ? LocalDate.parse(date) : LocalDate.now();
+            return ResponseEntity.ok(cumulPenalitesService.executer(jour));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/cumul/traitement")
+    public ResponseEntity<?> getDernierCumul() {
+        CumulPenalitesRapport rapport = cumulPenalitesService.getDernierRapport();
+        if (rapport == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(rapport);
+    }
+    
     @PutMapping("/{id}/payer")
     public ResponseEntity<?> marquerPenalitePayee(@PathVariable Long id) {
         try {
@@ -150,6 +204,8 @@ public class PenaliteController {
             
             penalite.getPenaliteStatus().setStatut(1); // 1 = Payée
             penaliteRepository.save(penalite);
+            situationsComptes.invalider(penalite.getProfil().getProfilId());
+            compteursTableauDeBord.penaliteSoldee(penalite.getMontant());
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -186,6 +242,8 @@ public class PenaliteController {
             
             penalite.getPenaliteStatus().setStatut(2); // 2 = Annulée
             penaliteRepository.save(penalite);
+            situationsComptes.invalider(penalite.getProfil().getProfilId());
+            compteursTableauDeBord.penaliteSoldee(penalite.getMontant());
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -1,13 +1,21 @@
 package com.bibliotheque.controllers;
 
+import com.bibliotheque.dto.PretResume;
+import com.bibliotheque.dto.RetardBatchRapport;
 import com.bibliotheque.entities.Pret;
 import com.bibliotheque.entities.Penalite;
+import com.bibliotheque.services.ExportPretsService;
 import com.bibliotheque.services.PretService;
+import com.bibliotheque.services.RetardBatchService;
 import com.bibliotheque.repository.PenaliteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
@@ -24,11 +32,99 @@ public class PretController {
     
     @Autowired
     private PenaliteRepository penaliteRepository;
+    
+    @Autowired
+    private RetardBatchService retardBatchService;
+    
+    @Autowired
+    private ExportPretsService exportPretsService;
+
+    private static final int TAILLE_PAGE_MAX = 200;
 
     @GetMapping
-    public ResponseEntity<?> getAllPrets() {
-        List<Pret> prets = pretService.getAllPrets();
-        List<Map<String, Object>> response = prets.stream().map(pret -> {
+    public ResponseEntity<?> getAllPrets(@RequestParam(required = false) Long profilId,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateDebut,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin,
+                                         @RequestParam(required = false) Boolean rendu,
+                                         @RequestParam(required = false) Boolean enRetard,
+                                         @RequestParam(required = false) String curseur,
+                                         @RequestParam(defaultValue = "50") int taille) {
+        try {
+            // Curseur opaque "datePret_pretId" renvoyé par la page précédente
+            LocalDate curseurDate = null;
+            Long curseurId = null;
+            if (curseur != null && !curseur.isBlank()) {
+                String[] parts = curseur.split("_");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Curseur invalide");
+                }
+                curseurDate = LocalDate.parse(parts[0]);
+                curseurId = Long.valueOf(parts[1]);
+            }
+            int tailleEffective = Math.max(1, Math.min(taille, TAILLE_PAGE_MAX));
+
+            // Une ligne de plus que demandé pour savoir s'il existe une page suivante
+            List<PretResume> prets = pretService.rechercherPrets(profilId, dateDebut, dateFin, rendu, enRetard,
+                    curseurDate, curseurId, tailleEffective + 1);
+            boolean hasMore = prets.size() > tailleEffective;
+            if (hasMore) {
+                prets = prets.subList(0, tailleEffective);
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("items", prets.stream().map(this::convertResumeToResponse).collect(Collectors.toList()));
+            response.put("hasMore", hasMore);
+            if (hasMore) {
+                PretResume dernier = prets.get(prets.size() - 1);
+                response.put("nextCursor", dernier.getDatePret() + "_" + dernier.getPretId());
+            } else {
+                response.put("nextCursor", null);
+            }
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // Export de l'historique complet, écrit au fil de la lecture (NDJSON ou CSV), mêmes filtres que GET /prets
+    @GetMapping("/export")
+    public ResponseEntity<?> exporterPrets(@RequestParam(defaultValue = ExportPretsService.NDJSON) String format,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateDebut,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin,
+                                           @RequestParam(required = false) Boolean rendu,
+                                           @RequestParam(required = false) Boolean enRetard,
+                                           HttpServletResponse response) throws IOException {
+        if (!ExportPretsService.NDJSON.equals(format) && !ExportPretsService.CSV.equals(format)) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Format d'export inconnu : " + format + " (ndjson ou csv)");
+            return ResponseEntity.badRequest().body(error);
+        }
+        if (dateDebut != null && dateFin != null && dateFin.isBefore(dateDebut)) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "La date de fin précède la date de début");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        String fichier = "prets" + (dateDebut != null ? "_" + dateDebut : "") + (dateFin != null ? "_" + dateFin : "") + "." + format;
+        response.setContentType(ExportPretsService.CSV.equals(format) ? "text/csv;charset=UTF-8" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fichier + "\"");
+        exportPretsService.exporter(format, dateDebut, dateFin, rendu, enRetard, response.getOutputStream());
+        // Réponse déjà écrite
+        return null;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createPret(@RequestBody Map<String, Object> pretData) {
+        try {
+            Long exemplaireId = Long.valueOf(pretData.get("exemplaireId").toString());
+            Long profilId = Long.valueOf(pretData.get("profilId").toString());
+            Long bibliothequaireId = Long.valueOf(pretData.get("bibliothequaireId").toString());
+            Integer typePret = pretData.get("typePret") != null ? Integer.valueOf(pretData.get("typePret").toString()) : 0;
+            Integer dureePret = pretData.get("dureePret") != null ? Integer.valueOf(pretData.get("dureePret").toString()) : 14;
+
+            Pret pret = pretService.createPret(exemplaireId, profilId, bibliothequaireId, typePret, dureePret);
             Map<String, Object> map = new HashMap<>();
             map.put("id", pret.getPretId());
             map.put("datePret", pret.getDatePret().toString());
@@ -47,21 +143,70 @@ public class PretController {
             exemplaireMap.put("id", pret.getExemplaire().getExemplaireId());
             exemplaireMap.put("numExemplaire", pret.getExemplaire().getNumExemplaire());
             map.put("exemplaire", exemplaireMap);
-            return map;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(response);
+            return ResponseEntity.ok(map);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
     }
 
-    @PostMapping
-    public ResponseEntity<?> createPret(@RequestBody Map<String, Object> pretData) {
+    // Prêt de plusieurs exemplaires au même profil (ex. une classe) : un résultat par exemplaire
+    @PostMapping("/lot")
+    public ResponseEntity<?> createPretsEnLot(@RequestBody Map<String, Object> lotData) {
         try {
-            Long exemplaireId = Long.valueOf(pretData.get("exemplaireId").toString());
-            Long profilId = Long.valueOf(pretData.get("profilId").toString());
-            Long bibliothequaireId = Long.valueOf(pretData.get("bibliothequaireId").toString());
-            Integer typePret = pretData.get("typePret") != null ? Integer.valueOf(pretData.get("typePret").toString()) : 0;
-            Integer dureePret = pretData.get("dureePret") != null ? Integer.valueOf(pretData.get("dureePret").toString()) : 14;
+            List<Long> exemplaireIds = identifiants(lotData.get("exemplaireIds"));
+            Long profilId = Long.valueOf(lotData.get("profilId").toString());
+            Long bibliothequaireId = Long.valueOf(lotData.get("bibliothequaireId").toString());
+            Integer typePret = lotData.get("typePret") != null ? Integer.valueOf(lotData.get("typePret").toString()) : 0;
+            Integer dureePret = lotData.get("dureePret") != null ? Integer.valueOf(lotData.get("dureePret").toString()) : 14;
 
-            Pret pret = pretService.createPret(exemplaireId, profilId, bibliothequaireId, typePret, dureePret);
+            return ResponseEntity.ok(resultatsLot(
+                    pretService.creerPretsEnLot(exemplaireIds, profilId, bibliothequaireId, typePret, dureePret)));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // Retour de plusieurs prêts à la même date : un résultat par prêt
+    @PutMapping("/retour/lot")
+    public ResponseEntity<?> retournerPretsEnLot(@RequestBody Map<String, Object> body) {
+        try {
+            List<Long> pretIds = identifiants(body.get("pretIds"));
+            LocalDate dateRendu = body.get("dateRendu") != null ? LocalDate.parse(body.get("dateRendu").toString()) : LocalDate.now();
+
+            return ResponseEntity.ok(resultatsLot(pretService.retournerPretsEnLot(pretIds, dateRendu)));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    private static List<Long> identifiants(Object valeur) {
+        if (!(valeur instanceof List<?> liste)) {
+            throw new IllegalArgumentException("Liste d'identifiants attendue");
+        }
+        return liste.stream().map(id -> Long.valueOf(id.toString())).collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> resultatsLot(List<Map<String, Object>> resultats) {
+        long reussis = resultats.stream().filter(r -> Boolean.TRUE.equals(r.get("succes"))).count();
+        Map<String, Object> response = new HashMap<>();
+        response.put("resultats", resultats);
+        response.put("reussis", reussis);
+        response.put("echecs", resultats.size() - reussis);
+        return response;
+    }
+
+    @PutMapping("/{id}/retour")
+    public ResponseEntity<?> retournerPret(@PathVariable Long id, @RequestBody Map<String, String> body) {
+        try {
+            String dateRenduStr = body.get("dateRendu");
+            LocalDate dateRendu = LocalDate.parse(dateRenduStr);
+            Pret pret = pretService.retournerPret(id, dateRendu);
             Map<String, Object> map = new HashMap<>();
             map.put("id", pret.getPretId());
             map.put("datePret", pret.getDatePret().toString());
@@ -88,32 +233,6 @@ public class PretController {
         }
     }
 
-    @PutMapping("/{id}/retour")
-    public ResponseEntity<?> retournerPret(@PathVariable Long id, @RequestBody Map<String, String> body) {
-        String dateRenduStr = body.get("dateRendu");
-        LocalDate dateRendu = LocalDate.parse(dateRenduStr);
-        Pret pret = pretService.retournerPret(id, dateRendu);
-        Map<String, Object> map = new HashMap<>();
-        map.put("id", pret.getPretId());
-        map.put("datePret", pret.getDatePret().toString());
-        map.put("dateFinPret", pret.getDateFinPret().toString());
-        map.put("dateRendu", pret.getDateRendu() != null ? pret.getDateRendu().toString() : null);
-        map.put("rendu", pret.getDateRendu() != null);
-        map.put("enRetard", pret.getPretStatus() != null && pret.getPretStatus().getEnRetard());
-        map.put("type", pret.getPretType() != null && pret.getPretType().getType() == 1 ? "sur_place" : "domicile");
-        Map<String, Object> profilMap = new HashMap<>();
-        profilMap.put("id", pret.getProfil().getProfilId());
-        profilMap.put("nom", pret.getProfil().getNom());
-        profilMap.put("prenom", pret.getProfil().getPrenom());
-        profilMap.put("email", pret.getProfil().getEmail());
-        map.put("profil", profilMap);
-        Map<String, Object> exemplaireMap = new HashMap<>();
-        exemplaireMap.put("id", pret.getExemplaire().getExemplaireId());
-        exemplaireMap.put("numExemplaire", pret.getExemplaire().getNumExemplaire());
-        map.put("exemplaire", exemplaireMap);
-        return ResponseEntity.ok(map);
-    }
-
     @GetMapping("/actifs")
     public ResponseEntity<?> getPretsActifs() {
         List<Pret> prets = pretService.getPretsActifs();
@@ -168,6 +287,26 @@ public class PretController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/retards/traitement")
+    public ResponseEntity<?> lancerTraitementRetards() {
+        try {
+            return ResponseEntity.ok(retardBatchService.executer(LocalDate.now()));
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/retards/traitement")
+    public ResponseEntity<?> getDernierTraitementRetards() {
+        RetardBatchRapport rapport = retardBatchService.getDernierRapport();
+        if (rapport == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(rapport);
+    }
+
     @GetMapping("/verifier-penalites/{profilId}")
     public ResponseEntity<?> verifierPenalitesProfil(@PathVariable Long profilId) {
         try {
@@ -258,4 +397,26 @@ public class PretController {
             return ResponseEntity.badRequest().body(error);
         }
     }
+
+    private Map<String, Object> convertResumeToResponse(PretResume pret) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", pret.getPretId());
+        map.put("datePret", pret.getDatePret().toString());
+        map.put("dateFinPret", pret.getDateFinPret().toString());
+        map.put("dateRendu", pret.getDateRendu() != null ? pret.getDateRendu().toString() : null);
+        map.put("rendu", pret.getDateRendu() != null);
+        map.put("enRetard", Boolean.TRUE.equals(pret.getEnRetard()));
+        map.put("type", pret.getTypePret() != null && pret.getTypePret() == 1 ? "sur_place" : "domicile");
+        Map<String, Object> profilMap = new HashMap<>();
+        profilMap.put("id", pret.getProfilId());
+        profilMap.put("nom", pret.getProfilNom());
+        profilMap.put("prenom", pret.getProfilPrenom());
+        profilMap.put("email", pret.getProfilEmail());
+        map.put("profil", profilMap);
+        Map<String, Object> exemplaireMap = new HashMap<>();
+        exemplaireMap.put("id", pret.getExemplaireId());
+        exemplaireMap.put("numExemplaire", pret.getNumExemplaire());
+        map.put("exemplaire", exemplaireMap);
+        return map;
+    }
 } 
\ No newline at end of file
@@ -1,10 +1,13 @@
 package com.bibliotheque.controllers;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -16,9 +19,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.bibliotheque.entities.Notification;
 import com.bibliotheque.entities.Profil;
+import com.bibliotheque.services.CompteurNonLues;
 import com.bibliotheque.services.NotificationService;
 import com.bibliotheque.services.PretService;
 import com.bibliotheque.services.ProfilService;
@@ -37,6 +42,9 @@ public class ProfilController {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private CompteurNonLues compteurNonLues;
+    
     @GetMapping
     public ResponseEntity<List<Map<String, Object>>> getAllProfils() {
         List<Profil> profils = profilService.getAllProfils();
@@ -141,6 +149,20 @@ public class ProfilController {
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping("/notifications/profil/{profilId}/non-lues")
+    public ResponseEntity<Map<String, Object>> countNotificationsNonLues(@PathVariable Long profilId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("profilId", profilId);
+        response.put("nonLues", notificationService.countNotificationsNonLues(profilId));
+        return ResponseEntity.ok(response);
+    }
+    
+    // Événements "non-lues" {profilId, nonLues} à chaque changement, à la place d'interrogations répétées
+    @GetMapping(value = "/notifications/profil/{profilId}/non-lues/flux", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter fluxNotificationsNonLues(@PathVariable Long profilId) {
+        return compteurNonLues.abonner(profilId);
+    }
+    
     @PutMapping("/notifications/{notificationId}/lue")
     public ResponseEntity<?> marquerNotificationLue(@PathVariable Long notificationId) {
         try {
@@ -160,10 +182,46 @@ public class ProfilController {
     @PutMapping("/notifications/profil/{profilId}/toutes-lues")
     public ResponseEntity<?> marquerToutesNotificationsLues(@PathVariable Long profilId) {
         try {
-            notificationService.marquerToutesCommeLues(profilId);
+            int modifiees = notificationService.marquerToutesCommeLues(profilId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Toutes les notifications ont été marquées comme lues");
+            response.put("modifiees", modifiees);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    // Corps : {"statut": 0|1, "ids": [...], "type": 0..3, "avant": "2026-01-31" ou "2026-01-31T12:00"} ;
+    // ids, type et avant sont facultatifs et se combinent
+    @PutMapping("/notifications/profil/{profilId}/statut")
+    public ResponseEntity<?> changerStatutNotifications(@PathVariable Long profilId, @RequestBody Map<String, Object> body) {
+        try {
+            if (body.get("statut") == null) {
+                throw new IllegalArgumentException("Statut attendu (0 : non lu, 1 : lu)");
+            }
+            int statut = Integer.parseInt(body.get("statut").toString());
+            List<Long> ids = null;
+            if (body.get("ids") != null) {
+                if (!(body.get("ids") instanceof List<?> liste)) {
+                    throw new IllegalArgumentException("Liste d'identifiants attendue");
+                }
+                ids = liste.stream().map(id -> Long.valueOf(id.toString())).toList();
+            }
+            Integer type = body.get("type") != null ? Integer.valueOf(body.get("type").toString()) : null;
+            LocalDateTime avant = null;
+            if (body.get("avant") != null) {
+                String date = body.get("avant").toString();
+                avant = date.contains("T") ? LocalDateTime.parse(date) : LocalDate.parse(date).atStartOfDay();
+            }
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("modifiees", notificationService.changerStatut(profilId, statut, ids, type, avant));
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
@@ -62,7 +62,10 @@ public class ReservationController {
             Long profilId = Long.valueOf(reservationData.get("profilId").toString());
             
             Reservation reservation = reservationService.createReservation(livreId, profilId);
-            return ResponseEntity.ok(convertToResponse(reservation));
+            Map<String, Object> response = convertToResponse(reservation);
+            // 0 : un exemplaire est retenu ; sinon rang dans la file d'attente du livre
+            response.put("positionFile", reservationService.getPositionDansFile(reservation));
+            return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("message", e.getMessage()); // <-- clé harmonisée
@@ -2,9 +2,18 @@ package com.bibliotheque.controllers;
 
 import com.bibliotheque.entities.Settings;
 import com.bibliotheque.services.SettingsService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/settings")
 @CrossOrigin(origins = "http://localhost:5173")
@@ -12,6 +21,9 @@ public class SettingsController {
     @Autowired
     private SettingsService settingsService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     @GetMapping
     public Settings getSettings() {
         return settingsService.getCurrentSettings();
@@ -21,4 +33,36 @@ public class SettingsController {
     public Settings saveSettings(@RequestBody Settings settings) {
         return settingsService.saveSettings(settings);
     }
-} 
\ No newline at end of file
+
+    // Succès / échecs des caches de référence depuis le démarrage
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getStatistiquesCache() {
+        Map<String, Object> caches = new LinkedHashMap<>();
+        for (String nom : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(nom);
+            if (cache instanceof CaffeineCache caffeineCache) {
+                CacheStats stats = caffeineCache.getNativeCache().stats();
+                Map<String, Object> cacheMap = new HashMap<>();
+                cacheMap.put("hits", stats.hitCount());
+                cacheMap.put("misses", stats.missCount());
+                cacheMap.put("hitRate", stats.hitRate());
+                cacheMap.put("evictions", stats.evictionCount());
+                cacheMap.put("size", caffeineCache.getNativeCache().estimatedSize());
+                caches.put(nom, cacheMap);
+            }
+        }
+        return ResponseEntity.ok(caches);
+    }
+
+    // Après une modification faite directement en base
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> viderCaches() {
+        for (String nom : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(nom);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        return ResponseEntity.noContent().build();
+    }
+} 
@@ -1,16 +1,15 @@
 package com.bibliotheque.controllers;
 
-import com.bibliotheque.repository.*;
+import com.bibliotheque.repository.StatJournaliereRepository;
+import com.bibliotheque.services.CompteursTableauDeBord;
+import com.bibliotheque.services.StatistiquesService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.Locale;
 
 @RestController
 @RequestMapping("/stats")
@@ -18,53 +17,28 @@ import java.util.Locale;
 public class StatsController {
 
     @Autowired
-    private LivreRepository livreRepository;
+    private CompteursTableauDeBord compteursTableauDeBord;
 
     @Autowired
-    private ProfilRepository profilRepository;
+    private StatistiquesService statistiquesService;
 
-    @Autowired
-    private PretRepository pretRepository;
-
-    @Autowired
-    private ReservationRepository reservationRepository;
-
-    @Autowired
-    private PenaliteRepository penaliteRepository;
-
-    @Autowired
-    private InscriptionRepository inscriptionRepository;
+    private static final int TOP_LIVRES = 5;
 
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, Object>> getStats() {
         try {
-            Map<String, Object> stats = new HashMap<>();
-            
-            // Total des livres
-            long totalBooks = livreRepository.count();
-            stats.put("totalBooks", totalBooks);
-            
-            // Total des utilisateurs avec inscription active
-            long totalUsers = inscriptionRepository.countUtilisateursAvecInscriptionActive(LocalDate.now());
-            stats.put("totalUsers", totalUsers);
-            
-            // Prêts actifs (non rendus)
-            long activeLoans = pretRepository.countByDateRenduIsNull();
-            stats.put("activeLoans", activeLoans);
-            
-            // Réservations en attente
-            long pendingReservations = reservationRepository.countReservationsEnAttente();
-            stats.put("pendingReservations", pendingReservations);
-            
-            // Prêts en retard
-            long overdueLoans = pretRepository.countByDateFinPretBeforeAndDateRenduIsNull(LocalDate.now());
-            stats.put("overdueLoans", overdueLoans);
-            
-            // Total des pénalités actives (montant en euros)
-            BigDecimal totalPenalties = penaliteRepository.getTotalPenalitesActives();
-            stats.put("totalPenalties", totalPenalties != null ? totalPenalties.doubleValue() : 0.0);
-            
-            return ResponseEntity.ok(stats);
+            // Compteurs tenus en mémoire, sans requête sur les tables
+            return ResponseEntity.ok(compteursTableauDeBord.getCompteurs());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/dashboard/recalcul")
+    public ResponseEntity<Map<String, Object>> recalculerTableauDeBord() {
+        try {
+            compteursTableauDeBord.recalculer();
+            return ResponseEntity.ok(compteursTableauDeBord.getCompteurs());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
@@ -73,52 +47,7 @@ public class StatsController {
     @GetMapping("/activites-recentes")
     public ResponseEntity<List<Map<String, Object>>> getActivitesRecentes() {
         try {
-            List<Map<String, Object>> activites = new ArrayList<>();
-            
-            // Prêts récents (7 derniers jours)
-            List<Object[]> pretsRecents = pretRepository.findRecentPrets(LocalDate.now().minusDays(7));
-            for (Object[] pret : pretsRecents) {
-                Map<String, Object> activite = new HashMap<>();
-                activite.put("id", "pret_" + pret[0]);
-                activite.put("message", "Nouveau prêt: \"" + pret[1] + "\" par " + pret[2] + " " + pret[3]);
-                activite.put("time", calculateTimeAgo((LocalDate) pret[4]));
-                activite.put("type", "pret");
-                activite.put("date", pret[4]);
-                activites.add(activite);
-            }
-            
-            // Retours récents
-            List<Object[]> retoursRecents = pretRepository.findRecentReturns(LocalDate.now().minusDays(7));
-            for (Object[] retour : retoursRecents) {
-                Map<String, Object> activite = new HashMap<>();
-                activite.put("id", "retour_" + retour[0]);
-                activite.put("message", "Retour: \"" + retour[1] + "\" par " + retour[2] + " " + retour[3]);
-                activite.put("time", calculateTimeAgo((LocalDate) retour[4]));
-                activite.put("type", "retour");
-                activite.put("date", retour[4]);
-                activites.add(activite);
-            }
-            
-            // Nouvelles réservations
-            List<Object[]> reservationsRecentes = reservationRepository.findRecentReservations(LocalDate.now().minusDays(7));
-            for (Object[] reservation : reservationsRecentes) {
-                Map<String, Object> activite = new HashMap<>();
-                activite.put("id", "reservation_" + reservation[0]);
-                activite.put("message", "Nouvelle réservation: \"" + reservation[1] + "\" par " + reservation[2] + " " + reservation[3]);
-                activite.put("time", calculateTimeAgo((LocalDate) reservation[4]));
-                activite.put("type", "reservation");
-                activite.put("date", reservation[4]);
-                activites.add(activite);
-            }
-            
-            // Trier par date (plus récent en premier) et limiter à 10
-            activites.sort((a, b) -> {
-                LocalDate dateA = (LocalDate) a.get("date");
-                LocalDate dateB = (LocalDate) b.get("date");
-                return dateB.compareTo(dateA); // Tri décroissant
-            });
-            
-            return ResponseEntity.ok(activites.subList(0, Math.min(activites.size(), 10)));
+            return ResponseEntity.ok(statistiquesService.getActivitesRecentes());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Collections.emptyList());
         }
@@ -129,22 +58,9 @@ public class StatsController {
         try {
             List<Map<String, Object>> pretsParMois = new ArrayList<>();
             
-            // Obtenir les prêts par mois pour l'année en cours
+            // Prêts par mois pour l'année en cours, depuis les agrégats journaliers
             int currentYear = LocalDate.now().getYear();
-            List<Object[]> pretsMensuels = pretRepository.findPretsByMonth(currentYear);
-            
-            // Créer un map pour tous les mois
-            Map<Integer, Long> pretsParMoisMap = new HashMap<>();
-            for (int i = 1; i <= 12; i++) {
-                pretsParMoisMap.put(i, 0L);
-            }
-            
-            // Remplir avec les données réelles
-            for (Object[] pret : pretsMensuels) {
-                Integer mois = (Integer) pret[0];
-                Long count = (Long) pret[1];
-                pretsParMoisMap.put(mois, count);
-            }
+            Map<Integer, Long> pretsParMoisMap = statistiquesService.getPretsParMois(currentYear);
             
             // Trouver le maximum pour calculer les pourcentages
             long maxPrets = pretsParMoisMap.values().stream().mapToLong(Long::longValue).max().orElse(1);
@@ -167,61 +83,23 @@ public class StatsController {
         }
     }
 
-    private String calculateTimeAgo(LocalDate date) {
-        long days = LocalDate.now().toEpochDay() - date.toEpochDay();
-        if (days == 0) return "Aujourd'hui";
-        if (days == 1) return "Hier";
-        if (days < 7) return "Il y a " + days + " jours";
-        if (days < 30) return "Il y a " + (days / 7) + " semaines";
-        return "Il y a " + (days / 30) + " mois";
-    }
-
     @GetMapping("/statistics")
     public ResponseEntity<Map<String, Object>> getDetailedStatistics() {
         try {
             Map<String, Object> stats = new HashMap<>();
             
-            // Statistiques mensuelles (6 derniers mois)
-            List<Map<String, Object>> monthlyStats = new ArrayList<>();
-            for (int i = 5; i >= 0; i--) {
-                LocalDate monthStart = LocalDate.now().minusMonths(i).withDayOfMonth(1);
-                LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
-                
-                Map<String, Object> monthData = new HashMap<>();
-                monthData.put("month", monthStart.format(DateTimeFormatter.ofPattern("MMM", Locale.FRENCH)));
-                
-                // Prêts du mois
-                long loans = pretRepository.countByDatePretBetween(monthStart, monthEnd);
-                monthData.put("loans", loans);
-                
-                // Retours du mois
-                long returns = pretRepository.countByDateRenduBetween(monthStart, monthEnd);
-                monthData.put("returns", returns);
-                
-                // Nouveaux utilisateurs du mois
-                long newUsers = profilRepository.countByDateInscriptionBetween(monthStart, monthEnd);
-                monthData.put("newUsers", newUsers);
-                
-                monthlyStats.add(monthData);
-            }
-            stats.put("monthlyData", monthlyStats);
+            // Statistiques mensuelles (6 derniers mois), depuis les agrégats journaliers
+            stats.put("monthlyData", statistiquesService.getStatistiquesMensuelles(6));
             
             // Livres les plus empruntés
-            List<Object[]> topBooks = pretRepository.findTopBooksByLoans();
-            List<Map<String, Object>> topBooksList = new ArrayList<>();
-            for (Object[] book : topBooks) {
-                Map<String, Object> bookData = new HashMap<>();
-                bookData.put("titre", book[0]);
-                bookData.put("emprunts", book[1]);
-                bookData.put("auteur", book[2]);
-                topBooksList.add(bookData);
-            }
+            List<Map<String, Object>> topBooksList = statistiquesService.getTopLivres(
+                    LocalDate.of(1900, 1, 1), LocalDate.now(), TOP_LIVRES);
             stats.put("topBooks", topBooksList);
             
             // Répartition des utilisateurs par type
-            List<Object[]> userTypes = profilRepository.findUserDistributionByType();
+            List<Object[]> userTypes = statistiquesService.getRepartitionUtilisateurs();
             List<Map<String, Object>> userStats = new ArrayList<>();
-            long totalUsers = profilRepository.count();
+            long totalUsers = userTypes.stream().mapToLong(t -> (Long) t[1]).sum();
             
             for (Object[] userType : userTypes) {
                 Map<String, Object> typeData = new HashMap<>();
@@ -234,8 +112,8 @@ public class StatsController {
             stats.put("userStats", userStats);
             
             // Statistiques générales
-            long totalLoans = pretRepository.count();
-            long totalReturns = pretRepository.countByDateRenduIsNotNull();
+            long totalLoans = statistiquesService.getTotal(StatJournaliereRepository.PRETS);
+            long totalReturns = statistiquesService.getTotal(StatJournaliereRepository.RETOURS);
             double returnRate = totalLoans > 0 ? (totalReturns * 100.0 / totalLoans) : 0;
             
             stats.put("totalLoans", totalLoans);
@@ -248,4 +126,38 @@ public class StatsController {
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
     }
+
+    @GetMapping("/periode")
+    public ResponseEntity<Map<String, Object>> getStatistiquesPeriode(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin) {
+        try {
+            if (fin.isBefore(debut)) {
+                throw new RuntimeException("La date de fin précède la date de début");
+            }
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("debut", debut);
+            stats.put("fin", fin);
+            stats.put("loans", statistiquesService.getTotal(StatJournaliereRepository.PRETS, debut, fin));
+            stats.put("returns", statistiquesService.getTotal(StatJournaliereRepository.RETOURS, debut, fin));
+            stats.put("newUsers", statistiquesService.getTotal(StatJournaliereRepository.NOUVEAUX_UTILISATEURS, debut, fin));
+            stats.put("topBooks", statistiquesService.getTopLivres(debut, fin, TOP_LIVRES));
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @PostMapping("/agregats/reconstruction")
+    public ResponseEntity<Map<String, Object>> reconstruireAgregats() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("joursAgreges", statistiquesService.reconstruire());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
 } 
\ No newline at end of file
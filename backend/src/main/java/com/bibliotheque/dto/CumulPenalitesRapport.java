@@ -0,0 +1,28 @@
+package com.bibliotheque.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Bilan d'une passe de cumul des pénalités en cours
+public class CumulPenalitesRapport {
+    private LocalDate dateCalcul;
+    private long pretsPenalises;
+    private BigDecimal montantTotal;
+    private long lignesSupprimees;
+    private long dureeMs;
+
+    public LocalDate getDateCalcul() { return dateCalcul; }
+    public void setDateCalcul(LocalDate dateCalcul) { this.dateCalcul = dateCalcul; }
+
+    public long getPretsPenalises() { return pretsPenalises; }
+    public void setPretsPenalises(long pretsPenalises) { this.pretsPenalises = pretsPenalises; }
+
+    public BigDecimal getMontantTotal() { return montantTotal; }
+    public void setMontantTotal(BigDecimal montantTotal) { this.montantTotal = montantTotal; }
+
+    public long getLignesSupprimees() { return lignesSupprimees; }
+    public void setLignesSupprimees(long lignesSupprimees) { this.lignesSupprimees = lignesSupprimees; }
+
+    public long getDureeMs() { return dureeMs; }
+    public void setDureeMs(long dureeMs) { this.dureeMs = dureeMs; }
+}
@@ -0,0 +1,77 @@
+package com.bibliotheque.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Faits nécessaires aux contrôles d'un prêt, d'une prolongation ou d'une réservation :
+// situation du profil à la date du contrôle, complétée de l'exemplaire et du bibliothécaire.
+public class EligibiliteProfil {
+    private Long profilId;
+    private String typeAdherant;
+    private LocalDate dateDebutInscription;
+    private LocalDate dateFinInscription;
+    private long nbPrets;
+    private long nbProlongements;
+    private long nbPenalitesActives;
+    private List<SituationCompte.PenaliteActive> penalitesActives = List.of();
+    private Long exemplaireLivreId;
+    private Integer exemplaireEtat;
+    private long exemplairePretsActifs;
+    private boolean bibliothequaireExiste;
+
+    public EligibiliteProfil() {
+    }
+
+    public EligibiliteProfil(SituationCompte situation, LocalDate date) {
+        this.profilId = situation.getProfilId();
+        this.typeAdherant = situation.getTypeAdherant();
+        this.dateDebutInscription = situation.getDateDebutInscription();
+        this.dateFinInscription = situation.getDateFinInscription();
+        this.nbPrets = situation.getNbPrets();
+        this.nbProlongements = situation.getNbProlongements();
+        this.penalitesActives = situation.getPenalitesActives(date);
+        this.nbPenalitesActives = penalitesActives.size();
+    }
+
+    public boolean hasInscriptionActive(LocalDate date) {
+        return dateFinInscription != null && !dateFinInscription.isBefore(date);
+    }
+
+    public Long getProfilId() { return profilId; }
+    public void setProfilId(Long profilId) { this.profilId = profilId; }
+
+    public String getTypeAdherant() { return typeAdherant; }
+    public void setTypeAdherant(String typeAdherant) { this.typeAdherant = typeAdherant; }
+
+    public LocalDate getDateDebutInscription() { return dateDebutInscription; }
+    public void setDateDebutInscription(LocalDate dateDebutInscription) { this.dateDebutInscription = dateDebutInscription; }
+
+    public LocalDate getDateFinInscription() { return dateFinInscription; }
+    public void setDateFinInscription(LocalDate dateFinInscription) { this.dateFinInscription = dateFinInscription; }
+
+    public long getNbPrets() { return nbPrets; }
+    public void setNbPrets(long nbPrets) { this.nbPrets = nbPrets; }
+
+    public long getNbProlongements() { return nbProlongements; }
+    public void setNbProlongements(long nbProlongements) { this.nbProlongements = nbProlongements; }
+
+    public long getNbPenalitesActives() { return nbPenalitesActives; }
+    public void setNbPenalitesActives(long nbPenalitesActives) { this.nbPenalitesActives = nbPenalitesActives; }
+
+    public List<SituationCompte.PenaliteActive> getPenalitesActives() { return penalitesActives; }
+    public void setPenalitesActives(List<SituationCompte.PenaliteActive> penalitesActives) { this.penalitesActives = penalitesActives; }
+
+    public boolean isExemplaireExiste() { return exemplaireLivreId != null; }
+
+    public Long getExemplaireLivreId() { return exemplaireLivreId; }
+    public void setExemplaireLivreId(Long exemplaireLivreId) { this.exemplaireLivreId = exemplaireLivreId; }
+
+    public Integer getExemplaireEtat() { return exemplaireEtat; }
+    public void setExemplaireEtat(Integer exemplaireEtat) { this.exemplaireEtat = exemplaireEtat; }
+
+    public long getExemplairePretsActifs() { return exemplairePretsActifs; }
+    public void setExemplairePretsActifs(long exemplairePretsActifs) { this.exemplairePretsActifs = exemplairePretsActifs; }
+
+    public boolean isBibliothequaireExiste() { return bibliothequaireExiste; }
+    public void setBibliothequaireExiste(boolean bibliothequaireExiste) { this.bibliothequaireExiste = bibliothequaireExiste; }
+}
@@ -0,0 +1,24 @@
+package com.bibliotheque.dto;
+
+// État d'un exemplaire au moment d'un prêt en lot (voir PretLotRepository)
+public class ExemplairePretable {
+    private final Long exemplaireId;
+    private final Long livreId;
+    private final Long version;
+    private final Integer etat;
+    private final long pretsActifs;
+
+    public ExemplairePretable(Long exemplaireId, Long livreId, Long version, Integer etat, long pretsActifs) {
+        this.exemplaireId = exemplaireId;
+        this.livreId = livreId;
+        this.version = version;
+        this.etat = etat;
+        this.pretsActifs = pretsActifs;
+    }
+
+    public Long getExemplaireId() { return exemplaireId; }
+    public Long getLivreId() { return livreId; }
+    public Long getVersion() { return version; }
+    public Integer getEtat() { return etat; }
+    public long getPretsActifs() { return pretsActifs; }
+}
@@ -0,0 +1,18 @@
+package com.bibliotheque.dto;
+
+// Notification à insérer en lot (voir NotificationBatchRepository)
+public class NotificationACreer {
+    private final Long profilId;
+    private final String message;
+    private final Integer type;
+
+    public NotificationACreer(Long profilId, String message, Integer type) {
+        this.profilId = profilId;
+        this.message = message;
+        this.type = type;
+    }
+
+    public Long getProfilId() { return profilId; }
+    public String getMessage() { return message; }
+    public Integer getType() { return type; }
+}
@@ -0,0 +1,33 @@
+package com.bibliotheque.dto;
+
+import java.time.LocalDateTime;
+
+// Ligne de la boîte d'envoi réservée par DistributeurNotifications pour livraison
+public class NotificationAEnvoyer {
+    private final Long envoiId;
+    private final Long profilId;
+    private final String canal;
+    private final Integer type;
+    private final String message;
+    private final int tentatives;
+    private final LocalDateTime dateCreation;
+
+    public NotificationAEnvoyer(Long envoiId, Long profilId, String canal, Integer type, String message,
+                                int tentatives, LocalDateTime dateCreation) {
+        this.envoiId = envoiId;
+        this.profilId = profilId;
+        this.canal = canal;
+        this.type = type;
+        this.message = message;
+        this.tentatives = tentatives;
+        this.dateCreation = dateCreation;
+    }
+
+    public Long getEnvoiId() { return envoiId; }
+    public Long getProfilId() { return profilId; }
+    public String getCanal() { return canal; }
+    public Integer getType() { return type; }
+    public String getMessage() { return message; }
+    public int getTentatives() { return tentatives; }
+    public LocalDateTime getDateCreation() { return dateCreation; }
+}
@@ -0,0 +1,36 @@
+package com.bibliotheque.dto;
+
+import java.time.LocalDate;
+
+// Prêt à rendre dans un retour en lot, avec la réservation active du même profil sur l'exemplaire (voir PretLotRepository)
+public class PretARendre {
+    private final Long pretId;
+    private final Long exemplaireId;
+    private final Long livreId;
+    private final Long profilId;
+    private final LocalDate dateFinPret;
+    private final LocalDate dateRendu;
+    private final Long reservationId;
+    private final Integer reservationStatut;
+
+    public PretARendre(Long pretId, Long exemplaireId, Long livreId, Long profilId, LocalDate dateFinPret,
+                       LocalDate dateRendu, Long reservationId, Integer reservationStatut) {
+        this.pretId = pretId;
+        this.exemplaireId = exemplaireId;
+        this.livreId = livreId;
+        this.profilId = profilId;
+        this.dateFinPret = dateFinPret;
+        this.dateRendu = dateRendu;
+        this.reservationId = reservationId;
+        this.reservationStatut = reservationStatut;
+    }
+
+    public Long getPretId() { return pretId; }
+    public Long getExemplaireId() { return exemplaireId; }
+    public Long getLivreId() { return livreId; }
+    public Long getProfilId() { return profilId; }
+    public LocalDate getDateFinPret() { return dateFinPret; }
+    public LocalDate getDateRendu() { return dateRendu; }
+    public Long getReservationId() { return reservationId; }
+    public Integer getReservationStatut() { return reservationStatut; }
+}
@@ -0,0 +1,54 @@
+package com.bibliotheque.dto;
+
+import java.time.LocalDate;
+
+// Projection JPQL d'un prêt pour les listes : profil, exemplaire, statut et type
+// sont lus dans la même requête, sans charger les entités associées.
+public class PretResume {
+    private final Long pretId;
+    private final LocalDate datePret;
+    private final LocalDate dateFinPret;
+    private final LocalDate dateRendu;
+    private final Boolean rendu;
+    private final Boolean enRetard;
+    private final Integer typePret;
+    private final Long profilId;
+    private final String profilNom;
+    private final String profilPrenom;
+    private final String profilEmail;
+    private final Long exemplaireId;
+    private final String numExemplaire;
+
+    public PretResume(Long pretId, LocalDate datePret, LocalDate dateFinPret, LocalDate dateRendu,
+                      Boolean rendu, Boolean enRetard, Integer typePret,
+                      Long profilId, String profilNom, String profilPrenom, String profilEmail,
+                      Long exemplaireId, String numExemplaire) {
+        this.pretId = pretId;
+        this.datePret = datePret;
+        this.dateFinPret = dateFinPret;
+        this.dateRendu = dateRendu;
+        this.rendu = rendu;
+        this.enRetard = enRetard;
+        this.typePret = typePret;
+        this.profilId = profilId;
+        this.profilNom = profilNom;
+        this.profilPrenom = profilPrenom;
+        this.profilEmail = profilEmail;
+        this.exemplaireId = exemplaireId;
+        this.numExemplaire = numExemplaire;
+    }
+
+    public Long getPretId() { return pretId; }
+    public LocalDate getDatePret() { return datePret; }
+    public LocalDate getDateFinPret() { return dateFinPret; }
+    public LocalDate getDateRendu() { return dateRendu; }
+    public Boolean getRendu() { return rendu; }
+    public Boolean getEnRetard() { return enRetard; }
+    public Integer getTypePret() { return typePret; }
+    public Long getProfilId() { return profilId; }
+    public String getProfilNom() { return profilNom; }
+    public String getProfilPrenom() { return profilPrenom; }
+    public String getProfilEmail() { return profilEmail; }
+    public Long getExemplaireId() { return exemplaireId; }
+    public String getNumExemplaire() { return numExemplaire; }
+}
@@ -0,0 +1,52 @@
+package com.bibliotheque.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Bilan d'une exécution du traitement des retards
+public class RetardBatchRapport {
+    private LocalDate dateTraitement;
+    private LocalDateTime debut;
+    private long dureeMs;
+    private long reprisDepuisId;
+    private int chunks;
+    private long pretsMisEnRetard;
+    private LocalDate rappelsDepuis;
+    private long rappelsEnvoyes;
+    private long notificationsCreees;
+    private double latenceChunkMoyenneMs;
+    private long latenceChunkMaxMs;
+
+    public LocalDate getDateTraitement() { return dateTraitement; }
+    public void setDateTraitement(LocalDate dateTraitement) { this.dateTraitement = dateTraitement; }
+
+    public LocalDateTime getDebut() { return debut; }
+    public void setDebut(LocalDateTime debut) { this.debut = debut; }
+
+    public long getDureeMs() { return dureeMs; }
+    public void setDureeMs(long dureeMs) { this.dureeMs = dureeMs; }
+
+    public long getReprisDepuisId() { return reprisDepuisId; }
+    public void setReprisDepuisId(long reprisDepuisId) { this.reprisDepuisId = reprisDepuisId; }
+
+    public int getChunks() { return chunks; }
+    public void setChunks(int chunks) { this.chunks = chunks; }
+
+    public long getPretsMisEnRetard() { return pretsMisEnRetard; }
+    public void setPretsMisEnRetard(long pretsMisEnRetard) { this.pretsMisEnRetard = pretsMisEnRetard; }
+
+    public LocalDate getRappelsDepuis() { return rappelsDepuis; }
+    public void setRappelsDepuis(LocalDate rappelsDepuis) { this.rappelsDepuis = rappelsDepuis; }
+
+    public long getRappelsEnvoyes() { return rappelsEnvoyes; }
+    public void setRappelsEnvoyes(long rappelsEnvoyes) { this.rappelsEnvoyes = rappelsEnvoyes; }
+
+    public long getNotificationsCreees() { return notificationsCreees; }
+    public void setNotificationsCreees(long notificationsCreees) { this.notificationsCreees = notificationsCreees; }
+
+    public double getLatenceChunkMoyenneMs() { return latenceChunkMoyenneMs; }
+    public void setLatenceChunkMoyenneMs(double latenceChunkMoyenneMs) { this.latenceChunkMoyenneMs = latenceChunkMoyenneMs; }
+
+    public long getLatenceChunkMaxMs() { return latenceChunkMaxMs; }
+    public void setLatenceChunkMaxMs(long latenceChunkMaxMs) { this.latenceChunkMaxMs = latenceChunkMaxMs; }
+}
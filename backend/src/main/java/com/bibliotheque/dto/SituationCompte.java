@@ -0,0 +1,62 @@
+package com.bibliotheque.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Situation d'un profil pour les contrôles de prêt, prolongation et réservation : type d'adhérent,
+// dernière inscription, prêts et prolongements sur cette inscription, pénalités actives non échues.
+// Mise en cache par SituationsComptes, donc immuable ; les pénalités sont filtrées à la date du contrôle.
+public class SituationCompte {
+    private final Long profilId;
+    private final String typeAdherant;
+    private final LocalDate dateDebutInscription;
+    private final LocalDate dateFinInscription;
+    private final long nbPrets;
+    private final long nbProlongements;
+    private final List<PenaliteActive> penalites;
+
+    public SituationCompte(Long profilId, String typeAdherant, LocalDate dateDebutInscription, LocalDate dateFinInscription,
+                           long nbPrets, long nbProlongements, List<PenaliteActive> penalites) {
+        this.profilId = profilId;
+        this.typeAdherant = typeAdherant;
+        this.dateDebutInscription = dateDebutInscription;
+        this.dateFinInscription = dateFinInscription;
+        this.nbPrets = nbPrets;
+        this.nbProlongements = nbProlongements;
+        this.penalites = List.copyOf(penalites);
+    }
+
+    public List<PenaliteActive> getPenalitesActives(LocalDate date) {
+        return penalites.stream()
+                .filter(p -> !date.isBefore(p.getDateDebut()) && !date.isAfter(p.getDateFin()))
+                .toList();
+    }
+
+    public Long getProfilId() { return profilId; }
+    public String getTypeAdherant() { return typeAdherant; }
+    public LocalDate getDateDebutInscription() { return dateDebutInscription; }
+    public LocalDate getDateFinInscription() { return dateFinInscription; }
+    public long getNbPrets() { return nbPrets; }
+    public long getNbProlongements() { return nbProlongements; }
+    public List<PenaliteActive> getPenalites() { return penalites; }
+
+    public static class PenaliteActive {
+        private final Long penaliteId;
+        private final LocalDate dateDebut;
+        private final LocalDate dateFin;
+        private final BigDecimal montant;
+
+        public PenaliteActive(Long penaliteId, LocalDate dateDebut, LocalDate dateFin, BigDecimal montant) {
+            this.penaliteId = penaliteId;
+            this.dateDebut = dateDebut;
+            this.dateFin = dateFin;
+            this.montant = montant;
+        }
+
+        public Long getPenaliteId() { return penaliteId; }
+        public LocalDate getDateDebut() { return dateDebut; }
+        public LocalDate getDateFin() { return dateFin; }
+        public BigDecimal getMontant() { return montant; }
+    }
+}
@@ -0,0 +1,24 @@
+package com.bibliotheque.dto;
+
+import java.math.BigDecimal;
+
+// Projection JPQL d'un tarif d'inscription, mise en cache à la place de l'entité :
+// le type d'adhérant, chargé paresseusement, n'en fait pas partie.
+public class TarifResume {
+    private final Long tarifId;
+    private final String description;
+    private final BigDecimal montant;
+    private final int nbMois;
+
+    public TarifResume(Long tarifId, String description, BigDecimal montant, int nbMois) {
+        this.tarifId = tarifId;
+        this.description = description;
+        this.montant = montant;
+        this.nbMois = nbMois;
+    }
+
+    public Long getTarifId() { return tarifId; }
+    public String getDescription() { return description; }
+    public BigDecimal getMontant() { return montant; }
+    public int getNbMois() { return nbMois; }
+}
@@ -0,0 +1,52 @@
+package com.bibliotheque.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Point de reprise d'un traitement par lots : dernier identifiant traité pour la date du traitement
+@Entity
+@Table(name = "batch_checkpoint")
+public class BatchCheckpoint {
+    @Id
+    @Column(name = "job_name", length = 50)
+    private String jobName;
+    
+    @Column(name = "dernier_id", nullable = false)
+    private Long dernierId = 0L;
+    
+    @Column(name = "date_traitement")
+    private LocalDate dateTraitement;
+    
+    @Column(nullable = false)
+    private Boolean termine = false;
+    
+    @Column(name = "date_maj")
+    private LocalDateTime dateMaj;
+    
+    // Constructors
+    public BatchCheckpoint() {}
+    
+    public BatchCheckpoint(String jobName) {
+        this.jobName = jobName;
+    }
+    
+    // Getters and Setters
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+    
+    public Long getDernierId() { return dernierId; }
+    public void setDernierId(Long dernierId) { this.dernierId = dernierId; }
+    
+    public LocalDate getDateTraitement() { return dateTraitement; }
+    public void setDateTraitement(LocalDate dateTraitement) { this.dateTraitement = dateTraitement; }
+    
+    public Boolean getTermine() { return termine; }
+    public void setTermine(Boolean termine) { this.termine = termine; }
+    
+    public LocalDateTime getDateMaj() { return dateMaj; }
+    public void setDateMaj(LocalDateTime dateMaj) { this.dateMaj = dateMaj; }
+}
@@ -5,7 +5,9 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "exemplaire")
+@Table(name = "exemplaire", indexes = {
+    @Index(name = "idx_exemplaire_livre_etat", columnList = "livre_id, etat")
+})
 public class Exemplaire {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,7 +25,7 @@ public class Exemplaire {
     @JoinColumn(name = "emplacement_id")
     private Emplacement emplacement;
     
-    @OneToOne(mappedBy = "exemplaire", cascade = CascadeType.ALL)
+    @Embedded
     private ExemplaireEtat exemplaireEtat;
     
     @OneToMany(mappedBy = "exemplaire", cascade = CascadeType.ALL)
@@ -32,6 +34,11 @@ public class Exemplaire {
     @OneToMany(mappedBy = "exemplaire", cascade = CascadeType.ALL)
     private List<Reservation> reservations;
     
+    // Incrémentée à chaque prêt de l'exemplaire : deux prêts simultanés ne peuvent pas valider tous les deux
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+    
     // Constructors
     public Exemplaire() {}
     
@@ -61,4 +68,6 @@ public class Exemplaire {
     
     public List<Reservation> getReservations() { return reservations; }
     public void setReservations(List<Reservation> reservations) { this.reservations = reservations; }
+    
+    public Long getVersion() { return version; }
 }
\ No newline at end of file
@@ -1,41 +1,28 @@
 package com.bibliotheque.entities;
 
-import jakarta.persistence.*;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
 import java.time.LocalDate;
 
-@Entity
-@Table(name = "exemplaire_etat")
+// État de l'exemplaire, en colonnes de la table exemplaire (ancienne table exemplaire_etat).
+// Colonnes nullables : un exemplaire sans état reste sans état.
+@Embeddable
 public class ExemplaireEtat {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-    
-    @OneToOne
-    @JoinColumn(name = "exemplaire_id", nullable = false)
-    private Exemplaire exemplaire;
-    
-    @Column(nullable = false)
+    @Column
     private Integer etat = 0; // 0: Neuf, 1: Bon, 2: Moyen, 3: Mauvais, 4: Hors service
     
-    @Column(name = "date_acquisition", nullable = false)
+    @Column(name = "date_acquisition")
     private LocalDate dateAcquisition;
     
     // Constructors
     public ExemplaireEtat() {}
     
-    public ExemplaireEtat(Exemplaire exemplaire, Integer etat, LocalDate dateAcquisition) {
-        this.exemplaire = exemplaire;
+    public ExemplaireEtat(Integer etat, LocalDate dateAcquisition) {
         this.etat = etat;
         this.dateAcquisition = dateAcquisition;
     }
     
     // Getters and Setters
-    public Long getId() { return id; }
-    public void setId(Long id) { this.id = id; }
-    
-    public Exemplaire getExemplaire() { return exemplaire; }
-    public void setExemplaire(Exemplaire exemplaire) { this.exemplaire = exemplaire; }
-    
     public Integer getEtat() { return etat; }
     public void setEtat(Integer etat) { this.etat = etat; }
     
@@ -52,4 +39,4 @@ public class ExemplaireEtat {
             default: return "Inconnu";
         }
     }
-}
\ No newline at end of file
+}
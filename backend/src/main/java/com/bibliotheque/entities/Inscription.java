@@ -5,7 +5,10 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "inscription")
+@Table(name = "inscription", indexes = {
+    @Index(name = "idx_inscription_profil_debut", columnList = "profil_id, date_debut, date_fin"),
+    @Index(name = "idx_inscription_fin", columnList = "date_fin")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Inscription {
     @Id
@@ -4,17 +4,22 @@ import java.time.LocalDateTime;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "notification")
+@Table(name = "notification", indexes = {
+    @Index(name = "idx_notification_profil_statut", columnList = "profil_id, statut"),
+    @Index(name = "idx_notification_profil_date", columnList = "profil_id, date_envoi")
+})
 public class Notification {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,8 +39,8 @@ public class Notification {
     @OneToOne(mappedBy = "notification", cascade = CascadeType.ALL)
     private NotificationType notificationType;
     
-    @OneToOne(mappedBy = "notification", cascade = CascadeType.ALL)
-    private NotificationStatus notificationStatus;
+    @Embedded
+    private NotificationStatus notificationStatus = new NotificationStatus();
     
     // Constructors
     public Notification() {}
@@ -0,0 +1,89 @@
+package com.bibliotheque.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+// Notification à livrer sur un canal (boîte d'envoi) : écrite dans la transaction métier,
+// livrée ensuite par DistributeurNotifications
+@Entity
+@Table(name = "notification_envoi",
+       indexes = @Index(name = "idx_envoi_statut_prochaine", columnList = "statut, prochaine_tentative"))
+public class NotificationEnvoi {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "envoi_id")
+    private Long envoiId;
+
+    @Column(name = "profil_id", nullable = false)
+    private Long profilId;
+
+    @Column(length = 20, nullable = false)
+    private String canal;
+
+    @Column(nullable = false)
+    private Integer type;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String message;
+
+    @Column(nullable = false)
+    private Integer statut = 0; // 0: À envoyer, 1: Envoyée, 2: Abandonnée
+
+    @Column(nullable = false)
+    private Integer tentatives = 0;
+
+    @Column(name = "date_creation", nullable = false)
+    private LocalDateTime dateCreation;
+
+    @Column(name = "prochaine_tentative", nullable = false)
+    private LocalDateTime prochaineTentative;
+
+    @Column(name = "date_envoi")
+    private LocalDateTime dateEnvoi;
+
+    @Column(name = "derniere_erreur", length = 500)
+    private String derniereErreur;
+
+    // Constructors
+    public NotificationEnvoi() {}
+
+    // Getters and Setters
+    public Long getEnvoiId() { return envoiId; }
+    public void setEnvoiId(Long envoiId) { this.envoiId = envoiId; }
+
+    public Long getProfilId() { return profilId; }
+    public void setProfilId(Long profilId) { this.profilId = profilId; }
+
+    public String getCanal() { return canal; }
+    public void setCanal(String canal) { this.canal = canal; }
+
+    public Integer getType() { return type; }
+    public void setType(Integer type) { this.type = type; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public Integer getStatut() { return statut; }
+    public void setStatut(Integer statut) { this.statut = statut; }
+
+    public Integer getTentatives() { return tentatives; }
+    public void setTentatives(Integer tentatives) { this.tentatives = tentatives; }
+
+    public LocalDateTime getDateCreation() { return dateCreation; }
+    public void setDateCreation(LocalDateTime dateCreation) { this.dateCreation = dateCreation; }
+
+    public LocalDateTime getProchaineTentative() { return prochaineTentative; }
+    public void setProchaineTentative(LocalDateTime prochaineTentative) { this.prochaineTentative = prochaineTentative; }
+
+    public LocalDateTime getDateEnvoi() { return dateEnvoi; }
+    public void setDateEnvoi(LocalDateTime dateEnvoi) { this.dateEnvoi = dateEnvoi; }
+
+    public String getDerniereErreur() { return derniereErreur; }
+    public void setDerniereErreur(String derniereErreur) { this.derniereErreur = derniereErreur; }
+}
@@ -5,7 +5,10 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "penalite")
+@Table(name = "penalite", indexes = {
+    @Index(name = "idx_penalite_profil_statut_dates", columnList = "profil_id, statut, date_debut, date_fin"),
+    @Index(name = "idx_penalite_statut", columnList = "statut, montant")
+})
 public class Penalite {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -32,7 +35,7 @@ public class Penalite {
     @JoinColumn(name = "pret_id")
     private Pret pret;
     
-    @OneToOne(mappedBy = "penalite", cascade = CascadeType.ALL)
+    @Embedded
     private PenaliteStatus penaliteStatus;
     
     // Constructors
@@ -0,0 +1,51 @@
+package com.bibliotheque.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Pénalité en cours d'un prêt en retard non rendu, recalculée chaque jour par CumulPenalitesService
+// et soldée au retour (la pénalité définitive est alors écrite dans penalite)
+@Entity
+@Table(name = "penalite_cumul",
+       indexes = @Index(name = "idx_penalite_cumul_profil", columnList = "profil_id"))
+public class PenaliteCumul {
+    @Id
+    @Column(name = "pret_id")
+    private Long pretId;
+
+    @Column(name = "profil_id", nullable = false)
+    private Long profilId;
+
+    @Column(name = "jours_retard", nullable = false)
+    private Integer joursRetard;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal montant;
+
+    @Column(name = "date_calcul", nullable = false)
+    private LocalDate dateCalcul;
+
+    // Constructors
+    public PenaliteCumul() {}
+
+    // Getters and Setters
+    public Long getPretId() { return pretId; }
+    public void setPretId(Long pretId) { this.pretId = pretId; }
+
+    public Long getProfilId() { return profilId; }
+    public void setProfilId(Long profilId) { this.profilId = profilId; }
+
+    public Integer getJoursRetard() { return joursRetard; }
+    public void setJoursRetard(Integer joursRetard) { this.joursRetard = joursRetard; }
+
+    public BigDecimal getMontant() { return montant; }
+    public void setMontant(BigDecimal montant) { this.montant = montant; }
+
+    public LocalDate getDateCalcul() { return dateCalcul; }
+    public void setDateCalcul(LocalDate dateCalcul) { this.dateCalcul = dateCalcul; }
+}
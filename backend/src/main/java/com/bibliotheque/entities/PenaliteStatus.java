@@ -1,43 +1,20 @@
 package com.bibliotheque.entities;
 
 import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
-import jakarta.persistence.Id;
-import jakarta.persistence.JoinColumn;
-import jakarta.persistence.OneToOne;
-import jakarta.persistence.Table;
+import jakarta.persistence.Embeddable;
 
-@Entity
-@Table(name = "penalite_status")
+// Statut de la pénalité, en colonne de la table penalite (ancienne table penalite_status).
+// Colonne nullable : les pénalités de retour antérieures, restées sans statut, demeurent hors des
+// pénalités actives ; celles émises désormais au retour sont actives.
+@Embeddable
 public class PenaliteStatus {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-    
-    @OneToOne
-    @JoinColumn(name = "penalite_id", nullable = false)
-    private Penalite penalite;
-    
-    @Column(nullable = false)
+    @Column
     private Integer statut = 0; // 0: Active, 1: Payée, 2: Annulée
     
     // Constructors
     public PenaliteStatus() {}
     
-    public PenaliteStatus(Penalite penalite) {
-        this.penalite = penalite;
-        this.statut = 0;
-    }
-    
     // Getters and Setters
-    public Long getId() { return id; }
-    public void setId(Long id) { this.id = id; }
-    
-    public Penalite getPenalite() { return penalite; }
-    public void setPenalite(Penalite penalite) { this.penalite = penalite; }
-    
     public Integer getStatut() { return statut; }
     public void setStatut(Integer statut) { this.statut = statut; }
     
@@ -49,4 +26,4 @@ public class PenaliteStatus {
             default: return "Inconnu";
         }
     }
-}
\ No newline at end of file
+}
@@ -6,7 +6,13 @@ import java.util.List;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "pret")
+@Table(name = "pret", indexes = {
+    @Index(name = "idx_pret_rendu_fin", columnList = "rendu, date_fin_pret"),
+    @Index(name = "idx_pret_exemplaire_rendu", columnList = "exemplaire_id, rendu"),
+    @Index(name = "idx_pret_profil_rendu", columnList = "profil_id, rendu"),
+    @Index(name = "idx_pret_date_pret", columnList = "date_pret"),
+    @Index(name = "idx_pret_date_rendu", columnList = "date_rendu")
+})
 public class Pret {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -38,8 +44,13 @@ public class Pret {
     @OneToOne(mappedBy = "pret", cascade = CascadeType.ALL)
     private PretType pretType;
     
-    @OneToOne(mappedBy = "pret", cascade = CascadeType.ALL)
-    private PretStatus pretStatus;
+    @Embedded
+    private PretStatus pretStatus = new PretStatus();
+    
+    // Deux retours simultanés du même prêt : le second échoue au lieu de doubler pénalité et compteurs
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
     
     @OneToMany(mappedBy = "pret", cascade = CascadeType.ALL)
     private List<ProlongementPret> prolongements;
@@ -84,6 +95,8 @@ public class Pret {
     public PretType getPretType() { return pretType; }
     public void setPretType(PretType pretType) { this.pretType = pretType; }
     
+    public Long getVersion() { return version; }
+    
     public PretStatus getPretStatus() { return pretStatus; }
     public void setPretStatus(PretStatus pretStatus) { this.pretStatus = pretStatus; }
     
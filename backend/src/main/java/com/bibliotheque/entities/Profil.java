@@ -9,7 +9,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "profil")
+@Table(name = "profil", indexes = @Index(name = "idx_profil_date_inscription", columnList = "date_inscription"))
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Profil {
     @Id
@@ -2,19 +2,23 @@ package com.bibliotheque.entities;
 
 import java.time.LocalDate;
 
-import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
-import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "reservation")
+@Table(name = "reservation", indexes = {
+    @Index(name = "idx_reservation_exemplaire_statut", columnList = "exemplaire_id, statut"),
+    @Index(name = "idx_reservation_statut_expiration", columnList = "statut, date_expiration"),
+    @Index(name = "idx_reservation_date_resa", columnList = "date_resa")
+})
 public class Reservation {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -35,8 +39,8 @@ public class Reservation {
     @Column(name = "date_expiration", nullable = false)
     private LocalDate dateExpiration;
     
-    @OneToOne(mappedBy = "reservation", cascade = CascadeType.ALL)
-    private ReservationStatus reservationStatus;
+    @Embedded
+    private ReservationStatus reservationStatus = new ReservationStatus();
     
     // Constructors
     public Reservation() {}
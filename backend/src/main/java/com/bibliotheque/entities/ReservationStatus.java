@@ -1,36 +1,18 @@
 package com.bibliotheque.entities;
 
-import jakarta.persistence.*;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
 
-@Entity
-@Table(name = "reservation_status")
+// Statut de la réservation, en colonne de la table reservation (ancienne table reservation_status)
+@Embeddable
 public class ReservationStatus {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-    
-    @OneToOne
-    @JoinColumn(name = "reservation_id", nullable = false)
-    private Reservation reservation;
-    
-    @Column(nullable = false)
+    @Column(nullable = false, columnDefinition = "INT DEFAULT 0")
     private Integer statut = 0; // 0: En attente, 1: Disponible, 2: Annulée, 3: Expirée
     
     // Constructors
     public ReservationStatus() {}
     
-    public ReservationStatus(Reservation reservation) {
-        this.reservation = reservation;
-        this.statut = 0;
-    }
-    
     // Getters and Setters
-    public Long getId() { return id; }
-    public void setId(Long id) { this.id = id; }
-    
-    public Reservation getReservation() { return reservation; }
-    public void setReservation(Reservation reservation) { this.reservation = reservation; }
-    
     public Integer getStatut() { return statut; }
     public void setStatut(Integer statut) { this.statut = statut; }
     
@@ -43,4 +25,4 @@ public class ReservationStatus {
             default: return "Inconnu";
         }
     }
-}
\ No newline at end of file
+}
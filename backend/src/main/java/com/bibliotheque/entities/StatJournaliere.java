@@ -0,0 +1,54 @@
+package com.bibliotheque.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDate;
+
+// Agrégat journalier d'une métrique ; cle distingue les sous-totaux (livre_id, type d'adhérent), 0 sinon
+@Entity
+@Table(name = "stat_journaliere",
+       uniqueConstraints = @UniqueConstraint(name = "uk_stat_jour_metrique_cle", columnNames = { "jour", "metrique", "cle" }),
+       indexes = @Index(name = "idx_stat_metrique_jour", columnList = "metrique, jour"))
+public class StatJournaliere {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "stat_id")
+    private Long statId;
+
+    @Column(nullable = false)
+    private LocalDate jour;
+
+    @Column(length = 30, nullable = false)
+    private String metrique;
+
+    @Column(nullable = false)
+    private Long cle = 0L;
+
+    @Column(nullable = false)
+    private Long valeur = 0L;
+
+    // Constructors
+    public StatJournaliere() {}
+
+    // Getters and Setters
+    public Long getStatId() { return statId; }
+    public void setStatId(Long statId) { this.statId = statId; }
+
+    public LocalDate getJour() { return jour; }
+    public void setJour(LocalDate jour) { this.jour = jour; }
+
+    public String getMetrique() { return metrique; }
+    public void setMetrique(String metrique) { this.metrique = metrique; }
+
+    public Long getCle() { return cle; }
+    public void setCle(Long cle) { this.cle = cle; }
+
+    public Long getValeur() { return valeur; }
+    public void setValeur(Long valeur) { this.valeur = valeur; }
+}
@@ -1,7 +1,11 @@
 package com.bibliotheque.repository;
 
+import com.bibliotheque.config.CacheConfig;
 import com.bibliotheque.entities.AdherantType;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,4 +13,10 @@ import java.util.Optional;
 @Repository
 public interface AdherantTypeRepository extends JpaRepository<AdherantType, Long> {
     Optional<AdherantType> findByType(String type);
-}
\ No newline at end of file
+    
+    // Seul l'identifiant est mis en cache (l'entité porte la collection paresseuse des adhérants) ;
+    // l'appelant le rattache à sa session par getReferenceById
+    @Cacheable(cacheNames = CacheConfig.ADHERANT_TYPES, unless = "#result == null")
+    @Query("SELECT a.id FROM AdherantType a WHERE a.type = :type")
+    Optional<Long> findIdByType(@Param("type") String type);
+}
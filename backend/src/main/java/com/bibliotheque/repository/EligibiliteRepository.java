@@ -0,0 +1,89 @@
+package com.bibliotheque.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.bibliotheque.dto.EligibiliteProfil;
+import com.bibliotheque.dto.SituationCompte;
+
+// Situation du profil (type d'adhérent, dernière inscription, prêts et prolongements sur celle-ci,
+// pénalités actives), mise en cache par SituationsComptes, et état de l'exemplaire, lu à chaque contrôle.
+@Repository
+@Timed("bibliotheque.repository.jdbc")
+public class EligibiliteRepository {
+    
+    private static final String SQL_SITUATION =
+            "SELECT pr.profil_id, at.type AS type_adherant, ins.date_debut, ins.date_fin, " +
+            "  (SELECT COUNT(*) FROM pret p WHERE p.profil_id = pr.profil_id " +
+            "     AND p.date_pret BETWEEN ins.date_debut AND ins.date_fin) AS nb_prets, " +
+            "  (SELECT COUNT(*) FROM prolongement_pret pp JOIN pret p2 ON p2.pret_id = pp.pret_id " +
+            "     WHERE p2.profil_id = pr.profil_id AND pp.date_demande BETWEEN ins.date_debut AND ins.date_fin) AS nb_prolongements " +
+            "FROM profil pr " +
+            "JOIN adherant a ON a.adherant_id = pr.adherant_id " +
+            "JOIN adherant_type at ON at.id = a.type_id " +
+            "LEFT JOIN inscription ins ON ins.inscription_id = (" +
+            "  SELECT i.inscription_id FROM inscription i WHERE i.profil_id = pr.profil_id " +
+            "  ORDER BY i.date_debut DESC LIMIT 1) " +
+            "WHERE pr.profil_id = :profilId";
+    
+    // Pénalités actives en cours ou à venir : la situation reste juste d'un jour sur l'autre
+    private static final String SQL_PENALITES =
+            "SELECT pe.penalite_id, pe.date_debut, pe.date_fin, pe.montant FROM penalite pe " +
+            "WHERE pe.profil_id = :profilId AND pe.statut = 0 AND pe.date_fin >= :date " +
+            "ORDER BY pe.date_debut";
+    
+    private static final String SQL_EXEMPLAIRE =
+            "SELECT (SELECT ex.livre_id FROM exemplaire ex WHERE ex.exemplaire_id = :exemplaireId) AS exemplaire_livre_id, " +
+            "  (SELECT ex.etat FROM exemplaire ex WHERE ex.exemplaire_id = :exemplaireId) AS exemplaire_etat, " +
+            "  (SELECT COUNT(*) FROM pret p3 WHERE p3.exemplaire_id = :exemplaireId AND p3.rendu = false) AS exemplaire_prets_actifs, " +
+            "  (SELECT COUNT(*) FROM bibliothequaire b WHERE b.bibliothequaire_id = :bibliothequaireId) AS bibliothequaire_existe";
+    
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public Optional<SituationCompte> findSituation(Long profilId, LocalDate date) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("profilId", profilId)
+                .addValue("date", date);
+        
+        List<SituationCompte.PenaliteActive> penalites = new ArrayList<>();
+        jdbcTemplate.query(SQL_PENALITES, params, rs -> {
+            penalites.add(new SituationCompte.PenaliteActive(
+                    rs.getLong("penalite_id"),
+                    rs.getObject("date_debut", LocalDate.class),
+                    rs.getObject("date_fin", LocalDate.class),
+                    rs.getBigDecimal("montant")));
+        });
+        List<SituationCompte> resultats = jdbcTemplate.query(SQL_SITUATION, params, (rs, rowNum) -> new SituationCompte(
+                rs.getLong("profil_id"),
+                rs.getString("type_adherant"),
+                rs.getObject("date_debut", LocalDate.class),
+                rs.getObject("date_fin", LocalDate.class),
+                rs.getLong("nb_prets"),
+                rs.getLong("nb_prolongements"),
+                penalites));
+        return resultats.stream().findFirst();
+    }
+    
+    // Exemplaire et bibliothécaire du contrôle, renseignés dans l'éligibilité
+    public void completerExemplaire(EligibiliteProfil eligibilite, Long exemplaireId, Long bibliothequaireId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("exemplaireId", exemplaireId)
+                .addValue("bibliothequaireId", bibliothequaireId);
+        
+        jdbcTemplate.query(SQL_EXEMPLAIRE, params, rs -> {
+            eligibilite.setExemplaireLivreId(rs.getObject("exemplaire_livre_id", Long.class));
+            eligibilite.setExemplaireEtat(rs.getObject("exemplaire_etat", Integer.class));
+            eligibilite.setExemplairePretsActifs(rs.getLong("exemplaire_prets_actifs"));
+            eligibilite.setBibliothequaireExiste(rs.getLong("bibliothequaire_existe") > 0);
+        });
+    }
+}
@@ -3,6 +3,7 @@ package com.bibliotheque.repository;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,9 +17,18 @@ public interface ExemplaireRepository extends JpaRepository<Exemplaire, Long> {
     @Query("SELECT e FROM Exemplaire e WHERE e.livre.livreId = :livreId AND e.exemplaireEtat.etat < 4 AND NOT EXISTS (SELECT p FROM Pret p WHERE p.exemplaire = e AND p.pretStatus.rendu = false)")
     List<Exemplaire> findExemplairesDisponibles(@Param("livreId") Long livreId);
     
+    @Query("SELECT e.version FROM Exemplaire e WHERE e.exemplaireId = :exemplaireId")
+    Long findVersion(@Param("exemplaireId") Long exemplaireId);
+    
+    // Réserve l'exemplaire pour un prêt si personne ne l'a modifié depuis la lecture de sa version ; 0 si conflit
+    @Modifying
+    @Query("UPDATE Exemplaire e SET e.version = e.version + 1 WHERE e.exemplaireId = :exemplaireId AND e.version = :version")
+    int reclamer(@Param("exemplaireId") Long exemplaireId, @Param("version") Long version);
+    
     @Query("SELECT e FROM Exemplaire e WHERE e.exemplaireEtat.etat < 4")
     List<Exemplaire> findExemplairesEnBonEtat();
     
-    @Query("SELECT e FROM Exemplaire e WHERE EXISTS (SELECT p FROM Pret p WHERE p.exemplaire = e AND p.pretStatus.rendu = false)")
+    // Depuis les prêts en cours plutôt que depuis chaque exemplaire
+    @Query("SELECT e FROM Exemplaire e WHERE e.exemplaireId IN (SELECT p.exemplaire.exemplaireId FROM Pret p WHERE p.pretStatus.rendu = false)")
     List<Exemplaire> findExemplairesEmpruntes();
 }
\ No newline at end of file
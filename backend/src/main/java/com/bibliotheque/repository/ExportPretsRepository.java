@@ -0,0 +1,73 @@
+package com.bibliotheque.repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+// Parcours de l'historique des prêts pour l'export : curseur JDBC en avant seulement, sans rien accumuler
+// en mémoire. Sous MySQL, taille de paquet Integer.MIN_VALUE = lecture en flux ligne à ligne par Connector/J
+// (sans useCursorFetch, qui imposerait des requêtes préparées côté serveur à toute l'application) ;
+// les autres pilotes (H2 du profil benchmark) refusent une taille négative et lisent par TAILLE_PAQUET lignes.
+@Repository
+@Timed("bibliotheque.repository.jdbc")
+public class ExportPretsRepository {
+
+    private static final int TAILLE_PAQUET = 1000;
+
+    private static final String SQL_PRETS =
+            "SELECT p.pret_id, p.date_pret, p.date_fin_pret, p.date_rendu, p.rendu, p.en_retard, pt.type_pret, " +
+            "  pr.profil_id, pr.nom, pr.prenom, pr.email, e.exemplaire_id, e.num_exemplaire, " +
+            "  l.livre_id, l.titre, l.isbn, p.bibliothequaire_id " +
+            "FROM pret p " +
+            "JOIN profil pr ON pr.profil_id = p.profil_id " +
+            "JOIN exemplaire e ON e.exemplaire_id = p.exemplaire_id " +
+            "JOIN livre l ON l.livre_id = e.livre_id " +
+            "LEFT JOIN pret_type pt ON pt.pret_id = p.pret_id " +
+            "WHERE 1 = 1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Filtres identiques à GET /prets ; lignes par pret_id croissant
+    public void parcourir(LocalDate dateDebut, LocalDate dateFin, Boolean rendu, Boolean enRetard, RowCallbackHandler ligne) {
+        StringBuilder sql = new StringBuilder(SQL_PRETS);
+        List<Object> params = new ArrayList<>();
+        if (dateDebut != null) {
+            sql.append(" AND p.date_pret >= ?");
+            params.add(Date.valueOf(dateDebut));
+        }
+        if (dateFin != null) {
+            sql.append(" AND p.date_pret <= ?");
+            params.add(Date.valueOf(dateFin));
+        }
+        if (rendu != null) {
+            sql.append(" AND p.rendu = ?");
+            params.add(rendu);
+        }
+        if (enRetard != null) {
+            sql.append(" AND p.en_retard = ?");
+            params.add(enRetard);
+        }
+        sql.append(" ORDER BY p.pret_id");
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize("MySQL".equals(connection.getMetaData().getDatabaseProductName())
+                    ? Integer.MIN_VALUE : TAILLE_PAQUET);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, ligne);
+    }
+}
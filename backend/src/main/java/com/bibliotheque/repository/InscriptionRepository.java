@@ -15,6 +15,9 @@ public interface InscriptionRepository extends JpaRepository<Inscription, Long>
     
     @Query("SELECT i.dateFin FROM Inscription i WHERE i.profil.profilId = :profilId ORDER BY i.dateDebut DESC LIMIT 1")
     Optional<LocalDate> findDateFinDerniereInscriptionByProfil(@Param("profilId") Long profilId);
+
+    @Query("SELECT i FROM Inscription i WHERE i.profil.profilId = :profilId ORDER BY i.dateDebut DESC LIMIT 1")
+    Optional<Inscription> findDerniereInscriptionByProfil(@Param("profilId") Long profilId);
     
     // Méthode pour compter les utilisateurs avec des inscriptions actives
     @Query("SELECT COUNT(DISTINCT i.profil.profilId) FROM Inscription i " +
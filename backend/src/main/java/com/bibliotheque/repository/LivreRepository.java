@@ -20,7 +20,8 @@ public interface LivreRepository extends JpaRepository<Livre, Long> {
     @Query("SELECT l FROM Livre l JOIN l.auteurs a WHERE a.nom LIKE %:nom% OR a.prenom LIKE %:prenom%")
     List<Livre> findByAuteurNomOrPrenom(@Param("nom") String nom, @Param("prenom") String prenom);
     
-    @Query("SELECT l FROM Livre l JOIN l.categories c WHERE c.nom = :categorie")
+    // Depuis la catégorie (nom unique) vers ses livres
+    @Query("SELECT l FROM Categorie c JOIN c.livres l WHERE c.nom = :categorie")
     List<Livre> findByCategorie(@Param("categorie") String categorie);
     
     @Query("SELECT l FROM Livre l WHERE l.titre LIKE %:search% OR l.isbn LIKE %:search% OR EXISTS (SELECT a FROM l.auteurs a WHERE a.nom LIKE %:search% OR a.prenom LIKE %:search%)")
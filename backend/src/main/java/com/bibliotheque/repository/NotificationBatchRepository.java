@@ -0,0 +1,99 @@
+package com.bibliotheque.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.bibliotheque.dto.NotificationACreer;
+
+// Insertion JDBC par lots des notifications (statut non lu par défaut) et de leurs lignes type, et changements de statut
+// ensemblistes, pour les traitements de masse où un save JPA par message coûte trop cher.
+@Repository
+@Timed("bibliotheque.repository.jdbc")
+public class NotificationBatchRepository {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    
+    public List<Long> insererNotifications(List<NotificationACreer> notifications) {
+        if (notifications.isEmpty()) {
+            return List.of();
+        }
+        Timestamp dateEnvoi = Timestamp.valueOf(LocalDateTime.now());
+        
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO notification (profil_id, message, date_envoi) VALUES (?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (NotificationACreer notification : notifications) {
+                    ps.setLong(1, notification.getProfilId());
+                    ps.setString(2, notification.getMessage());
+                    ps.setTimestamp(3, dateEnvoi);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                
+                List<Long> generes = new ArrayList<>(notifications.size());
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    while (rs.next()) {
+                        generes.add(rs.getLong(1));
+                    }
+                }
+                return generes;
+            }
+        });
+        if (ids == null || ids.size() != notifications.size()) {
+            throw new IllegalStateException("Identifiants de notification non récupérés après insertion en lot");
+        }
+        
+        List<Object[]> types = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            types.add(new Object[] { ids.get(i), notifications.get(i).getType() });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO notification_type (notification_id, type) VALUES (?, ?)", types);
+        
+        return ids;
+    }
+    
+    // Passe au statut donné les notifications du profil qui ne l'ont pas encore, en une requête ;
+    // filtres facultatifs (null : pas de filtre) combinés : identifiants, type, envoyées avant la date.
+    // Renvoie le nombre de notifications modifiées.
+    public int changerStatut(Long profilId, int statut, Collection<Long> notificationIds, Integer type, LocalDateTime avant) {
+        MapSqlParameterSource params = new MapSqlParameterSource("profilId", profilId).addValue("statut", statut);
+        StringBuilder filtres = new StringBuilder();
+        if (notificationIds != null) {
+            if (notificationIds.isEmpty()) {
+                return 0;
+            }
+            filtres.append("AND n.notification_id IN (:ids) ");
+            params.addValue("ids", notificationIds);
+        }
+        if (avant != null) {
+            filtres.append("AND n.date_envoi < :avant ");
+            params.addValue("avant", Timestamp.valueOf(avant));
+        }
+        if (type != null) {
+            filtres.append("AND EXISTS (SELECT 1 FROM notification_type nt WHERE nt.notification_id = n.notification_id AND nt.type = :type) ");
+            params.addValue("type", type);
+        }
+        return namedJdbcTemplate.update(
+                "UPDATE notification n SET statut = :statut WHERE n.profil_id = :profilId AND n.statut <> :statut " + filtres,
+                params);
+    }
+}
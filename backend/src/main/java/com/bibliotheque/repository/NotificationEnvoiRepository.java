@@ -0,0 +1,131 @@
+package com.bibliotheque.repository;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.bibliotheque.dto.NotificationACreer;
+import com.bibliotheque.dto.NotificationAEnvoyer;
+
+// Accès JDBC à la boîte d'envoi des notifications (table notification_envoi) : ajout dans la transaction
+// métier, réservation des lignes échues par bail, puis compte rendu de livraison.
+@Repository
+@Timed("bibliotheque.repository.jdbc")
+public class NotificationEnvoiRepository {
+
+    private static final String SQL_AJOUTER =
+            "INSERT INTO notification_envoi (profil_id, canal, type, message, statut, tentatives, date_creation, prochaine_tentative) " +
+            "VALUES (?, ?, ?, ?, 0, 0, ?, ?)";
+
+    private static final String SQL_ECHUES =
+            "SELECT envoi_id, profil_id, canal, type, message, tentatives, date_creation FROM notification_envoi " +
+            "WHERE statut = 0 AND prochaine_tentative <= :maintenant ORDER BY prochaine_tentative, envoi_id LIMIT :limite";
+
+    // Une ligne déjà réservée par une autre passe a une prochaine tentative repoussée à la fin de son bail
+    private static final String SQL_RESERVER =
+            "UPDATE notification_envoi SET prochaine_tentative = ? " +
+            "WHERE envoi_id = ? AND statut = 0 AND prochaine_tentative <= ?";
+
+    private static final String SQL_ECHEC =
+            "UPDATE notification_envoi SET statut = ?, tentatives = ?, prochaine_tentative = ?, derniere_erreur = ? " +
+            "WHERE envoi_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // Une ligne par notification et par canal
+    public void ajouter(List<NotificationACreer> notifications, Collection<String> canaux) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> lignes = new ArrayList<>(notifications.size() * canaux.size());
+        for (NotificationACreer notification : notifications) {
+            for (String canal : canaux) {
+                lignes.add(new Object[] {
+                        notification.getProfilId(), canal, notification.getType(), notification.getMessage(), maintenant, maintenant
+                });
+            }
+        }
+        jdbcTemplate.batchUpdate(SQL_AJOUTER, lignes);
+    }
+
+    public List<NotificationAEnvoyer> findEchues(LocalDateTime maintenant, int limite) {
+        return namedJdbcTemplate.query(SQL_ECHUES,
+                new MapSqlParameterSource("maintenant", Timestamp.valueOf(maintenant)).addValue("limite", limite),
+                (rs, i) -> new NotificationAEnvoyer(
+                        rs.getLong("envoi_id"),
+                        rs.getLong("profil_id"),
+                        rs.getString("canal"),
+                        rs.getInt("type"),
+                        rs.getString("message"),
+                        rs.getInt("tentatives"),
+                        rs.getTimestamp("date_creation").toLocalDateTime()));
+    }
+
+    // Réserve les lignes jusqu'à finBail ; renvoie celles effectivement réservées par cet appel
+    public Set<Long> reserver(List<NotificationAEnvoyer> notifications, LocalDateTime maintenant, LocalDateTime finBail) {
+        Set<Long> reservees = new HashSet<>();
+        if (notifications.isEmpty()) {
+            return reservees;
+        }
+        Timestamp bail = Timestamp.valueOf(finBail);
+        Timestamp avant = Timestamp.valueOf(maintenant);
+        int[] lignes = jdbcTemplate.batchUpdate(SQL_RESERVER,
+                notifications.stream().map(n -> new Object[] { bail, n.getEnvoiId(), avant }).toList());
+        for (int i = 0; i < lignes.length; i++) {
+            if (lignes[i] == Statement.SUCCESS_NO_INFO) {
+                throw new IllegalStateException("Le pilote JDBC ne renvoie pas le nombre de lignes modifiées par lot");
+            }
+            if (lignes[i] > 0) {
+                reservees.add(notifications.get(i).getEnvoiId());
+            }
+        }
+        return reservees;
+    }
+
+    public void marquerEnvoyees(Collection<Long> envoiIds, LocalDateTime dateEnvoi) {
+        if (envoiIds.isEmpty()) {
+            return;
+        }
+        namedJdbcTemplate.update(
+                "UPDATE notification_envoi SET statut = 1, tentatives = tentatives + 1, date_envoi = :dateEnvoi, " +
+                "derniere_erreur = NULL WHERE envoi_id IN (:ids)",
+                new MapSqlParameterSource("ids", envoiIds).addValue("dateEnvoi", Timestamp.valueOf(dateEnvoi)));
+    }
+
+    // Lignes {envoi_id, statut, tentatives, prochaine_tentative, erreur}
+    public void marquerEchecs(List<Object[]> echecs) {
+        if (echecs.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(SQL_ECHEC, echecs.stream().map(e -> new Object[] {
+                e[1], e[2], Timestamp.valueOf((LocalDateTime) e[3]), e[4], e[0]
+        }).toList());
+    }
+
+    public long compterEnAttente() {
+        Long nombre = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_envoi WHERE statut = 0", Long.class);
+        return nombre != null ? nombre : 0L;
+    }
+
+    // Lignes livrées avant la date : l'historique reste dans notification pour le canal application
+    public int purgerEnvoyees(LocalDateTime avant) {
+        return jdbcTemplate.update("DELETE FROM notification_envoi WHERE statut = 1 AND date_envoi < ?", Timestamp.valueOf(avant));
+    }
+}
@@ -0,0 +1,86 @@
+package com.bibliotheque.repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Accès JDBC à la table penalite_cumul : recalcul ensembliste des pénalités en cours de tous les prêts
+// en retard non rendus, suppression au retour et lectures.
+@Repository
+@Timed("bibliotheque.repository.jdbc")
+public class PenaliteCumulRepository {
+
+    // Jours pénalisés = jours après l'échéance moins le délai de grâce ; montant plafonné.
+    // Réexécutable : chaque passe réécrit la valeur au jour donné au lieu de l'incrémenter.
+    private static final String SQL_CUMULER =
+            "INSERT INTO penalite_cumul (pret_id, profil_id, jours_retard, montant, date_calcul) " +
+            "SELECT p.pret_id, p.profil_id, TIMESTAMPDIFF(DAY, p.date_fin_pret, :jour) - :grace, " +
+            "  LEAST((TIMESTAMPDIFF(DAY, p.date_fin_pret, :jour) - :grace) * :journalier, :plafond), :jour " +
+            "FROM pret p " +
+            "WHERE p.rendu = false AND p.date_fin_pret < :limite " +
+            "ON DUPLICATE KEY UPDATE jours_retard = VALUES(jours_retard), montant = VALUES(montant), date_calcul = VALUES(date_calcul)";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Recalcule au jour donné les pénalités des prêts non rendus dont l'échéance plus le délai de grâce est dépassée
+    public void cumuler(LocalDate jour, int grace, BigDecimal journalier, BigDecimal plafond) {
+        jdbcTemplate.update(SQL_CUMULER, new MapSqlParameterSource("jour", Date.valueOf(jour))
+                .addValue("grace", grace)
+                .addValue("journalier", journalier)
+                .addValue("plafond", plafond)
+                .addValue("limite", Date.valueOf(jour.minusDays(grace))));
+    }
+
+    // {nombre de prêts, montant total} calculés au jour donné
+    public Object[] totaux(LocalDate jour) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*), COALESCE(SUM(montant), 0) FROM penalite_cumul WHERE date_calcul = :jour",
+                new MapSqlParameterSource("jour", Date.valueOf(jour)),
+                (rs, i) -> new Object[] { rs.getLong(1), rs.getBigDecimal(2) });
+    }
+
+    // Prêts rendus, ou redevenus dans les temps (prolongement), depuis le dernier calcul
+    public int purgerObsoletes(LocalDate jour) {
+        return jdbcTemplate.update("DELETE FROM penalite_cumul WHERE date_calcul < :jour",
+                new MapSqlParameterSource("jour", Date.valueOf(jour)));
+    }
+
+    public void supprimer(Collection<Long> pretIds) {
+        if (pretIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM penalite_cumul WHERE pret_id IN (:ids)", new MapSqlParameterSource("ids", pretIds));
+    }
+
+    // Lignes {pret_id, profil_id, jours_retard, montant, date_calcul}, les plus élevées d'abord ; profilId null : tous les profils
+    public List<Map<String, Object>> findEnCours(Long profilId, int limite) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limite", limite);
+        String filtre = "";
+        if (profilId != null) {
+            filtre = "WHERE profil_id = :profilId ";
+            params.addValue("profilId", profilId);
+        }
+        return jdbcTemplate.query(
+                "SELECT pret_id, profil_id, jours_retard, montant, date_calcul FROM penalite_cumul " + filtre +
+                "ORDER BY montant DESC, pret_id LIMIT :limite", params, (rs, i) -> {
+                    Map<String, Object> ligne = new LinkedHashMap<>();
+                    ligne.put("pretId", rs.getLong("pret_id"));
+                    ligne.put("profilId", rs.getLong("profil_id"));
+                    ligne.put("joursRetard", rs.getInt("jours_retard"));
+                    ligne.put("montant", rs.getBigDecimal("montant"));
+                    ligne.put("dateCalcul", rs.getObject("date_calcul", LocalDate.class).toString());
+                    return ligne;
+                });
+    }
+}
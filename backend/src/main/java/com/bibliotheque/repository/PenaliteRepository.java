@@ -27,6 +27,6 @@ public interface PenaliteRepository extends JpaRepository<Penalite, Long> {
     @Query("SELECT SUM(p.montant) FROM Penalite p WHERE p.penaliteStatus.statut = 0")
     BigDecimal getTotalPenalitesActives();
     
-    @Query("SELECT p FROM Penalite p JOIN p.penaliteStatus ps WHERE p.profil.profilId = :profilId AND ps.statut = 0 AND :date BETWEEN p.dateDebut AND p.dateFin")
+    @Query("SELECT p FROM Penalite p WHERE p.profil.profilId = :profilId AND p.penaliteStatus.statut = 0 AND :date BETWEEN p.dateDebut AND p.dateFin")
     List<Penalite> findPenalitesActivesByProfilAndDate(@Param("profilId") Long profilId, @Param("date") java.time.LocalDate date);
 }
\ No newline at end of file
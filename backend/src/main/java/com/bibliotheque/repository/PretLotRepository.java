@@ -0,0 +1,184 @@
+package com.bibliotheque.repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.bibliotheque.dto.ExemplairePretable;
+import com.bibliotheque.dto.PretARendre;
+
+// Prêts et retours en lot (comptoir, retours de fin d'année) : lectures groupées par IN
+// et écritures JDBC par lots, quelques requêtes par lot au lieu de quelques-unes par exemplaire.
+@Repository
+@Timed("bibliotheque.repository.jdbc")
+public class PretLotRepository {
+
+    private static final String SQL_EXEMPLAIRES =
+            "SELECT ex.exemplaire_id, ex.livre_id, ex.version, ex.etat, " +
+            "  (SELECT COUNT(*) FROM pret p WHERE p.exemplaire_id = ex.exemplaire_id AND p.rendu = false) AS prets_actifs " +
+            "FROM exemplaire ex " +
+            "WHERE ex.exemplaire_id IN (:ids)";
+
+    // Réservation active (en attente ou disponible) du même profil sur le même exemplaire
+    private static final String SQL_PRETS =
+            "SELECT p.pret_id, p.exemplaire_id, ex.livre_id, p.profil_id, p.date_fin_pret, p.date_rendu, " +
+            "  r.reservation_id, r.statut AS reservation_statut " +
+            "FROM pret p JOIN exemplaire ex ON ex.exemplaire_id = p.exemplaire_id " +
+            "LEFT JOIN reservation r ON r.exemplaire_id = p.exemplaire_id AND r.profil_id = p.profil_id AND r.statut IN (0, 1) " +
+            "WHERE p.pret_id IN (:ids)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public Map<Long, ExemplairePretable> findExemplaires(Collection<Long> exemplaireIds) {
+        Map<Long, ExemplairePretable> exemplaires = new LinkedHashMap<>();
+        if (exemplaireIds.isEmpty()) {
+            return exemplaires;
+        }
+        namedJdbcTemplate.query(SQL_EXEMPLAIRES, new MapSqlParameterSource("ids", exemplaireIds), rs -> {
+            exemplaires.put(rs.getLong("exemplaire_id"), new ExemplairePretable(
+                    rs.getLong("exemplaire_id"),
+                    rs.getLong("livre_id"),
+                    rs.getLong("version"),
+                    rs.getObject("etat", Integer.class),
+                    rs.getLong("prets_actifs")));
+        });
+        return exemplaires;
+    }
+
+    public Map<Long, PretARendre> findPretsARendre(Collection<Long> pretIds) {
+        Map<Long, PretARendre> prets = new LinkedHashMap<>();
+        if (pretIds.isEmpty()) {
+            return prets;
+        }
+        namedJdbcTemplate.query(SQL_PRETS, new MapSqlParameterSource("ids", pretIds), rs -> {
+            // Une seule réservation active retenue par prêt, comme findActiveReservationByExemplaireAndProfil
+            prets.putIfAbsent(rs.getLong("pret_id"), new PretARendre(
+                    rs.getLong("pret_id"),
+                    rs.getLong("exemplaire_id"),
+                    rs.getLong("livre_id"),
+                    rs.getLong("profil_id"),
+                    rs.getObject("date_fin_pret", LocalDate.class),
+                    rs.getObject("date_rendu", LocalDate.class),
+                    rs.getObject("reservation_id", Long.class),
+                    rs.getObject("reservation_statut", Integer.class)));
+        });
+        return prets;
+    }
+
+    // Insère les prêts (en cours) avec leurs lignes pret_type ; renvoie les identifiants dans l'ordre des exemplaires
+    public List<Long> insererPrets(List<Long> exemplaireIds, Long profilId, Long bibliothequaireId,
+                                   LocalDate datePret, LocalDate dateFinPret, Integer typePret) {
+        if (exemplaireIds.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO pret (exemplaire_id, profil_id, bibliothequaire_id, date_pret, date_fin_pret, en_retard, rendu, version) " +
+                    "VALUES (?, ?, ?, ?, ?, false, false, 0)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (Long exemplaireId : exemplaireIds) {
+                    ps.setLong(1, exemplaireId);
+                    ps.setLong(2, profilId);
+                    ps.setLong(3, bibliothequaireId);
+                    ps.setDate(4, Date.valueOf(datePret));
+                    ps.setDate(5, Date.valueOf(dateFinPret));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                List<Long> generes = new ArrayList<>(exemplaireIds.size());
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    while (rs.next()) {
+                        generes.add(rs.getLong(1));
+                    }
+                }
+                return generes;
+            }
+        });
+        if (ids == null || ids.size() != exemplaireIds.size()) {
+            throw new IllegalStateException("Identifiants de prêt non récupérés après insertion en lot");
+        }
+
+        List<Object[]> types = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            types.add(new Object[] { id, typePret });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO pret_type (pret_id, type_pret) VALUES (?, ?)", types);
+        return ids;
+    }
+
+    // Incrémente la version des exemplaires restés à la version lue ; renvoie ceux effectivement réclamés
+    public Set<Long> reclamerExemplaires(List<ExemplairePretable> exemplaires) {
+        List<Long> ids = exemplaires.stream().map(ExemplairePretable::getExemplaireId).toList();
+        return conditionnel(ids, "UPDATE exemplaire SET version = version + 1 WHERE exemplaire_id = ? AND version = ?",
+                exemplaires.stream().map(e -> new Object[] { e.getExemplaireId(), e.getVersion() }).toList());
+    }
+
+    // Passe à rendu les prêts encore en cours ; renvoie ceux effectivement rendus par cet appel
+    public Set<Long> marquerRendus(List<Long> pretIds, LocalDate dateRendu) {
+        Date date = Date.valueOf(dateRendu);
+        return conditionnel(pretIds,
+                "UPDATE pret SET rendu = true, date_rendu = ?, version = version + 1 WHERE pret_id = ? AND rendu = false",
+                pretIds.stream().map(id -> new Object[] { date, id }).toList());
+    }
+
+    public void expirerReservations(Collection<Long> reservationIds) {
+        if (reservationIds.isEmpty()) {
+            return;
+        }
+        namedJdbcTemplate.update("UPDATE reservation SET statut = 3 WHERE reservation_id IN (:ids) AND statut < 3",
+                new MapSqlParameterSource("ids", reservationIds));
+    }
+
+    // Lignes {profil_id, pret_id, date_debut, date_fin, montant, raisons}, insérées actives
+    public void insererPenalites(List<Object[]> penalites) {
+        if (penalites.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO penalite (profil_id, pret_id, date_debut, date_fin, montant, raisons, statut) VALUES (?, ?, ?, ?, ?, ?, 0)",
+                penalites.stream().map(p -> new Object[] {
+                        p[0], p[1], Date.valueOf((LocalDate) p[2]), Date.valueOf((LocalDate) p[3]), (BigDecimal) p[4], p[5]
+                }).toList());
+    }
+
+    // Mise à jour conditionnelle par lot : identifiants dont la ligne a été modifiée (nombre de lignes > 0)
+    private Set<Long> conditionnel(List<Long> ids, String sql, List<Object[]> params) {
+        Set<Long> modifies = new HashSet<>();
+        if (ids.isEmpty()) {
+            return modifies;
+        }
+        int[] lignes = jdbcTemplate.batchUpdate(sql, params);
+        for (int i = 0; i < lignes.length; i++) {
+            if (lignes[i] == Statement.SUCCESS_NO_INFO) {
+                throw new IllegalStateException("Le pilote JDBC ne renvoie pas le nombre de lignes modifiées par lot");
+            }
+            if (lignes[i] > 0) {
+                modifies.add(ids.get(i));
+            }
+        }
+        return modifies;
+    }
+}
@@ -1,17 +1,28 @@
 package com.bibliotheque.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.bibliotheque.dto.PretResume;
 import com.bibliotheque.entities.Pret;
 
 @Repository
 public interface PretRepository extends JpaRepository<Pret, Long> {
+    // Livres des prêts, sans charger les entités : verrouillés avant la transaction de retour
+    @Query("SELECT p.exemplaire.livre.livreId FROM Pret p WHERE p.pretId = :pretId")
+    Optional<Long> findLivreIdByPretId(@Param("pretId") Long pretId);
+    
+    @Query("SELECT DISTINCT p.exemplaire.livre.livreId FROM Pret p WHERE p.pretId IN :pretIds")
+    List<Long> findLivreIdsByPretIds(@Param("pretIds") Collection<Long> pretIds);
+    
     @Query("SELECT p FROM Pret p WHERE p.profil.profilId = :profilId AND p.pretStatus.rendu = false")
     List<Pret> findPretsActifsByProfil(@Param("profilId") Long profilId);
     
@@ -36,4 +47,53 @@ public interface PretRepository extends JpaRepository<Pret, Long> {
        "(SELECT i.dateDebut FROM Inscription i WHERE i.profil.profilId = :profilId ORDER BY i.dateDebut DESC LIMIT 1) AND " +
        "(SELECT i.dateFin FROM Inscription i WHERE i.profil.profilId = :profilId ORDER BY i.dateDebut DESC LIMIT 1)")
     Long countProlongementsByProfil(@Param("profilId") Long profilId);
-}
\ No newline at end of file
+
+    // Pagination par curseur (keyset) sur (date_pret, pret_id), du plus récent au plus ancien.
+    // Une requête par chemin d'accès : prêts d'un profil (index profil_id) ou de tous les profils sur une
+    // période (index date_pret). Bornes toujours fournies (voir PretService.rechercherPrets) ; rendu et
+    // en retard ne sont que des filtres sur les lignes lues par l'index.
+    @Query("SELECT new com.bibliotheque.dto.PretResume(p.pretId, p.datePret, p.dateFinPret, p.dateRendu, " +
+           "p.pretStatus.rendu, p.pretStatus.enRetard, pt.typePret, pr.profilId, pr.nom, pr.prenom, pr.email, e.exemplaireId, e.numExemplaire) " +
+           "FROM Pret p JOIN p.profil pr JOIN p.exemplaire e LEFT JOIN p.pretType pt " +
+           "WHERE pr.profilId = :profilId " +
+           "AND p.datePret BETWEEN :depuis AND :jusqua " +
+           "AND (:rendu IS NULL OR p.pretStatus.rendu = :rendu) " +
+           "AND (:enRetard IS NULL OR p.pretStatus.enRetard = :enRetard) " +
+           "AND (p.datePret < :curseurDate OR (p.datePret = :curseurDate AND p.pretId < :curseurId)) " +
+           "ORDER BY p.datePret DESC, p.pretId DESC")
+    List<PretResume> findPretsResumesByProfil(@Param("profilId") Long profilId,
+                                              @Param("depuis") LocalDate depuis,
+                                              @Param("jusqua") LocalDate jusqua,
+                                              @Param("rendu") Boolean rendu,
+                                              @Param("enRetard") Boolean enRetard,
+                                              @Param("curseurDate") LocalDate curseurDate,
+                                              @Param("curseurId") Long curseurId,
+                                              Pageable pageable);
+
+    @Query("SELECT new com.bibliotheque.dto.PretResume(p.pretId, p.datePret, p.dateFinPret, p.dateRendu, " +
+           "p.pretStatus.rendu, p.pretStatus.enRetard, pt.typePret, pr.profilId, pr.nom, pr.prenom, pr.email, e.exemplaireId, e.numExemplaire) " +
+           "FROM Pret p JOIN p.profil pr JOIN p.exemplaire e LEFT JOIN p.pretType pt " +
+           "WHERE p.datePret BETWEEN :depuis AND :jusqua " +
+           "AND (:rendu IS NULL OR p.pretStatus.rendu = :rendu) " +
+           "AND (:enRetard IS NULL OR p.pretStatus.enRetard = :enRetard) " +
+           "AND (p.datePret < :curseurDate OR (p.datePret = :curseurDate AND p.pretId < :curseurId)) " +
+           "ORDER BY p.datePret DESC, p.pretId DESC")
+    List<PretResume> findPretsResumesByPeriode(@Param("depuis") LocalDate depuis,
+                                               @Param("jusqua") LocalDate jusqua,
+                                               @Param("rendu") Boolean rendu,
+                                               @Param("enRetard") Boolean enRetard,
+                                               @Param("curseurDate") LocalDate curseurDate,
+                                               @Param("curseurId") Long curseurId,
+                                               Pageable pageable);
+
+    // Activité récente du tableau de bord : id, titre, nom, prénom, date (10 plus récents)
+    @Query("SELECT p.pretId, l.titre, pr.nom, pr.prenom, p.datePret FROM Pret p " +
+           "JOIN p.exemplaire e JOIN e.livre l JOIN p.profil pr " +
+           "WHERE p.datePret >= :depuis ORDER BY p.datePret DESC, p.pretId DESC LIMIT 10")
+    List<Object[]> findRecentPrets(@Param("depuis") LocalDate depuis);
+
+    @Query("SELECT p.pretId, l.titre, pr.nom, pr.prenom, p.dateRendu FROM Pret p " +
+           "JOIN p.exemplaire e JOIN e.livre l JOIN p.profil pr " +
+           "WHERE p.dateRendu >= :depuis ORDER BY p.dateRendu DESC, p.pretId DESC LIMIT 10")
+    List<Object[]> findRecentReturns(@Param("depuis") LocalDate depuis);
+}
@@ -0,0 +1,10 @@
+package com.bibliotheque.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.bibliotheque.entities.ProlongementPret;
+
+@Repository
+public interface ProlongementPretRepository extends JpaRepository<ProlongementPret, Long> {
+}
@@ -7,10 +7,16 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+    // Livre d'une réservation, sans charger l'entité
+    @Query("SELECT r.exemplaire.livre.livreId FROM Reservation r WHERE r.reservationId = :reservationId")
+    Optional<Long> findLivreIdByReservationId(@Param("reservationId") Long reservationId);
+    
     @Query("SELECT r FROM Reservation r WHERE r.profil.profilId = :profilId AND r.reservationStatus.statut IN (0, 1)")
     List<Reservation> findReservationsActivesByProfil(@Param("profilId") Long profilId);
     
@@ -23,9 +29,23 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
     @Query("SELECT r FROM Reservation r WHERE r.dateExpiration < :date AND r.reservationStatus.statut IN (0, 1)")
     List<Reservation> findReservationsExpirees(@Param("date") LocalDate date);
     
+    // Livres des réservations expirées, à verrouiller avant de lire les réservations elles-mêmes
+    @Query("SELECT DISTINCT r.exemplaire.livre.livreId FROM Reservation r WHERE r.dateExpiration < :date AND r.reservationStatus.statut IN (0, 1)")
+    List<Long> findLivresReservationsExpirees(@Param("date") LocalDate date);
+    
+    @Query("SELECT r FROM Reservation r WHERE r.exemplaire.livre.livreId IN :livreIds AND r.dateExpiration < :date " +
+           "AND r.reservationStatus.statut IN (0, 1)")
+    List<Reservation> findReservationsExpireesByLivres(@Param("livreIds") Collection<Long> livreIds, @Param("date") LocalDate date);
+    
     @Query("SELECT r FROM Reservation r WHERE r.exemplaire.livre.livreId = :livreId AND r.reservationStatus.statut = 0 ORDER BY r.dateResa ASC")
     List<Reservation> findReservationsEnAttenteByLivre(@Param("livreId") Long livreId);
     
     @Query("SELECT r FROM Reservation r WHERE r.exemplaire.exemplaireId = :exemplaireId AND r.profil.profilId = :profilId AND r.reservationStatus.statut IN (0, 1)")
     Reservation findActiveReservationByExemplaireAndProfil(@Param("exemplaireId") Long exemplaireId, @Param("profilId") Long profilId);
+    
+    // Activité récente du tableau de bord : id, titre, nom, prénom, date (10 plus récentes)
+    @Query("SELECT r.reservationId, l.titre, pr.nom, pr.prenom, r.dateResa FROM Reservation r " +
+           "JOIN r.exemplaire e JOIN e.livre l JOIN r.profil pr " +
+           "WHERE r.dateResa >= :depuis ORDER BY r.dateResa DESC, r.reservationId DESC LIMIT 10")
+    List<Object[]> findRecentReservations(@Param("depuis") LocalDate depuis);
 }
\ No newline at end of file
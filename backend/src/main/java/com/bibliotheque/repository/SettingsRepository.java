@@ -1,9 +1,13 @@
 package com.bibliotheque.repository;
 
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import com.bibliotheque.config.CacheConfig;
 import com.bibliotheque.entities.Settings;
 
 public interface SettingsRepository extends JpaRepository<Settings, Long> {
+    // Entité sans association : rien à charger paresseusement hors de sa session
+    @Cacheable(cacheNames = CacheConfig.SETTINGS, unless = "#result == null")
     Settings findTopByOrderByIdDesc();
-} 
\ No newline at end of file
+} 
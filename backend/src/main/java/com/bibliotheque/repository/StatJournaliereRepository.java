@@ -0,0 +1,178 @@
+package com.bibliotheque.repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Accès JDBC à la table stat_journaliere : calcul des agrégats d'un jour depuis les tables sources,
+// écriture des lignes du jour et lectures par période.
+@Repository
+@Timed("bibliotheque.repository.jdbc")
+public class StatJournaliereRepository {
+
+    public static final String PRETS = "prets";
+    public static final String RETOURS = "retours";
+    public static final String NOUVEAUX_UTILISATEURS = "nouveaux_utilisateurs";
+    public static final String EMPRUNTS_LIVRE = "emprunts_livre";
+    public static final String NOUVEAUX_UTILISATEURS_TYPE = "nouveaux_utilisateurs_type";
+
+    private static final String SQL_PRETS_JOUR =
+            "SELECT e.livre_id, COUNT(*) FROM pret p JOIN exemplaire e ON e.exemplaire_id = p.exemplaire_id " +
+            "WHERE p.date_pret = :jour GROUP BY e.livre_id";
+
+    private static final String SQL_RETOURS_JOUR =
+            "SELECT COUNT(*) FROM pret WHERE date_rendu = :jour";
+
+    private static final String SQL_PROFILS_JOUR =
+            "SELECT a.type_id, COUNT(*) FROM profil p JOIN adherant a ON a.adherant_id = p.adherant_id " +
+            "WHERE p.date_inscription = :jour GROUP BY a.type_id";
+
+    private static final String SQL_INSERER =
+            "INSERT INTO stat_journaliere (jour, metrique, cle, valeur) VALUES (:jour, :metrique, :cle, :valeur)";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Lignes {metrique, cle, valeur} du jour, calculées depuis pret et profil
+    public List<Object[]> agregerJour(LocalDate jour) {
+        MapSqlParameterSource params = new MapSqlParameterSource("jour", Date.valueOf(jour));
+        List<Object[]> lignes = new ArrayList<>();
+
+        List<Object[]> parLivre = new ArrayList<>();
+        jdbcTemplate.query(SQL_PRETS_JOUR, params, rs -> {
+            parLivre.add(new Object[] { EMPRUNTS_LIVRE, rs.getLong(1), rs.getLong(2) });
+        });
+        lignes.addAll(parLivre);
+        lignes.add(new Object[] { PRETS, 0L, parLivre.stream().mapToLong(l -> (Long) l[2]).sum() });
+
+        Long retours = jdbcTemplate.queryForObject(SQL_RETOURS_JOUR, params, Long.class);
+        lignes.add(new Object[] { RETOURS, 0L, retours != null ? retours : 0L });
+
+        List<Object[]> parType = new ArrayList<>();
+        jdbcTemplate.query(SQL_PROFILS_JOUR, params, rs -> {
+            parType.add(new Object[] { NOUVEAUX_UTILISATEURS_TYPE, rs.getLong(1), rs.getLong(2) });
+        });
+        lignes.addAll(parType);
+        lignes.add(new Object[] { NOUVEAUX_UTILISATEURS, 0L, parType.stream().mapToLong(l -> (Long) l[2]).sum() });
+        return lignes;
+    }
+
+    public long compterRetours(LocalDate jour) {
+        Long retours = jdbcTemplate.queryForObject(SQL_RETOURS_JOUR,
+                new MapSqlParameterSource("jour", Date.valueOf(jour)), Long.class);
+        return retours != null ? retours : 0L;
+    }
+
+    // Remplace les lignes du jour pour les métriques données ; les valeurs nulles ne sont pas stockées
+    public void remplacerJour(LocalDate jour, Collection<String> metriques, List<Object[]> lignes) {
+        jdbcTemplate.update("DELETE FROM stat_journaliere WHERE jour = :jour AND metrique IN (:metriques)",
+                new MapSqlParameterSource("jour", Date.valueOf(jour)).addValue("metriques", metriques));
+        List<MapSqlParameterSource> params = new ArrayList<>();
+        for (Object[] ligne : lignes) {
+            if (((Long) ligne[2]) > 0) {
+                params.add(new MapSqlParameterSource("jour", Date.valueOf(jour))
+                        .addValue("metrique", ligne[0])
+                        .addValue("cle", ligne[1])
+                        .addValue("valeur", ligne[2]));
+            }
+        }
+        if (!params.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INSERER, params.toArray(new MapSqlParameterSource[0]));
+        }
+    }
+
+    public void viderTout() {
+        jdbcTemplate.update("DELETE FROM stat_journaliere", new MapSqlParameterSource());
+    }
+
+    public LocalDate premierJourActivite() {
+        Date jour = jdbcTemplate.queryForObject(
+                "SELECT LEAST(COALESCE((SELECT MIN(date_pret) FROM pret), CURRENT_DATE), " +
+                "COALESCE((SELECT MIN(date_inscription) FROM profil), CURRENT_DATE))",
+                new MapSqlParameterSource(), Date.class);
+        return jour != null ? jour.toLocalDate() : LocalDate.now();
+    }
+
+    public long somme(String metrique, LocalDate debut, LocalDate fin) {
+        Long somme = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(valeur), 0) FROM stat_journaliere " +
+                "WHERE metrique = :metrique AND jour BETWEEN :debut AND :fin",
+                periode(debut, fin).addValue("metrique", metrique), Long.class);
+        return somme != null ? somme : 0L;
+    }
+
+    // {metrique, annee, mois, total} pour chaque mois de la période ayant une activité
+    public List<Object[]> sommesParMois(Collection<String> metriques, LocalDate debut, LocalDate fin) {
+        return jdbcTemplate.query(
+                "SELECT metrique, YEAR(jour) AS annee, MONTH(jour) AS mois, SUM(valeur) AS total FROM stat_journaliere " +
+                "WHERE metrique IN (:metriques) AND jour BETWEEN :debut AND :fin " +
+                "GROUP BY metrique, YEAR(jour), MONTH(jour)",
+                periode(debut, fin).addValue("metriques", metriques),
+                (rs, i) -> new Object[] { rs.getString("metrique"), rs.getInt("annee"), rs.getInt("mois"), rs.getLong("total") });
+    }
+
+    // Sommes par clé, par ordre décroissant ; limitées aux clés données si cles n'est pas null
+    public Map<Long, Long> sommesParCle(String metrique, LocalDate debut, LocalDate fin, Collection<Long> cles, int limite) {
+        MapSqlParameterSource params = periode(debut, fin).addValue("metrique", metrique).addValue("limite", limite);
+        String filtre = "";
+        if (cles != null) {
+            if (cles.isEmpty()) {
+                return Map.of();
+            }
+            filtre = "AND cle IN (:cles) ";
+            params.addValue("cles", cles);
+        }
+        Map<Long, Long> sommes = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT cle, SUM(valeur) AS total FROM stat_journaliere " +
+                "WHERE metrique = :metrique AND jour BETWEEN :debut AND :fin " + filtre +
+                "GROUP BY cle ORDER BY total DESC, cle LIMIT :limite",
+                params, rs -> {
+                    sommes.put(rs.getLong("cle"), rs.getLong("total"));
+                });
+        return sommes;
+    }
+
+    // livre_id -> {titre, auteurs}
+    public Map<Long, String[]> titresEtAuteurs(Collection<Long> livreIds) {
+        Map<Long, String[]> livres = new LinkedHashMap<>();
+        if (livreIds.isEmpty()) {
+            return livres;
+        }
+        jdbcTemplate.query(
+                "SELECT l.livre_id, l.titre, a.prenom, a.nom FROM livre l " +
+                "LEFT JOIN livre_auteur la ON la.livre_id = l.livre_id LEFT JOIN auteur a ON a.auteur_id = la.auteur_id " +
+                "WHERE l.livre_id IN (:ids) ORDER BY l.livre_id, a.auteur_id",
+                new MapSqlParameterSource("ids", livreIds), rs -> {
+                    String[] livre = livres.computeIfAbsent(rs.getLong(1), k -> new String[] { null, "" });
+                    livre[0] = rs.getString(2);
+                    if (rs.getString(4) != null) {
+                        String auteur = rs.getString(3) != null ? rs.getString(3) + " " + rs.getString(4) : rs.getString(4);
+                        livre[1] = livre[1].isEmpty() ? auteur : livre[1] + ", " + auteur;
+                    }
+                });
+        return livres;
+    }
+
+    public Map<Long, String> typesAdherant() {
+        Map<Long, String> types = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, type FROM adherant_type", new MapSqlParameterSource(), rs -> {
+            types.put(rs.getLong(1), rs.getString(2));
+        });
+        return types;
+    }
+
+    private static MapSqlParameterSource periode(LocalDate debut, LocalDate fin) {
+        return new MapSqlParameterSource("debut", Date.valueOf(debut)).addValue("fin", Date.valueOf(fin));
+    }
+}
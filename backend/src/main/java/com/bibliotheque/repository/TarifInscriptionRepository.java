@@ -1,10 +1,27 @@
 package com.bibliotheque.repository;
 
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.bibliotheque.config.CacheConfig;
+import com.bibliotheque.dto.TarifResume;
 import com.bibliotheque.entities.TarifInscription;
 
 @Repository
 public interface TarifInscriptionRepository extends JpaRepository<TarifInscription, Long> {
-} 
\ No newline at end of file
+    @Cacheable(cacheNames = CacheConfig.TARIFS, key = "'tous'")
+    @Query("SELECT new com.bibliotheque.dto.TarifResume(t.tarifId, t.description, t.montant, t.nbMois) " +
+           "FROM TarifInscription t ORDER BY t.tarifId")
+    List<TarifResume> findResumes();
+    
+    @Cacheable(cacheNames = CacheConfig.TARIFS, unless = "#result == null")
+    @Query("SELECT new com.bibliotheque.dto.TarifResume(t.tarifId, t.description, t.montant, t.nbMois) " +
+           "FROM TarifInscription t WHERE t.tarifId = :id")
+    Optional<TarifResume> findResumeById(@Param("id") Long id);
+} 
@@ -0,0 +1,26 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.utils.ApresCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+// Point unique de vidage des caches de données de référence (CacheConfig.CACHES) après une écriture.
+// Vidés après commit : vidés avant, une lecture concurrente remettrait en cache l'ancienne valeur
+// pour toute la durée d'expiration.
+@Service
+public class CachesReference {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    public void vider(String nom) {
+        ApresCommit.executer(() -> {
+            Cache cache = cacheManager.getCache(nom);
+            if (cache != null) {
+                cache.clear();
+            }
+        });
+    }
+}
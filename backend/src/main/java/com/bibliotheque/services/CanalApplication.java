@@ -0,0 +1,43 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.dto.NotificationACreer;
+import com.bibliotheque.dto.NotificationAEnvoyer;
+import com.bibliotheque.repository.NotificationBatchRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Notifications dans l'application : lignes notification et notification_type insérées par lot
+@Component
+public class CanalApplication implements CanalNotification {
+
+    public static final String NOM = "application";
+
+    @Autowired
+    private NotificationBatchRepository notificationBatchRepository;
+
+    @Autowired
+    private CompteurNonLues compteurNonLues;
+
+    @Override
+    public String getNom() {
+        return NOM;
+    }
+
+    @Override
+    public boolean isTransactionnel() {
+        return true;
+    }
+
+    @Override
+    public Map<Long, String> livrer(List<NotificationAEnvoyer> lot) {
+        notificationBatchRepository.insererNotifications(lot.stream()
+                .map(n -> new NotificationACreer(n.getProfilId(), n.getMessage(), n.getType()))
+                .toList());
+        compteurNonLues.ajoutees(lot.stream().collect(Collectors.toMap(NotificationAEnvoyer::getProfilId, n -> 1, Integer::sum)));
+        return Map.of();
+    }
+}
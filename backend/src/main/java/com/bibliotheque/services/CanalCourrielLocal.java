@@ -0,0 +1,17 @@
+package com.bibliotheque.services;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class CanalCourrielLocal extends CanalLocal {
+
+    @Override
+    public String getNom() {
+        return "courriel";
+    }
+
+    @Override
+    protected String getColonneContact() {
+        return "email";
+    }
+}
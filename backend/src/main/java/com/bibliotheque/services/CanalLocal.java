@@ -0,0 +1,52 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.dto.NotificationAEnvoyer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Canal externe simulé en local : le message est journalisé à la place de l'envoi, après lecture
+// du contact des profils du lot en une requête. Un profil sans contact est un échec de livraison.
+abstract class CanalLocal implements CanalNotification {
+
+    private static final Logger log = LoggerFactory.getLogger(CanalLocal.class);
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Colonne de profil contenant le contact (email, telephone)
+    protected abstract String getColonneContact();
+
+    @Override
+    public boolean isTransactionnel() {
+        return false;
+    }
+
+    @Override
+    public Map<Long, String> livrer(List<NotificationAEnvoyer> lot) {
+        Map<Long, String> contacts = new HashMap<>();
+        jdbcTemplate.query("SELECT profil_id, " + getColonneContact() + " FROM profil WHERE profil_id IN (:ids)",
+                new MapSqlParameterSource("ids", lot.stream().map(NotificationAEnvoyer::getProfilId).distinct().toList()),
+                rs -> {
+                    contacts.put(rs.getLong(1), rs.getString(2));
+                });
+
+        Map<Long, String> echecs = new LinkedHashMap<>();
+        for (NotificationAEnvoyer notification : lot) {
+            String contact = contacts.get(notification.getProfilId());
+            if (contact == null || contact.isBlank()) {
+                echecs.put(notification.getEnvoiId(), "Profil " + notification.getProfilId() + " sans " + getColonneContact());
+            } else {
+                log.info("[{}] {} : {}", getNom(), contact, notification.getMessage());
+            }
+        }
+        return echecs;
+    }
+}
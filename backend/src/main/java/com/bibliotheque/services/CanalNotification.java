@@ -0,0 +1,19 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.dto.NotificationAEnvoyer;
+
+import java.util.List;
+import java.util.Map;
+
+// Canal de livraison des notifications de la boîte d'envoi (bibliotheque.notifications.canaux)
+public interface CanalNotification {
+
+    String getNom();
+
+    // Vrai si la livraison n'écrit qu'en base : elle est alors validée dans la même transaction
+    // que le compte rendu, sans doublon possible. Sinon la livraison est au moins une fois.
+    boolean isTransactionnel();
+
+    // Livre le lot ; renvoie les envois en échec (envoi_id -> erreur). Une exception fait échouer tout le lot.
+    Map<Long, String> livrer(List<NotificationAEnvoyer> lot);
+}
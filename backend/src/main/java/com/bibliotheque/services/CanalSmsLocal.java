@@ -0,0 +1,17 @@
+package com.bibliotheque.services;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class CanalSmsLocal extends CanalLocal {
+
+    @Override
+    public String getNom() {
+        return "sms";
+    }
+
+    @Override
+    protected String getColonneContact() {
+        return "telephone";
+    }
+}
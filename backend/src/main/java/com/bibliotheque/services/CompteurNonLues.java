@@ -0,0 +1,185 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.utils.ApresCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Nombre de notifications non lues par profil, tenu en mémoire et poussé aux clients abonnés
+// (Server-Sent Events) au lieu d'un COUNT à chaque interrogation. Un compteur n'existe que tant que le
+// profil a au moins un flux ouvert : chargé à l'abonnement, tenu à jour après commit par les écritures
+// (livraison dans l'application, notification lue, tout marquer comme lu), réconcilié périodiquement avec
+// la base et oublié au départ du dernier abonné. Un profil sans abonné est compté en base à chaque lecture.
+@Service
+public class CompteurNonLues {
+
+    private static final Logger log = LoggerFactory.getLogger(CompteurNonLues.class);
+
+    private static final int PROFILS_PAR_REQUETE = 500;
+
+    private static final String SQL_NON_LUES =
+            "SELECT n.profil_id, COUNT(*) FROM notification n " +
+            "WHERE n.statut = 0 AND n.profil_id IN (:profilIds) GROUP BY n.profil_id";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${bibliotheque.notifications.flux.expiration-ms:1800000}")
+    private long expirationFluxMs;
+
+    private final Map<Long, AtomicLong> compteurs = new ConcurrentHashMap<>();
+    private final Map<Long, Set<SseEmitter>> abonnes = new ConcurrentHashMap<>();
+
+    public long get(Long profilId) {
+        return compteur(profilId).get();
+    }
+
+    // Flux du profil : la valeur courante à l'abonnement, puis chaque changement
+    public SseEmitter abonner(Long profilId) {
+        SseEmitter flux = new SseEmitter(expirationFluxMs);
+        abonnes.compute(profilId, (k, fluxProfil) -> {
+            Set<SseEmitter> ouverts = fluxProfil != null ? fluxProfil : new CopyOnWriteArraySet<>();
+            ouverts.add(flux);
+            return ouverts;
+        });
+        Runnable desabonner = () -> retirer(profilId, flux);
+        flux.onCompletion(desabonner);
+        flux.onTimeout(desabonner);
+        flux.onError(e -> desabonner.run());
+        envoyer(profilId, flux, get(profilId));
+        return flux;
+    }
+
+    // Notifications insérées, par profil
+    public void ajoutees(Map<Long, Integer> parProfil) {
+        ApresCommit.executer(() -> parProfil.forEach((profilId, nombre) -> modifier(profilId, nombre)));
+    }
+
+    public void lues(Long profilId, int nombre) {
+        if (nombre > 0) {
+            ApresCommit.executer(() -> modifier(profilId, -nombre));
+        }
+    }
+
+    public int getAbonnes() {
+        return abonnes.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${bibliotheque.notifications.reconciliation-ms:600000}",
+               initialDelayString = "${bibliotheque.notifications.reconciliation-ms:600000}")
+    public void reconciliationPlanifiee() {
+        reconcilier();
+    }
+
+    // Recompte les profils abonnés et corrige ceux qui divergent (écriture concurrente d'un chargement)
+    public int reconcilier() {
+        List<Long> profilIds = new ArrayList<>(compteurs.keySet());
+        int divergences = 0;
+        for (int i = 0; i < profilIds.size(); i += PROFILS_PAR_REQUETE) {
+            List<Long> lot = profilIds.subList(i, Math.min(i + PROFILS_PAR_REQUETE, profilIds.size()));
+            Map<Long, Long> base = charger(lot);
+            for (Long profilId : lot) {
+                long attendu = base.getOrDefault(profilId, 0L);
+                AtomicLong compteur = compteurs.get(profilId);
+                if (compteur != null && compteur.getAndSet(attendu) != attendu) {
+                    divergences++;
+                    publier(profilId, attendu);
+                }
+            }
+        }
+        if (divergences > 0) {
+            log.warn("Notifications non lues : {} profil(s) corrigé(s) sur {}", divergences, profilIds.size());
+        }
+        return divergences;
+    }
+
+    // Commentaire SSE périodique : détecte les connexions fermées côté client et traverse les proxys à délai d'inactivité
+    @Scheduled(fixedDelayString = "${bibliotheque.notifications.flux.battement-ms:25000}")
+    public void battement() {
+        abonnes.forEach((profilId, fluxProfil) -> {
+            for (SseEmitter flux : fluxProfil) {
+                try {
+                    flux.send(SseEmitter.event().comment("battement"));
+                } catch (IOException | IllegalStateException e) {
+                    retirer(profilId, flux);
+                }
+            }
+        });
+    }
+
+    // Compteur chargé retenu seulement si le profil a un abonné, sous le même verrou que retirer
+    private AtomicLong compteur(Long profilId) {
+        AtomicLong compteur = compteurs.get(profilId);
+        if (compteur == null) {
+            AtomicLong charge = new AtomicLong(charger(List.of(profilId)).getOrDefault(profilId, 0L));
+            abonnes.computeIfPresent(profilId, (k, fluxProfil) -> {
+                compteurs.putIfAbsent(profilId, charge);
+                return fluxProfil;
+            });
+            compteur = compteurs.getOrDefault(profilId, charge);
+        }
+        return compteur;
+    }
+
+    private void modifier(Long profilId, long delta) {
+        AtomicLong compteur = compteurs.get(profilId);
+        if (compteur == null) {
+            // Profil sans abonné : rien à tenir à jour
+            return;
+        }
+        publier(profilId, compteur.updateAndGet(valeur -> Math.max(0, valeur + delta)));
+    }
+
+    private void publier(Long profilId, long nonLues) {
+        Set<SseEmitter> fluxProfil = abonnes.get(profilId);
+        if (fluxProfil != null) {
+            fluxProfil.forEach(flux -> envoyer(profilId, flux, nonLues));
+        }
+    }
+
+    private void envoyer(Long profilId, SseEmitter flux, long nonLues) {
+        try {
+            flux.send(SseEmitter.event().name("non-lues").data(Map.of("profilId", profilId, "nonLues", nonLues)));
+        } catch (IOException | IllegalStateException e) {
+            retirer(profilId, flux);
+        }
+    }
+
+    // Départ du dernier abonné : le compteur du profil est oublié avec lui
+    private void retirer(Long profilId, SseEmitter flux) {
+        abonnes.computeIfPresent(profilId, (k, fluxProfil) -> {
+            fluxProfil.remove(flux);
+            if (!fluxProfil.isEmpty()) {
+                return fluxProfil;
+            }
+            compteurs.remove(profilId);
+            return null;
+        });
+    }
+
+    // Hors transaction : la requête d'abonnement reste ouverte tant que le client écoute, et une transaction
+    // y ferait garder une connexion du pool par la session JPA de la requête (open-in-view) jusqu'à la fin du flux
+    private Map<Long, Long> charger(List<Long> profilIds) {
+        Map<Long, Long> nonLues = new HashMap<>();
+        jdbcTemplate.query(SQL_NON_LUES, new MapSqlParameterSource("profilIds", profilIds), rs -> {
+            nonLues.put(rs.getLong(1), rs.getLong(2));
+        });
+        return nonLues;
+    }
+}
@@ -0,0 +1,199 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.entities.Inscription;
+import com.bibliotheque.utils.ApresCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Compteurs du tableau de bord tenus en mémoire.
+// Les écritures (livres, inscriptions, prêts, réservations, pénalités) appliquent un delta après commit ;
+// un recalcul complet périodique, et à chaque changement de jour, corrige toute dérive.
+@Service
+public class CompteursTableauDeBord {
+
+    private static final Logger log = LoggerFactory.getLogger(CompteursTableauDeBord.class);
+
+    private static final String SQL_UTILISATEURS_ACTIFS =
+            "SELECT COUNT(DISTINCT i.profil_id) FROM inscription i " +
+            "JOIN (SELECT profil_id, MAX(date_debut) AS date_debut FROM inscription GROUP BY profil_id) d " +
+            "  ON d.profil_id = i.profil_id AND d.date_debut = i.date_debut " +
+            "WHERE i.date_fin >= :date";
+
+    private static final String SQL_RECALCUL =
+            "SELECT (SELECT COUNT(*) FROM livre) AS livres, " +
+            "  (" + SQL_UTILISATEURS_ACTIFS + ") AS utilisateurs, " +
+            "  (SELECT COUNT(*) FROM pret WHERE date_rendu IS NULL) AS prets_actifs, " +
+            "  (SELECT COUNT(*) FROM reservation WHERE statut = 0) AS reservations_en_attente, " +
+            "  (SELECT COUNT(*) FROM pret WHERE date_rendu IS NULL AND date_fin_pret < :date) AS prets_en_retard, " +
+            "  (SELECT COALESCE(SUM(p.montant), 0) FROM penalite p WHERE p.statut = 0) AS penalites";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final AtomicLong totalLivres = new AtomicLong();
+    private final AtomicLong utilisateursActifs = new AtomicLong();
+    private final AtomicLong pretsActifs = new AtomicLong();
+    private final AtomicLong reservationsEnAttente = new AtomicLong();
+    private final AtomicLong pretsEnRetard = new AtomicLong();
+    private final AtomicReference<BigDecimal> totalPenalites = new AtomicReference<>(BigDecimal.ZERO);
+
+    private volatile LocalDate dateCalcul;
+
+    // Un seul recalcul à la fois (ReentrantLock : voir ExecutionConfig)
+    private final ReentrantLock verrou = new ReentrantLock();
+    private volatile LocalDateTime dernierRecalcul;
+
+    public Map<String, Object> getCompteurs() {
+        // Les prêts en retard et les inscriptions actives dépendent de la date du jour
+        if (!LocalDate.now().equals(dateCalcul)) {
+            recalculer();
+        }
+        Map<String, Object> compteurs = new HashMap<>();
+        compteurs.put("totalBooks", totalLivres.get());
+        compteurs.put("totalUsers", utilisateursActifs.get());
+        compteurs.put("activeLoans", pretsActifs.get());
+        compteurs.put("pendingReservations", reservationsEnAttente.get());
+        compteurs.put("overdueLoans", pretsEnRetard.get());
+        compteurs.put("totalPenalties", totalPenalites.get().doubleValue());
+        compteurs.put("lastRecompute", dernierRecalcul);
+        return compteurs;
+    }
+
+    @Scheduled(fixedDelayString = "${bibliotheque.tableau-de-bord.recalcul-ms:300000}",
+               initialDelayString = "${bibliotheque.tableau-de-bord.recalcul-ms:300000}")
+    public void recalculPlanifie() {
+        recalculer();
+    }
+
+    @Scheduled(cron = "${bibliotheque.tableau-de-bord.cron-jour:0 0 0 * * *}")
+    public void changementDeJour() {
+        recalculer();
+    }
+
+    public void recalculer() {
+        verrou.lock();
+        try {
+            recalculerSousVerrou();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private void recalculerSousVerrou() {
+        LocalDate date = LocalDate.now();
+        jdbcTemplate.query(SQL_RECALCUL, new MapSqlParameterSource("date", Date.valueOf(date)), rs -> {
+            corriger("totalBooks", totalLivres, rs.getLong("livres"));
+            corriger("totalUsers", utilisateursActifs, rs.getLong("utilisateurs"));
+            corriger("activeLoans", pretsActifs, rs.getLong("prets_actifs"));
+            corriger("pendingReservations", reservationsEnAttente, rs.getLong("reservations_en_attente"));
+            corriger("overdueLoans", pretsEnRetard, rs.getLong("prets_en_retard"));
+            BigDecimal penalites = rs.getBigDecimal("penalites");
+            BigDecimal precedent = totalPenalites.getAndSet(penalites != null ? penalites : BigDecimal.ZERO);
+            if (dateCalcul != null && precedent.compareTo(totalPenalites.get()) != 0) {
+                log.debug("Compteur totalPenalties corrigé : {} -> {}", precedent, totalPenalites.get());
+            }
+        });
+        dateCalcul = date;
+        dernierRecalcul = LocalDateTime.now();
+    }
+
+    public void livreAjoute() {
+        ApresCommit.executer(totalLivres::incrementAndGet);
+    }
+
+    public void livreSupprime() {
+        ApresCommit.executer(totalLivres::decrementAndGet);
+    }
+
+    public void pretCree() {
+        ApresCommit.executer(pretsActifs::incrementAndGet);
+    }
+
+    public void pretRendu(LocalDate dateFinPret) {
+        boolean enRetard = dateFinPret.isBefore(LocalDate.now());
+        ApresCommit.executer(() -> {
+            pretsActifs.decrementAndGet();
+            if (enRetard) {
+                pretsEnRetard.decrementAndGet();
+            }
+        });
+    }
+
+    public void pretProlonge(LocalDate ancienneDateFin, LocalDate nouvelleDateFin) {
+        LocalDate aujourdhui = LocalDate.now();
+        if (ancienneDateFin.isBefore(aujourdhui) && !nouvelleDateFin.isBefore(aujourdhui)) {
+            ApresCommit.executer(pretsEnRetard::decrementAndGet);
+        }
+    }
+
+    public void reservationCreee() {
+        ApresCommit.executer(reservationsEnAttente::incrementAndGet);
+    }
+
+    public void reservationStatutModifie(Integer ancienStatut, Integer nouveauStatut) {
+        boolean avant = ancienStatut != null && ancienStatut == 0;
+        boolean apres = nouveauStatut != null && nouveauStatut == 0;
+        if (avant && !apres) {
+            ApresCommit.executer(reservationsEnAttente::decrementAndGet);
+        } else if (!avant && apres) {
+            ApresCommit.executer(reservationsEnAttente::incrementAndGet);
+        }
+    }
+
+    public void penaliteEmise(BigDecimal montant) {
+        ApresCommit.executer(() -> totalPenalites.accumulateAndGet(montant, BigDecimal::add));
+    }
+
+    public void penaliteSoldee(BigDecimal montant) {
+        ApresCommit.executer(() -> totalPenalites.accumulateAndGet(montant, BigDecimal::subtract));
+    }
+
+    // Un profil est actif si sa dernière inscription (par date de début) court encore : le delta se déduit
+    // de la dernière inscription du profil avant l'écriture (null s'il n'en avait pas)
+    public void inscriptionAjoutee(Inscription precedente, Inscription nouvelle) {
+        LocalDate aujourdhui = LocalDate.now();
+        boolean actifAvant = precedente != null && !precedente.getDateFin().isBefore(aujourdhui);
+        boolean nouvelleActive = !nouvelle.getDateFin().isBefore(aujourdhui);
+        boolean actifApres;
+        if (precedente == null || nouvelle.getDateDebut().isAfter(precedente.getDateDebut())) {
+            actifApres = nouvelleActive;
+        } else if (nouvelle.getDateDebut().isEqual(precedente.getDateDebut())) {
+            actifApres = actifAvant || nouvelleActive;
+        } else {
+            actifApres = actifAvant;
+        }
+        if (!actifAvant && actifApres) {
+            ApresCommit.executer(utilisateursActifs::incrementAndGet);
+        } else if (actifAvant && !actifApres) {
+            ApresCommit.executer(utilisateursActifs::decrementAndGet);
+        }
+    }
+
+    public void profilSupprime(Inscription derniere) {
+        if (derniere != null && !derniere.getDateFin().isBefore(LocalDate.now())) {
+            ApresCommit.executer(utilisateursActifs::decrementAndGet);
+        }
+    }
+
+    private void corriger(String nom, AtomicLong compteur, long valeur) {
+        long precedent = compteur.getAndSet(valeur);
+        if (dateCalcul != null && precedent != valeur) {
+            log.debug("Compteur {} corrigé : {} -> {}", nom, precedent, valeur);
+        }
+    }
+}
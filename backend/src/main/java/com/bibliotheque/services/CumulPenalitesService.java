@@ -0,0 +1,100 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.dto.CumulPenalitesRapport;
+import com.bibliotheque.entities.Settings;
+import com.bibliotheque.repository.PenaliteCumulRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Pénalités en cours des prêts en retard non rendus, recalculées chaque nuit en une requête ensembliste
+// (délai de grâce et plafond maxPenalty appliqués), et calcul de la pénalité définitive au retour,
+// selon la même règle : jours après échéance moins le délai de grâce, fois dailyPenalty, plafonné.
+@Service
+public class CumulPenalitesService {
+
+    private static final Logger log = LoggerFactory.getLogger(CumulPenalitesService.class);
+
+    // Plus grand montant d'une colonne DECIMAL(10,2) : maxPenalty nul ou négatif signifie sans plafond
+    private static final BigDecimal SANS_PLAFOND = new BigDecimal("99999999.99");
+
+    @Autowired
+    private PenaliteCumulRepository penaliteCumulRepository;
+
+    @Autowired
+    private SettingsService settingsService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean enCours = new AtomicBoolean(false);
+
+    private final AtomicReference<CumulPenalitesRapport> dernierRapport = new AtomicReference<>();
+
+    @Scheduled(cron = "${bibliotheque.penalites.cron:0 30 2 * * *}")
+    public void executerPlanifie() {
+        executer(LocalDate.now());
+    }
+
+    public CumulPenalitesRapport getDernierRapport() {
+        return dernierRapport.get();
+    }
+
+    public CumulPenalitesRapport executer(LocalDate date) {
+        if (!enCours.compareAndSet(false, true)) {
+            throw new RuntimeException("Le cumul des pénalités est déjà en cours");
+        }
+        try {
+            long debut = System.nanoTime();
+            Settings settings = settingsService.getCurrentSettings();
+            if (settings == null) {
+                throw new RuntimeException("Paramètres de la bibliothèque non définis");
+            }
+            CumulPenalitesRapport rapport = transactionTemplate.execute(status -> {
+                penaliteCumulRepository.cumuler(date, settings.getGracePeriod(),
+                        BigDecimal.valueOf(settings.getDailyPenalty()), plafond(settings));
+                CumulPenalitesRapport r = new CumulPenalitesRapport();
+                r.setDateCalcul(date);
+                r.setLignesSupprimees(penaliteCumulRepository.purgerObsoletes(date));
+                Object[] totaux = penaliteCumulRepository.totaux(date);
+                r.setPretsPenalises((Long) totaux[0]);
+                r.setMontantTotal((BigDecimal) totaux[1]);
+                return r;
+            });
+            rapport.setDureeMs((System.nanoTime() - debut) / 1_000_000);
+            dernierRapport.set(rapport);
+
+            log.info("Cumul des pénalités du {} : {} prêt(s) pénalisé(s) pour {} €, {} ligne(s) soldée(s), en {} ms",
+                    date, rapport.getPretsPenalises(), rapport.getMontantTotal(), rapport.getLignesSupprimees(), rapport.getDureeMs());
+            return rapport;
+        } finally {
+            enCours.set(false);
+        }
+    }
+
+    // Jours pénalisés pour un prêt rendu (ou évalué) à la date donnée, 0 si dans les temps ou dans le délai de grâce
+    public static long joursPenalises(LocalDate dateFinPret, LocalDate date, Settings settings) {
+        LocalDate dateLimite = dateFinPret.plusDays(settings.getGracePeriod());
+        return date.isAfter(dateLimite) ? ChronoUnit.DAYS.between(dateLimite, date) : 0;
+    }
+
+    // Montant de la pénalité pour ce nombre de jours, plafonné à maxPenalty
+    public static BigDecimal montant(long joursPenalises, Settings settings) {
+        BigDecimal montant = BigDecimal.valueOf(settings.getDailyPenalty()).multiply(BigDecimal.valueOf(joursPenalises));
+        return montant.min(plafond(settings)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal plafond(Settings settings) {
+        return settings.getMaxPenalty() > 0 ? BigDecimal.valueOf(settings.getMaxPenalty()) : SANS_PLAFOND;
+    }
+}
@@ -0,0 +1,211 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.dto.NotificationAEnvoyer;
+import com.bibliotheque.repository.NotificationEnvoiRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Livraison des notifications de la boîte d'envoi, par lots, hors des transactions métier.
+// Chaque passe réserve les lignes échues (bail), les livre canal par canal puis enregistre le résultat ;
+// un échec est retenté avec un délai doublé à chaque tentative, puis abandonné au-delà de tentatives-max.
+// Une ligne dont la passe s'est interrompue redevient échue à la fin de son bail.
+@Service
+public class DistributeurNotifications {
+
+    private static final Logger log = LoggerFactory.getLogger(DistributeurNotifications.class);
+
+    @Autowired
+    private NotificationEnvoiRepository notificationEnvoiRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MetriquesMetier metriquesMetier;
+
+    @Value("${bibliotheque.notifications.canaux:application}")
+    private List<String> canauxActifs;
+
+    @Value("${bibliotheque.notifications.taille-lot:200}")
+    private int tailleLot;
+
+    @Value("${bibliotheque.notifications.lots-par-passe:50}")
+    private int lotsParPasse;
+
+    @Value("${bibliotheque.notifications.bail-ms:60000}")
+    private long bailMs;
+
+    @Value("${bibliotheque.notifications.tentatives-max:8}")
+    private int tentativesMax;
+
+    @Value("${bibliotheque.notifications.attente-initiale-ms:5000}")
+    private long attenteInitialeMs;
+
+    @Value("${bibliotheque.notifications.attente-max-ms:3600000}")
+    private long attenteMaxMs;
+
+    @Value("${bibliotheque.notifications.conservation-jours:7}")
+    private int conservationJours;
+
+    private final Map<String, CanalNotification> canaux;
+
+    private final AtomicBoolean enCours = new AtomicBoolean(false);
+
+    public DistributeurNotifications(List<CanalNotification> canaux) {
+        this.canaux = canaux.stream().collect(Collectors.toMap(CanalNotification::getNom, Function.identity()));
+    }
+
+    // Canaux sur lesquels chaque notification est mise en boîte d'envoi
+    public List<String> getCanauxActifs() {
+        for (String canal : canauxActifs) {
+            if (!canaux.containsKey(canal)) {
+                throw new IllegalStateException("Canal de notification inconnu : " + canal + " (connus : " + canaux.keySet() + ")");
+            }
+        }
+        return canauxActifs;
+    }
+
+    @Scheduled(fixedDelayString = "${bibliotheque.notifications.distribution-ms:1000}",
+               initialDelayString = "${bibliotheque.notifications.distribution-ms:1000}")
+    public void distribuerPlanifie() {
+        distribuer();
+    }
+
+    // Renvoie le nombre de notifications livrées pendant la passe
+    public int distribuer() {
+        if (!enCours.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            int livrees = 0;
+            for (int lot = 0; lot < lotsParPasse; lot++) {
+                List<NotificationAEnvoyer> reservees = reserverLot();
+                if (reservees.isEmpty()) {
+                    break;
+                }
+                Map<String, List<NotificationAEnvoyer>> parCanal = reservees.stream()
+                        .collect(Collectors.groupingBy(NotificationAEnvoyer::getCanal, LinkedHashMap::new, Collectors.toList()));
+                for (Map.Entry<String, List<NotificationAEnvoyer>> entry : parCanal.entrySet()) {
+                    livrees += livrer(entry.getKey(), entry.getValue());
+                }
+                if (reservees.size() < tailleLot) {
+                    break;
+                }
+            }
+            metriquesMetier.notificationsEnAttente(notificationEnvoiRepository.compterEnAttente());
+            return livrees;
+        } finally {
+            enCours.set(false);
+        }
+    }
+
+    @Scheduled(cron = "${bibliotheque.notifications.cron-purge:0 30 3 * * *}")
+    public void purger() {
+        int supprimees = notificationEnvoiRepository.purgerEnvoyees(LocalDateTime.now().minusDays(conservationJours));
+        log.info("Boîte d'envoi : {} notification(s) livrée(s) depuis plus de {} jours supprimée(s)", supprimees, conservationJours);
+    }
+
+    private List<NotificationAEnvoyer> reserverLot() {
+        List<NotificationAEnvoyer> reservees = transactionTemplate.execute(status -> {
+            LocalDateTime maintenant = LocalDateTime.now();
+            List<NotificationAEnvoyer> echues = notificationEnvoiRepository.findEchues(maintenant, tailleLot);
+            Set<Long> ids = notificationEnvoiRepository.reserver(echues, maintenant, maintenant.plusNanos(bailMs * 1_000_000));
+            return echues.stream().filter(n -> ids.contains(n.getEnvoiId())).toList();
+        });
+        return reservees != null ? reservees : List.of();
+    }
+
+    private int livrer(String nomCanal, List<NotificationAEnvoyer> lot) {
+        CanalNotification canal = canaux.get(nomCanal);
+        if (canal == null) {
+            // Canal retiré de la configuration après la mise en boîte d'envoi
+            return enregistrer(nomCanal, lot, echecDuLot(lot, "Canal de notification inconnu : " + nomCanal));
+        }
+        if (canal.isTransactionnel()) {
+            try {
+                Integer livrees = transactionTemplate.execute(status -> enregistrer(nomCanal, lot, canal.livrer(lot)));
+                return livrees != null ? livrees : 0;
+            } catch (RuntimeException e) {
+                log.warn("Livraison de {} notification(s) sur le canal {} en échec", lot.size(), nomCanal, e);
+                return enregistrerHorsTransaction(nomCanal, lot, echecDuLot(lot, e.toString()));
+            }
+        }
+
+        Map<Long, String> echecs;
+        try {
+            echecs = canal.livrer(lot);
+        } catch (RuntimeException e) {
+            log.warn("Livraison de {} notification(s) sur le canal {} en échec", lot.size(), nomCanal, e);
+            echecs = echecDuLot(lot, e.toString());
+        }
+        return enregistrerHorsTransaction(nomCanal, lot, echecs);
+    }
+
+    private int enregistrerHorsTransaction(String canal, List<NotificationAEnvoyer> lot, Map<Long, String> echecs) {
+        Integer livrees = transactionTemplate.execute(status -> enregistrer(canal, lot, echecs));
+        return livrees != null ? livrees : 0;
+    }
+
+    // Compte rendu du lot : livrées, à retenter plus tard ou abandonnées ; renvoie le nombre de livrées
+    private int enregistrer(String canal, List<NotificationAEnvoyer> lot, Map<Long, String> echecs) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<Long> livrees = new ArrayList<>();
+        List<Object[]> enEchec = new ArrayList<>();
+        int abandonnees = 0;
+        for (NotificationAEnvoyer notification : lot) {
+            String erreur = echecs.get(notification.getEnvoiId());
+            if (erreur == null) {
+                livrees.add(notification.getEnvoiId());
+                metriquesMetier.delaiLivraison(canal, Duration.between(notification.getDateCreation(), maintenant));
+                continue;
+            }
+            int tentatives = notification.getTentatives() + 1;
+            boolean abandon = tentatives >= tentativesMax;
+            if (abandon) {
+                abandonnees++;
+                log.warn("Notification {} abandonnée sur le canal {} après {} tentative(s) : {}",
+                        notification.getEnvoiId(), canal, tentatives, erreur);
+            }
+            enEchec.add(new Object[] {
+                    notification.getEnvoiId(), abandon ? 2 : 0, tentatives,
+                    maintenant.plusNanos(attente(tentatives) * 1_000_000),
+                    erreur.length() > 500 ? erreur.substring(0, 500) : erreur
+            });
+        }
+        notificationEnvoiRepository.marquerEnvoyees(livrees, maintenant);
+        notificationEnvoiRepository.marquerEchecs(enEchec);
+        metriquesMetier.notificationsLivrees(canal, livrees.size());
+        if (!enEchec.isEmpty()) {
+            metriquesMetier.notificationsEnEchec(canal, enEchec.size(), abandonnees);
+        }
+        return livrees.size();
+    }
+
+    // Attente avant la tentative suivante : attente-initiale-ms doublée à chaque échec, plafonnée
+    private long attente(int tentatives) {
+        long attente = attenteInitialeMs << Math.min(tentatives - 1, 30);
+        return attente <= 0 || attente > attenteMaxMs ? attenteMaxMs : attente;
+    }
+
+    private static Map<Long, String> echecDuLot(List<NotificationAEnvoyer> lot, String erreur) {
+        Map<Long, String> echecs = new LinkedHashMap<>();
+        lot.forEach(n -> echecs.put(n.getEnvoiId(), erreur));
+        return echecs;
+    }
+}
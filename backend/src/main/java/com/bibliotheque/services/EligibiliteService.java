@@ -0,0 +1,106 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.dto.EligibiliteProfil;
+import com.bibliotheque.dto.SituationCompte;
+import com.bibliotheque.entities.Settings;
+import com.bibliotheque.repository.EligibiliteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+// Contrôles communs aux prêts, prolongations et réservations.
+// La situation du profil vient du cache (SituationsComptes) ; seuls l'exemplaire et le bibliothécaire sont lus à chaque contrôle.
+@Service
+public class EligibiliteService {
+
+    @Autowired
+    private EligibiliteRepository eligibiliteRepository;
+
+    @Autowired
+    private SituationsComptes situationsComptes;
+
+    @Autowired
+    private SettingsService settingsService;
+
+    public EligibiliteProfil evaluer(Long profilId, Long exemplaireId, Long bibliothequaireId) {
+        SituationCompte situation = situationsComptes.get(profilId);
+        EligibiliteProfil eligibilite = new EligibiliteProfil(situation, LocalDate.now());
+        if (exemplaireId != null || bibliothequaireId != null) {
+            eligibiliteRepository.completerExemplaire(eligibilite, exemplaireId, bibliothequaireId);
+        }
+        return eligibilite;
+    }
+
+    public EligibiliteProfil verifierPret(Long profilId, Long exemplaireId, Long bibliothequaireId) {
+        EligibiliteProfil eligibilite = evaluer(profilId, exemplaireId, bibliothequaireId);
+
+        if (!eligibilite.isExemplaireExiste()) {
+            throw new RuntimeException("Exemplaire non trouvé");
+        }
+        if (!eligibilite.isBibliothequaireExiste()) {
+            throw new RuntimeException("Bibliothécaire non trouvé");
+        }
+        verifierPenalites(eligibilite);
+        verifierQuotaPrets(eligibilite);
+        verifierInscription(eligibilite);
+
+        if (eligibilite.getExemplaireEtat() != null && eligibilite.getExemplaireEtat() >= 4) {
+            throw new RuntimeException("Exemplaire hors service");
+        }
+        if (eligibilite.getExemplairePretsActifs() > 0) {
+            throw new RuntimeException("Exemplaire déjà emprunté");
+        }
+        return eligibilite;
+    }
+
+    public EligibiliteProfil verifierReservation(Long profilId) {
+        EligibiliteProfil eligibilite = evaluer(profilId, null, null);
+        verifierPenalites(eligibilite);
+        verifierQuotaPrets(eligibilite);
+        verifierInscription(eligibilite);
+        return eligibilite;
+    }
+
+    public void verifierPenalites(EligibiliteProfil eligibilite) {
+        if (eligibilite.getNbPenalitesActives() == 0) {
+            return;
+        }
+        StringBuilder message = new StringBuilder("Ce client a une pénalité active : ");
+        for (SituationCompte.PenaliteActive penalite : eligibilite.getPenalitesActives()) {
+            message.append(String.format("Pénalité de %.2f€ du %s au %s. ",
+                penalite.getMontant(),
+                penalite.getDateDebut(),
+                penalite.getDateFin()));
+        }
+        throw new RuntimeException(message.toString());
+    }
+
+    public void verifierQuotaPrets(EligibiliteProfil eligibilite) {
+        if (eligibilite.getNbPrets() >= getQuota(eligibilite)) {
+            throw new RuntimeException("Quota de prêts dépassé pour ce profil");
+        }
+    }
+
+    public void verifierQuotaProlongements(EligibiliteProfil eligibilite) {
+        if (eligibilite.getNbProlongements() >= getQuota(eligibilite)) {
+            throw new RuntimeException("Quota de prolongements dépassé pour ce profil");
+        }
+    }
+
+    public void verifierInscription(EligibiliteProfil eligibilite) {
+        if (!eligibilite.hasInscriptionActive(LocalDate.now())) {
+            throw new RuntimeException("Le profil n'a pas d'inscription active. Veuillez d'abord vous inscrire.");
+        }
+    }
+
+    // Prêts encore autorisés sur l'inscription en cours (prêts en lot)
+    public long getPretsRestants(EligibiliteProfil eligibilite) {
+        return Math.max(0, getQuota(eligibilite) - eligibilite.getNbPrets());
+    }
+
+    private int getQuota(EligibiliteProfil eligibilite) {
+        Settings settings = settingsService.getCurrentSettings();
+        return settings.getQuotaByType(eligibilite.getTypeAdherant());
+    }
+}
@@ -0,0 +1,146 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.repository.ExportPretsRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// Export de l'historique des prêts en NDJSON (un objet JSON par ligne) ou CSV.
+// Chaque ligne lue sur le curseur est écrite aussitôt dans le flux de sortie : la mémoire utilisée
+// ne dépend pas du nombre de prêts exportés.
+@Service
+public class ExportPretsService {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    private static final String[] COLONNES = {
+        "id", "datePret", "dateFinPret", "dateRendu", "rendu", "enRetard", "type",
+        "profilId", "nom", "prenom", "email", "exemplaireId", "numExemplaire",
+        "livreId", "titre", "isbn", "bibliothequaireId"
+    };
+
+    @Autowired
+    private ExportPretsRepository exportPretsRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Retourne le nombre de prêts écrits
+    @Transactional(readOnly = true)
+    public long exporter(String format, LocalDate dateDebut, LocalDate dateFin,
+                         Boolean rendu, Boolean enRetard, OutputStream sortie) throws IOException {
+        long[] nombre = { 0L };
+        try {
+            if (NDJSON.equals(format)) {
+                try (JsonGenerator json = objectMapper.getFactory().createGenerator(sortie, JsonEncoding.UTF8)) {
+                    json.setRootValueSeparator(null);
+                    exportPretsRepository.parcourir(dateDebut, dateFin, rendu, enRetard, rs -> {
+                        ecrireJson(json, rs);
+                        nombre[0]++;
+                    });
+                }
+            } else {
+                try (Writer csv = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8), 64 * 1024)) {
+                    csv.write(String.join(";", COLONNES));
+                    csv.write("\r\n");
+                    exportPretsRepository.parcourir(dateDebut, dateFin, rendu, enRetard, rs -> {
+                        ecrireCsv(csv, rs);
+                        nombre[0]++;
+                    });
+                }
+            }
+        } catch (UncheckedIOException e) {
+            // Client parti en cours d'export : l'écriture échoue, le curseur est fermé par JdbcTemplate
+            throw e.getCause();
+        }
+        return nombre[0];
+    }
+
+    private static void ecrireJson(JsonGenerator json, ResultSet rs) throws SQLException {
+        try {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong(1));
+            json.writeStringField("datePret", date(rs.getDate(2)));
+            json.writeStringField("dateFinPret", date(rs.getDate(3)));
+            json.writeStringField("dateRendu", date(rs.getDate(4)));
+            json.writeBooleanField("rendu", rs.getBoolean(5));
+            json.writeBooleanField("enRetard", rs.getBoolean(6));
+            json.writeStringField("type", type(rs.getInt(7)));
+            json.writeNumberField("profilId", rs.getLong(8));
+            json.writeStringField("nom", rs.getString(9));
+            json.writeStringField("prenom", rs.getString(10));
+            json.writeStringField("email", rs.getString(11));
+            json.writeNumberField("exemplaireId", rs.getLong(12));
+            json.writeStringField("numExemplaire", rs.getString(13));
+            json.writeNumberField("livreId", rs.getLong(14));
+            json.writeStringField("titre", rs.getString(15));
+            json.writeStringField("isbn", rs.getString(16));
+            json.writeNumberField("bibliothequaireId", rs.getLong(17));
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void ecrireCsv(Writer csv, ResultSet rs) throws SQLException {
+        try {
+            csv.write(String.join(";",
+                    String.valueOf(rs.getLong(1)),
+                    champCsv(date(rs.getDate(2))),
+                    champCsv(date(rs.getDate(3))),
+                    champCsv(date(rs.getDate(4))),
+                    String.valueOf(rs.getBoolean(5)),
+                    String.valueOf(rs.getBoolean(6)),
+                    type(rs.getInt(7)),
+                    String.valueOf(rs.getLong(8)),
+                    champCsv(rs.getString(9)),
+                    champCsv(rs.getString(10)),
+                    champCsv(rs.getString(11)),
+                    String.valueOf(rs.getLong(12)),
+                    champCsv(rs.getString(13)),
+                    String.valueOf(rs.getLong(14)),
+                    champCsv(rs.getString(15)),
+                    champCsv(rs.getString(16)),
+                    String.valueOf(rs.getLong(17))));
+            csv.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String date(Date date) {
+        return date != null ? date.toLocalDate().toString() : null;
+    }
+
+    private static String type(int typePret) {
+        return typePret == 1 ? "sur_place" : "domicile";
+    }
+
+    // Guillemets si le champ contient le séparateur, un guillemet ou un saut de ligne
+    private static String champCsv(String valeur) {
+        if (valeur == null) {
+            return "";
+        }
+        if (valeur.indexOf(';') >= 0 || valeur.indexOf('"') >= 0 || valeur.indexOf('\n') >= 0 || valeur.indexOf('\r') >= 0) {
+            return "\"" + valeur.replace("\"", "\"\"") + "\"";
+        }
+        return valeur;
+    }
+}
@@ -0,0 +1,208 @@
+package com.bibliotheque.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// File des réservations actives d'un livre, tenue en mémoire.
+// Une réservation retient un exemplaire (mis de côté pour le profil) ou attend dans la file, par ordre
+// d'arrivée ; la tête de file reçoit le prochain exemplaire rendu.
+//
+// Les écritures sur les réservations d'un livre sont sérialisées par un verrou par livre (verrous répartis
+// sur un nombre fixe de bandes), tenu jusqu'à la fin de la transaction : deux réservations concurrentes ne
+// peuvent pas retenir le même exemplaire. La file est modifiée directement sous le verrou ; après un rollback
+// elle est oubliée et relue depuis la base. Ces verrous ne valent que pour une instance de l'application.
+@Service
+public class FileReservations {
+
+    private static final String SQL_RESERVATIONS =
+            "SELECT e.livre_id, r.reservation_id, r.exemplaire_id, r.statut FROM reservation r " +
+            "JOIN exemplaire e ON e.exemplaire_id = r.exemplaire_id " +
+            "WHERE e.livre_id IN (:livreIds) AND r.statut IN (0, 1) " +
+            "ORDER BY e.livre_id, r.date_resa, r.reservation_id";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IndexDisponibilite indexDisponibilite;
+
+    @Value("${bibliotheque.reservations.attente-verrou-ms:5000}")
+    private long attenteVerrouMs;
+
+    private final ReentrantLock[] verrous;
+    private final Map<Long, File> livres = new ConcurrentHashMap<>();
+
+    public FileReservations(@Value("${bibliotheque.reservations.bandes-verrous:64}") int bandes) {
+        verrous = new ReentrantLock[bandes];
+        for (int i = 0; i < bandes; i++) {
+            verrous[i] = new ReentrantLock(true);
+        }
+    }
+
+    // Verrouille le livre jusqu'à la fin de la transaction courante. À prendre avant la première lecture de
+    // la transaction : sous REPEATABLE READ, un instantané antérieur au verrou manquerait les réservations
+    // validées entre-temps, au rechargement de la file comme à la lecture de leur statut
+    public void verrouiller(Long livreId) {
+        verrouiller(List.of(livreId));
+    }
+
+    // Plusieurs livres : bandes prises dans un ordre fixe pour éviter les interblocages
+    public void verrouiller(Collection<Long> livreIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Le verrou des réservations d'un livre exige une transaction");
+        }
+        TreeSet<Integer> bandes = new TreeSet<>();
+        for (Long livreId : livreIds) {
+            bandes.add(bande(livreId));
+        }
+        List<ReentrantLock> pris = new ArrayList<>(bandes.size());
+        try {
+            for (Integer bande : bandes) {
+                ReentrantLock verrou = verrous[bande];
+                if (!verrou.tryLock(attenteVerrouMs, TimeUnit.MILLISECONDS)) {
+                    throw new RuntimeException("Réservations de ce livre en cours de traitement, veuillez réessayer");
+                }
+                pris.add(verrou);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Attente du verrou des réservations interrompue");
+        } finally {
+            if (pris.size() < bandes.size()) {
+                pris.forEach(ReentrantLock::unlock);
+            }
+        }
+        List<Long> concernes = new ArrayList<>(livreIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    concernes.forEach(livres::remove);
+                }
+                pris.forEach(ReentrantLock::unlock);
+            }
+        });
+        charger(concernes);
+    }
+
+    // Réservation en tête de file, ou null si personne n'attend
+    public Long tete(Long livreId) {
+        return file(livreId).attente.peekFirst();
+    }
+
+    public int attente(Long livreId) {
+        return file(livreId).attente.size();
+    }
+
+    // Rang dans la file à partir de 1, 0 si la réservation n'attend pas
+    public int position(Long livreId, Long reservationId) {
+        int rang = 1;
+        for (Long id : file(livreId).attente) {
+            if (id.equals(reservationId)) {
+                return rang;
+            }
+            rang++;
+        }
+        return 0;
+    }
+
+    public Set<Long> exemplairesRetenus(Long livreId) {
+        return new HashSet<>(file(livreId).retenues.values());
+    }
+
+    public void mettreEnAttente(Long livreId, Long reservationId) {
+        file(livreId).attente.addLast(reservationId);
+    }
+
+    public void retenir(Long livreId, Long reservationId, Long exemplaireId) {
+        File file = file(livreId);
+        file.attente.remove(reservationId);
+        file.retenues.put(reservationId, exemplaireId);
+    }
+
+    // Réservation annulée, expirée ou honorée
+    public void retirer(Long livreId, Long reservationId) {
+        File file = file(livreId);
+        file.attente.remove(reservationId);
+        file.retenues.remove(reservationId);
+    }
+
+    private File file(Long livreId) {
+        if (!verrous[bande(livreId)].isHeldByCurrentThread()) {
+            throw new IllegalStateException("File de réservations du livre " + livreId + " lue sans son verrou");
+        }
+        File file = livres.get(livreId);
+        if (file == null) {
+            charger(List.of(livreId));
+            file = livres.get(livreId);
+        }
+        return file;
+    }
+
+    private void charger(List<Long> livreIds) {
+        List<Long> manquants = livreIds.stream().filter(id -> !livres.containsKey(id)).distinct().toList();
+        if (manquants.isEmpty()) {
+            return;
+        }
+        Map<Long, List<long[]>> lignes = new HashMap<>();
+        jdbcTemplate.query(SQL_RESERVATIONS, new MapSqlParameterSource("livreIds", manquants), rs -> {
+            lignes.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>())
+                    .add(new long[] { rs.getLong(2), rs.getLong(3), rs.getInt(4) });
+        });
+        for (Long livreId : manquants) {
+            livres.put(livreId, classer(livreId, lignes.getOrDefault(livreId, List.of())));
+        }
+    }
+
+    // Les réservations disponibles retiennent leur exemplaire ; une réservation en attente retient le sien
+    // s'il est libre et pas déjà retenu, sinon elle attend son tour
+    private File classer(Long livreId, List<long[]> reservations) {
+        File file = new File();
+        List<long[]> enAttente = new ArrayList<>();
+        for (long[] reservation : reservations) {
+            if (reservation[2] == 1) {
+                file.retenues.put(reservation[0], reservation[1]);
+            } else {
+                enAttente.add(reservation);
+            }
+        }
+        Set<Long> retenus = new HashSet<>(file.retenues.values());
+        for (long[] reservation : enAttente) {
+            if (!retenus.contains(reservation[1]) && indexDisponibilite.isExemplaireDisponible(livreId, reservation[1])) {
+                file.retenues.put(reservation[0], reservation[1]);
+                retenus.add(reservation[1]);
+            } else {
+                file.attente.addLast(reservation[0]);
+            }
+        }
+        return file;
+    }
+
+    private int bande(Long livreId) {
+        return Math.floorMod(livreId.hashCode(), verrous.length);
+    }
+
+    // Accédée uniquement sous le verrou du livre
+    private static final class File {
+        private final ArrayDeque<Long> attente = new ArrayDeque<>();
+        private final Map<Long, Long> retenues = new HashMap<>();
+    }
+}
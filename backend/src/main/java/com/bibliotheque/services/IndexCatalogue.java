@@ -0,0 +1,358 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.utils.ApresCommit;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.fr.FrenchAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.util.ElisionFilter;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Index plein texte du catalogue (Lucene embarqué).
+// Champs : titre, isbn, description, auteurs, catégories, éditeur. Les termes sont mis en minuscules
+// et sans accents ; le dernier mot saisi est recherché par préfixe. Les résultats sont classés par BM25,
+// avec un poids plus fort sur le titre et les auteurs.
+@Service
+public class IndexCatalogue {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexCatalogue.class);
+
+    private static final int LIVRES_PAR_LOT = 1000;
+
+    private static final String CHAMP_ID = "id";
+    private static final String CHAMP_ISBN = "isbn";
+    private static final Map<String, Float> CHAMPS_TEXTE = new LinkedHashMap<>();
+
+    static {
+        CHAMPS_TEXTE.put("titre", 3.0f);
+        CHAMPS_TEXTE.put("auteurs", 2.0f);
+        CHAMPS_TEXTE.put("categories", 1.5f);
+        CHAMPS_TEXTE.put("editeur", 1.0f);
+        CHAMPS_TEXTE.put("description", 0.5f);
+    }
+
+    private static final String SQL_LIVRES =
+            "SELECT l.livre_id, l.titre, l.isbn, l.description, ed.nom AS editeur FROM livre l " +
+            "LEFT JOIN editeur ed ON ed.editeur_id = l.editeur_id WHERE l.livre_id IN (:ids)";
+
+    private static final String SQL_AUTEURS =
+            "SELECT la.livre_id, a.prenom, a.nom FROM livre_auteur la " +
+            "JOIN auteur a ON a.auteur_id = la.auteur_id WHERE la.livre_id IN (:ids)";
+
+    private static final String SQL_CATEGORIES =
+            "SELECT lc.livre_id, c.nom FROM livre_categorie lc " +
+            "JOIN categorie c ON c.categorie_id = lc.categorie_id WHERE lc.livre_id IN (:ids)";
+
+    private static final String SQL_IDS_APRES =
+            "SELECT livre_id FROM livre WHERE livre_id > :apres ORDER BY livre_id LIMIT :limite";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${bibliotheque.recherche.index-dir:}")
+    private String indexDir;
+
+    private final Analyzer analyzer = new CatalogueAnalyzer();
+
+    private Directory directory;
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+
+    // Toute écriture dans l'index (reconstruction et mises à jour unitaires) passe par ce verrou : aucun
+    // rafraîchissement ne publie l'index vidé par une reconstruction avant son commit.
+    private final ReentrantLock verrou = new ReentrantLock();
+    private volatile boolean pret = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() throws IOException {
+        directory = indexDir == null || indexDir.isBlank()
+                ? new ByteBuffersDirectory()
+                : FSDirectory.open(Path.of(indexDir));
+        ouvrir();
+
+        if (writer.getDocStats().numDocs == 0) {
+            reconstruire();
+        } else {
+            pret = true;
+        }
+    }
+
+    @PreDestroy
+    public void arreter() throws IOException {
+        if (searcherManager != null) {
+            searcherManager.close();
+        }
+        if (writer != null) {
+            writer.close();
+        }
+        if (directory != null) {
+            directory.close();
+        }
+    }
+
+    public boolean isPret() {
+        return pret;
+    }
+
+    private void ouvrir() throws IOException {
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    // Reconstruction complète, par lots de livres ; retourne le nombre de livres indexés
+    public int reconstruire() {
+        verrou.lock();
+        try {
+            return reconstruireSousVerrou();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private int reconstruireSousVerrou() {
+        try {
+            long debut = System.nanoTime();
+            writer.deleteAll();
+            int total = 0;
+            long apres = 0L;
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(SQL_IDS_APRES,
+                        new MapSqlParameterSource("apres", apres).addValue("limite", LIVRES_PAR_LOT), Long.class);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                for (Document document : chargerDocuments(ids)) {
+                    writer.addDocument(document);
+                }
+                total += ids.size();
+                apres = ids.get(ids.size() - 1);
+            }
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            pret = true;
+            log.info("Index du catalogue reconstruit : {} livre(s) en {} ms", total, (System.nanoTime() - debut) / 1_000_000);
+            return total;
+        } catch (IOException e) {
+            annulerReconstruction();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            annulerReconstruction();
+            throw e;
+        }
+    }
+
+    // Reconstruction interrompue : retour au dernier commit, sans quoi la prochaine mise à jour unitaire
+    // validerait et publierait l'index partiellement reconstruit
+    private void annulerReconstruction() {
+        SearcherManager precedent = searcherManager;
+        try {
+            writer.rollback();
+            ouvrir();
+            precedent.close();
+        } catch (IOException e) {
+            log.error("Impossible de revenir au dernier état validé de l'index du catalogue", e);
+        }
+    }
+
+    // Pendant une reconstruction, attend son commit : le livre relu ensuite remplace celui qu'elle a chargé
+    public void indexerLivre(Long livreId) {
+        ApresCommit.executer(() -> modifierSousVerrou(() -> {
+            List<Document> documents = chargerDocuments(List.of(livreId));
+            if (documents.isEmpty()) {
+                writer.deleteDocuments(new Term(CHAMP_ID, livreId.toString()));
+            } else {
+                writer.updateDocument(new Term(CHAMP_ID, livreId.toString()), documents.get(0));
+            }
+        }));
+    }
+
+    public void supprimerLivre(Long livreId) {
+        ApresCommit.executer(() -> modifierSousVerrou(() -> writer.deleteDocuments(new Term(CHAMP_ID, livreId.toString()))));
+    }
+
+    private void modifierSousVerrou(ModificationIndex modification) {
+        verrou.lock();
+        try {
+            modification.appliquer();
+            writer.commit();
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private interface ModificationIndex {
+        void appliquer() throws IOException;
+    }
+
+    // Identifiants des livres correspondant à la saisie, du plus pertinent au moins pertinent
+    public List<Long> rechercher(String saisie, int limite) {
+        Query query = construireRequete(saisie);
+        if (query == null) {
+            return List.of();
+        }
+        // Gestionnaire lu une fois : une reconstruction annulée peut le remplacer entre acquire et release
+        SearcherManager gestionnaire = searcherManager;
+        try {
+            IndexSearcher searcher = gestionnaire.acquire();
+            try {
+                List<Long> ids = new ArrayList<>();
+                for (ScoreDoc scoreDoc : searcher.search(query, limite).scoreDocs) {
+                    ids.add(Long.valueOf(searcher.storedFields().document(scoreDoc.doc).get(CHAMP_ID)));
+                }
+                return ids;
+            } finally {
+                gestionnaire.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Query construireRequete(String saisie) {
+        List<String> termes = analyser(saisie);
+        if (termes.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder requete = new BooleanQuery.Builder();
+        for (int i = 0; i < termes.size(); i++) {
+            String terme = termes.get(i);
+            boolean dernier = i == termes.size() - 1;
+            BooleanQuery.Builder parChamp = new BooleanQuery.Builder();
+            for (Map.Entry<String, Float> champ : CHAMPS_TEXTE.entrySet()) {
+                Term t = new Term(champ.getKey(), terme);
+                parChamp.add(new BoostQuery(new TermQuery(t), champ.getValue() * 2), BooleanClause.Occur.SHOULD);
+                if (dernier) {
+                    parChamp.add(new BoostQuery(new PrefixQuery(t), champ.getValue()), BooleanClause.Occur.SHOULD);
+                }
+            }
+            requete.add(parChamp.build(), BooleanClause.Occur.MUST);
+        }
+
+        // Saisie d'un ISBN (avec ou sans tirets) : correspondance exacte ou par préfixe
+        String isbn = normaliserIsbn(saisie);
+        if (isbn.length() >= 3 && isbn.chars().allMatch(c -> Character.isDigit(c) || c == 'x')) {
+            BooleanQuery.Builder ouIsbn = new BooleanQuery.Builder();
+            ouIsbn.add(requete.build(), BooleanClause.Occur.SHOULD);
+            ouIsbn.add(new BoostQuery(new PrefixQuery(new Term(CHAMP_ISBN, isbn)), 5.0f), BooleanClause.Occur.SHOULD);
+            return ouIsbn.build();
+        }
+        return requete.build();
+    }
+
+    private List<String> analyser(String texte) {
+        List<String> termes = new ArrayList<>();
+        if (texte == null) {
+            return termes;
+        }
+        try (TokenStream stream = analyzer.tokenStream("titre", new StringReader(texte))) {
+            CharTermAttribute attribut = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                termes.add(attribut.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return termes;
+    }
+
+    private List<Document> chargerDocuments(List<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        Map<Long, List<String>> auteurs = new HashMap<>();
+        jdbcTemplate.query(SQL_AUTEURS, params, rs -> {
+            String prenom = rs.getString(2);
+            String nom = rs.getString(3);
+            auteurs.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>())
+                    .add(prenom != null ? prenom + " " + nom : nom);
+        });
+        Map<Long, List<String>> categories = new HashMap<>();
+        jdbcTemplate.query(SQL_CATEGORIES, params, rs -> {
+            categories.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getString(2));
+        });
+
+        List<Document> documents = new ArrayList<>();
+        jdbcTemplate.query(SQL_LIVRES, params, rs -> {
+            long livreId = rs.getLong("livre_id");
+            Document document = new Document();
+            document.add(new StringField(CHAMP_ID, Long.toString(livreId), Field.Store.YES));
+            document.add(new StringField(CHAMP_ISBN, normaliserIsbn(rs.getString("isbn")), Field.Store.NO));
+            ajouterTexte(document, "titre", rs.getString("titre"));
+            ajouterTexte(document, "description", rs.getString("description"));
+            ajouterTexte(document, "editeur", rs.getString("editeur"));
+            ajouterTexte(document, "auteurs", String.join(" ", auteurs.getOrDefault(livreId, List.of())));
+            ajouterTexte(document, "categories", String.join(" ", categories.getOrDefault(livreId, List.of())));
+            documents.add(document);
+        });
+        return documents;
+    }
+
+    private static void ajouterTexte(Document document, String champ, String valeur) {
+        if (valeur != null && !valeur.isBlank()) {
+            document.add(new TextField(champ, valeur, Field.Store.NO));
+        }
+    }
+
+    private static String normaliserIsbn(String isbn) {
+        return isbn == null ? "" : isbn.replaceAll("[^0-9Xx]", "").toLowerCase();
+    }
+
+    // Minuscules, élisions françaises (l', d'...) retirées, accents repliés en ASCII
+    static final class CatalogueAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new ElisionFilter(tokenizer, FrenchAnalyzer.DEFAULT_ARTICLES);
+            stream = new LowerCaseFilter(stream);
+            stream = new ASCIIFoldingFilter(stream);
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+    }
+}
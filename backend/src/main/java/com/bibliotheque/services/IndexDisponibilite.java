@@ -0,0 +1,243 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.utils.ApresCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Index en mémoire de la disponibilité des exemplaires, par livre.
+// Un exemplaire est disponible s'il est en état d'être prêté (etat < 4) et sans prêt en cours,
+// comme dans ExemplaireRepository.findExemplairesDisponibles. Les livres sont chargés à la première
+// lecture, tenus à jour par les écritures (après commit) et réconciliés périodiquement avec la base.
+// Chaque mise à jour après commit incrémente d'abord la génération du livre (compteurs répartis sur
+// GENERATIONS bandes) : un chargement n'entre dans l'index que si aucune mise à jour n'a eu lieu pendant
+// la lecture, sans quoi il écraserait la mise à jour avec un état antérieur.
+@Service
+public class IndexDisponibilite {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexDisponibilite.class);
+
+    private static final int LIVRES_PAR_REQUETE = 500;
+
+    private static final int GENERATIONS = 256;
+
+    private static final String SQL_EXEMPLAIRES =
+            "SELECT e.livre_id, e.exemplaire_id, e.etat, " +
+            "  CASE WHEN EXISTS (SELECT 1 FROM pret p " +
+            "    WHERE p.exemplaire_id = e.exemplaire_id AND p.rendu = false) THEN 1 ELSE 0 END AS emprunte " +
+            "FROM exemplaire e " +
+            "WHERE e.livre_id IN (:livreIds) ORDER BY e.livre_id, e.exemplaire_id";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<Long, Disponibilites> livres = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+
+    public boolean isLivreDisponible(Long livreId) {
+        return get(livreId).auMoinsUnDisponible();
+    }
+
+    public boolean isExemplaireDisponible(Long livreId, Long exemplaireId) {
+        return get(livreId).estDisponible(exemplaireId);
+    }
+
+    public List<Long> getExemplairesDisponibles(Long livreId) {
+        return get(livreId).disponibles();
+    }
+
+    public void pretCree(Long livreId, Long exemplaireId) {
+        ApresCommit.executer(() -> majLibre(livreId, exemplaireId, false));
+    }
+
+    public void pretRendu(Long livreId, Long exemplaireId) {
+        ApresCommit.executer(() -> majLibre(livreId, exemplaireId, true));
+    }
+
+    public void etatModifie(Long livreId, Long exemplaireId, Integer etat) {
+        ApresCommit.executer(() -> {
+            generations.incrementAndGet(bande(livreId));
+            Disponibilites disponibilites = livres.get(livreId);
+            if (disponibilites != null && !disponibilites.majEtat(exemplaireId, etat)) {
+                livres.remove(livreId);
+            }
+        });
+    }
+
+    // Ajout ou suppression d'exemplaires : le livre sera rechargé à la prochaine lecture
+    public void invaliderLivre(Long livreId) {
+        ApresCommit.executer(() -> {
+            generations.incrementAndGet(bande(livreId));
+            livres.remove(livreId);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${bibliotheque.disponibilite.reconciliation-ms:600000}",
+               initialDelayString = "${bibliotheque.disponibilite.reconciliation-ms:600000}")
+    public void reconciliationPlanifiee() {
+        reconcilier();
+    }
+
+    // Recharge depuis la base les livres présents dans l'index et corrige ceux qui divergent
+    public int reconcilier() {
+        List<Long> livreIds = new ArrayList<>(livres.keySet());
+        int divergences = 0;
+        for (int i = 0; i < livreIds.size(); i += LIVRES_PAR_REQUETE) {
+            List<Long> lot = livreIds.subList(i, Math.min(i + LIVRES_PAR_REQUETE, livreIds.size()));
+            long[] avant = new long[lot.size()];
+            for (int j = 0; j < lot.size(); j++) {
+                avant[j] = generations.get(bande(lot.get(j)));
+            }
+            Map<Long, Disponibilites> base = charger(lot);
+            for (int j = 0; j < lot.size(); j++) {
+                Long livreId = lot.get(j);
+                long generation = avant[j];
+                Disponibilites attendu = base.getOrDefault(livreId, Disponibilites.VIDE);
+                boolean[] corrige = { false };
+                // Livre modifié pendant la lecture : la correction attendra le prochain passage
+                livres.computeIfPresent(livreId, (k, actuel) -> {
+                    if (generations.get(bande(livreId)) != generation || actuel.memeContenu(attendu)) {
+                        return actuel;
+                    }
+                    corrige[0] = true;
+                    return attendu;
+                });
+                if (corrige[0]) {
+                    divergences++;
+                }
+            }
+        }
+        if (divergences > 0) {
+            log.warn("Index de disponibilité : {} livre(s) corrigé(s) sur {}", divergences, livreIds.size());
+        }
+        return divergences;
+    }
+
+    // Chargement concurrent d'une mise à jour : il sert à cette lecture, le livre sera rechargé à la suivante
+    private Disponibilites get(Long livreId) {
+        Disponibilites disponibilites = livres.get(livreId);
+        if (disponibilites != null) {
+            return disponibilites;
+        }
+        long generation = generations.get(bande(livreId));
+        Disponibilites charge = charger(List.of(livreId)).getOrDefault(livreId, Disponibilites.VIDE);
+        Disponibilites retenu = livres.compute(livreId, (k, existant) -> {
+            if (existant != null) {
+                return existant;
+            }
+            return generations.get(bande(livreId)) == generation ? charge : null;
+        });
+        return retenu != null ? retenu : charge;
+    }
+
+    private void majLibre(Long livreId, Long exemplaireId, boolean libre) {
+        generations.incrementAndGet(bande(livreId));
+        Disponibilites disponibilites = livres.get(livreId);
+        if (disponibilites != null && !disponibilites.majLibre(exemplaireId, libre)) {
+            livres.remove(livreId);
+        }
+    }
+
+    private Map<Long, Disponibilites> charger(List<Long> livreIds) {
+        Map<Long, List<long[]>> lignes = new HashMap<>();
+        // Lu depuis les contrôleurs hors transaction, alors que la session JPA de la requête (open-in-view)
+        // garde déjà une connexion : la transaction fait réutiliser celle-ci au lieu d'en demander
+        // une seconde au pool, ce qui bloque toutes les requêtes dès que le pool est épuisé
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.query(SQL_EXEMPLAIRES, new MapSqlParameterSource("livreIds", livreIds), rs -> {
+                    int etat = rs.getInt(3);
+                    boolean etatConnu = !rs.wasNull();
+                    lignes.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>())
+                            .add(new long[] { rs.getLong(2), etatConnu && etat < 4 ? 1 : 0, rs.getInt(4) == 0 ? 1 : 0 });
+                }));
+        Map<Long, Disponibilites> resultat = new HashMap<>();
+        lignes.forEach((livreId, exemplaires) -> resultat.put(livreId, new Disponibilites(exemplaires)));
+        return resultat;
+    }
+
+    private int bande(Long livreId) {
+        return Math.floorMod(livreId.hashCode(), GENERATIONS);
+    }
+
+    // Exemplaires d'un livre triés par id ; deux bitsets indexés par position
+    static final class Disponibilites {
+        static final Disponibilites VIDE = new Disponibilites(List.of());
+
+        private final long[] exemplaireIds;
+        private final BitSet bonEtat;
+        private final BitSet libre;
+
+        Disponibilites(List<long[]> exemplaires) {
+            this.exemplaireIds = new long[exemplaires.size()];
+            this.bonEtat = new BitSet(exemplaires.size());
+            this.libre = new BitSet(exemplaires.size());
+            for (int i = 0; i < exemplaires.size(); i++) {
+                long[] ligne = exemplaires.get(i);
+                exemplaireIds[i] = ligne[0];
+                bonEtat.set(i, ligne[1] == 1);
+                libre.set(i, ligne[2] == 1);
+            }
+        }
+
+        synchronized boolean auMoinsUnDisponible() {
+            return bonEtat.intersects(libre);
+        }
+
+        synchronized boolean estDisponible(Long exemplaireId) {
+            int i = Arrays.binarySearch(exemplaireIds, exemplaireId);
+            return i >= 0 && bonEtat.get(i) && libre.get(i);
+        }
+
+        synchronized List<Long> disponibles() {
+            BitSet disponibles = (BitSet) bonEtat.clone();
+            disponibles.and(libre);
+            List<Long> ids = new ArrayList<>(disponibles.cardinality());
+            for (int i = disponibles.nextSetBit(0); i >= 0; i = disponibles.nextSetBit(i + 1)) {
+                ids.add(exemplaireIds[i]);
+            }
+            return ids;
+        }
+
+        // false si l'exemplaire est inconnu de l'index (le livre doit alors être rechargé)
+        synchronized boolean majLibre(Long exemplaireId, boolean valeur) {
+            int i = Arrays.binarySearch(exemplaireIds, exemplaireId);
+            if (i < 0) {
+                return false;
+            }
+            libre.set(i, valeur);
+            return true;
+        }
+
+        synchronized boolean majEtat(Long exemplaireId, Integer etat) {
+            int i = Arrays.binarySearch(exemplaireIds, exemplaireId);
+            if (i < 0) {
+                return false;
+            }
+            bonEtat.set(i, etat != null && etat < 4);
+            return true;
+        }
+
+        synchronized boolean memeContenu(Disponibilites autre) {
+            return Arrays.equals(exemplaireIds, autre.exemplaireIds)
+                    && bonEtat.equals(autre.bonEtat)
+                    && libre.equals(autre.libre);
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package com.bibliotheque.services;
 
+import com.bibliotheque.dto.TarifResume;
 import com.bibliotheque.entities.Inscription;
-import com.bibliotheque.entities.TarifInscription;
 import com.bibliotheque.entities.InscriptionStatus;
 import com.bibliotheque.repository.InscriptionRepository;
 import com.bibliotheque.repository.TarifInscriptionRepository;
 import com.bibliotheque.repository.InscriptionStatusRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,11 +21,25 @@ public class InscriptionService {
     private TarifInscriptionRepository tarifInscriptionRepository;
     @Autowired
     private InscriptionStatusRepository inscriptionStatusRepository;
+    @Autowired
+    private CompteursTableauDeBord compteursTableauDeBord;
+    @Autowired
+    private SituationsComptes situationsComptes;
 
     public Inscription addInscription(Inscription inscription) {
-        return inscriptionRepository.save(inscription);
+        Long profilId = inscription.getProfil() != null ? inscription.getProfil().getProfilId() : null;
+        Inscription precedente = profilId != null
+                ? inscriptionRepository.findDerniereInscriptionByProfil(profilId).orElse(null)
+                : null;
+        Inscription saved = inscriptionRepository.save(inscription);
+        if (saved.getProfil() != null) {
+            situationsComptes.invalider(saved.getProfil().getProfilId());
+            compteursTableauDeBord.inscriptionAjoutee(precedente, saved);
+        }
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public List<Inscription> getAllInscriptions() {
         return inscriptionRepository.findAll();
     }
@@ -33,12 +48,12 @@ public class InscriptionService {
         return inscriptionRepository.findById(id);
     }
 
-    public List<TarifInscription> getAllTarifs() {
-        return tarifInscriptionRepository.findAll();
+    public List<TarifResume> getAllTarifs() {
+        return tarifInscriptionRepository.findResumes();
     }
 
-    public TarifInscription getTarif(Long id) {
-        return tarifInscriptionRepository.findById(id).orElse(null);
+    public TarifResume getTarif(Long id) {
+        return tarifInscriptionRepository.findResumeById(id).orElse(null);
     }
 
     public InscriptionStatus addInscriptionStatus(InscriptionStatus status) {
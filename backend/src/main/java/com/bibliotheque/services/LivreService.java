@@ -3,11 +3,17 @@ package com.bibliotheque.services;
 import com.bibliotheque.entities.*;
 import com.bibliotheque.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class LivreService {
@@ -27,22 +33,53 @@ public class LivreService {
     @Autowired
     private EditeurRepository editeurRepository;
     
+    @Autowired
+    private IndexDisponibilite indexDisponibilite;
+    
+    @Autowired
+    private IndexCatalogue indexCatalogue;
+    
+    @Autowired
+    private CompteursTableauDeBord compteursTableauDeBord;
+    
+    @Value("${bibliotheque.recherche.resultats-max:50}")
+    private int resultatsMax;
+    
+    @Transactional(readOnly = true)
     public List<Livre> getAllLivres() {
         return livreRepository.findAll();
     }
     
+    @Transactional(readOnly = true)
     public Optional<Livre> getLivreById(Long id) {
         return livreRepository.findById(id);
     }
     
+    @Transactional(readOnly = true)
     public List<Livre> searchLivres(String search) {
-        return livreRepository.searchLivres(search);
+        // Repli sur la recherche LIKE tant que l'index n'est pas construit
+        if (!indexCatalogue.isPret()) {
+            return livreRepository.searchLivres(search);
+        }
+        List<Long> ids = indexCatalogue.rechercher(search, resultatsMax);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Livre> livres = livreRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Livre::getLivreId, Function.identity()));
+        return ids.stream().map(livres::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+    
+    public int reindexerCatalogue() {
+        return indexCatalogue.reconstruire();
     }
     
+    @Transactional(readOnly = true)
     public List<Livre> getLivresByCategorie(String categorie) {
         return livreRepository.findByCategorie(categorie);
     }
     
+    @Transactional(readOnly = true)
     public List<Livre> getLivresDisponibles() {
         return livreRepository.findLivresDisponibles();
     }
@@ -55,7 +92,10 @@ public class LivreService {
         livre.setDatePublication(datePublication);
         livre.setImageCouverture(imageCouverture);
         
-        return livreRepository.save(livre);
+        livre = livreRepository.save(livre);
+        indexCatalogue.indexerLivre(livre.getLivreId());
+        compteursTableauDeBord.livreAjoute();
+        return livre;
     }
     
     public Livre updateLivre(Long id, String titre, String edition, String description, 
@@ -69,11 +109,16 @@ public class LivreService {
         livre.setDatePublication(datePublication);
         livre.setImageCouverture(imageCouverture);
         
-        return livreRepository.save(livre);
+        livre = livreRepository.save(livre);
+        indexCatalogue.indexerLivre(id);
+        return livre;
     }
     
     public void deleteLivre(Long id) {
         livreRepository.deleteById(id);
+        indexDisponibilite.invaliderLivre(id);
+        indexCatalogue.supprimerLivre(id);
+        compteursTableauDeBord.livreSupprime();
     }
     
     public Exemplaire addExemplaire(Long livreId, String numExemplaire, Integer etat, Long emplacementId) {
@@ -87,20 +132,42 @@ public class LivreService {
             // exemplaire.setEmplacement(emplacementRepository.findById(emplacementId).orElse(null));
         }
         
-        exemplaire = exemplaireRepository.save(exemplaire);
+        // L'état fait partie de la ligne de l'exemplaire
+        exemplaire.setExemplaireEtat(new ExemplaireEtat(etat, LocalDate.now()));
         
-        // Créer l'état de l'exemplaire
-        ExemplaireEtat exemplaireEtat = new ExemplaireEtat(exemplaire, etat, LocalDate.now());
-        exemplaire.setExemplaireEtat(exemplaireEtat);
+        exemplaire = exemplaireRepository.save(exemplaire);
+        indexDisponibilite.invaliderLivre(livreId);
+        return exemplaire;
+    }
+    
+    public Exemplaire changerEtatExemplaire(Long exemplaireId, Integer etat) {
+        Exemplaire exemplaire = exemplaireRepository.findById(exemplaireId)
+                .orElseThrow(() -> new RuntimeException("Exemplaire non trouvé"));
+        if (exemplaire.getExemplaireEtat() == null) {
+            exemplaire.setExemplaireEtat(new ExemplaireEtat(etat, LocalDate.now()));
+        } else {
+            exemplaire.getExemplaireEtat().setEtat(etat);
+        }
         
-        return exemplaireRepository.save(exemplaire);
+        exemplaire = exemplaireRepository.save(exemplaire);
+        indexDisponibilite.etatModifie(exemplaire.getLivre().getLivreId(), exemplaireId, etat);
+        return exemplaire;
     }
     
+    @Transactional(readOnly = true)
     public List<Exemplaire> getExemplairesDisponibles(Long livreId) {
-        return exemplaireRepository.findExemplairesDisponibles(livreId);
+        List<Long> ids = indexDisponibilite.getExemplairesDisponibles(livreId);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return exemplaireRepository.findAllById(ids);
     }
     
     public boolean isLivreDisponible(Long livreId) {
-        return !getExemplairesDisponibles(livreId).isEmpty();
+        return indexDisponibilite.isLivreDisponible(livreId);
+    }
+    
+    public boolean isExemplaireDisponible(Long livreId, Long exemplaireId) {
+        return indexDisponibilite.isExemplaireDisponible(livreId, exemplaireId);
     }
 }
\ No newline at end of file
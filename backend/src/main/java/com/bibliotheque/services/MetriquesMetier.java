@@ -0,0 +1,68 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.utils.ApresCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Compteurs métier exposés par Micrometer (/actuator/prometheus).
+// Incrémentés après commit, comme les compteurs du tableau de bord : seules les écritures validées comptent.
+@Service
+public class MetriquesMetier {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong notificationsEnAttente = new AtomicLong();
+    private volatile boolean jaugeEnAttente;
+
+    public void pretCree(Integer typePret) {
+        String type = typePret != null && typePret == 1 ? "sur_place" : "domicile";
+        ApresCommit.executer(() -> meterRegistry.counter("bibliotheque.prets.crees", "type", type).increment());
+    }
+
+    public void pretRendu(boolean enRetard) {
+        ApresCommit.executer(() -> meterRegistry.counter("bibliotheque.prets.rendus", "en_retard", String.valueOf(enRetard)).increment());
+    }
+
+    public void penaliteEmise(BigDecimal montant) {
+        ApresCommit.executer(() -> {
+            meterRegistry.counter("bibliotheque.penalites.emises").increment();
+            meterRegistry.summary("bibliotheque.penalites.montant").record(montant.doubleValue());
+        });
+    }
+
+    // Mises en boîte d'envoi ; origine : "unitaire" (NotificationService) ou "lot" (traitement des retards)
+    public void notificationsEnvoyees(String origine, int nombre) {
+        ApresCommit.executer(() -> meterRegistry.counter("bibliotheque.notifications.envoyees", "origine", origine).increment(nombre));
+    }
+
+    // Livraisons de la boîte d'envoi, par canal
+    public void notificationsLivrees(String canal, int nombre) {
+        ApresCommit.executer(() -> meterRegistry.counter("bibliotheque.notifications.livrees", "canal", canal).increment(nombre));
+    }
+
+    public void notificationsEnEchec(String canal, int nombre, int abandonnees) {
+        ApresCommit.executer(() -> {
+            meterRegistry.counter("bibliotheque.notifications.echecs", "canal", canal).increment(nombre);
+            meterRegistry.counter("bibliotheque.notifications.abandonnees", "canal", canal).increment(abandonnees);
+        });
+    }
+
+    // Délai entre la mise en boîte d'envoi et la livraison
+    public void delaiLivraison(String canal, Duration delai) {
+        ApresCommit.executer(() -> meterRegistry.timer("bibliotheque.notifications.delai", "canal", canal).record(delai));
+    }
+
+    public void notificationsEnAttente(long nombre) {
+        if (!jaugeEnAttente) {
+            meterRegistry.gauge("bibliotheque.notifications.en_attente", notificationsEnAttente);
+            jaugeEnAttente = true;
+        }
+        notificationsEnAttente.set(nombre);
+    }
+}
@@ -1,19 +1,47 @@
 package com.bibliotheque.services;
 
+import com.bibliotheque.dto.NotificationACreer;
 import com.bibliotheque.entities.*;
+import com.bibliotheque.repository.NotificationBatchRepository;
+import com.bibliotheque.repository.NotificationEnvoiRepository;
 import com.bibliotheque.repository.NotificationRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Service
+@Timed("bibliotheque.service")
 public class NotificationService {
     
     @Autowired
     private NotificationRepository notificationRepository;
     
+    @Autowired
+    private NotificationBatchRepository notificationBatchRepository;
+    
+    @Autowired
+    private NotificationEnvoiRepository notificationEnvoiRepository;
+    
+    @Autowired
+    private DistributeurNotifications distributeurNotifications;
+    
+    @Autowired
+    private CompteurNonLues compteurNonLues;
+    
+    @Autowired
+    private MetriquesMetier metriquesMetier;
+    
+    @Value("${bibliotheque.notifications.lot-max:1000}")
+    private int lotMax;
+    
     public List<Notification> getNotificationsByProfil(Long profilId) {
         return notificationRepository.findByProfil_ProfilIdOrderByDateEnvoiDesc(profilId);
     }
@@ -23,7 +51,7 @@ public class NotificationService {
     }
     
     public Long countNotificationsNonLues(Long profilId) {
-        return notificationRepository.countNotificationsNonLuesByProfil(profilId);
+        return compteurNonLues.get(profilId);
     }
     
     public Notification createNotification(Profil profil, String message, Integer type) {
@@ -34,34 +62,76 @@ public class NotificationService {
         NotificationType notificationType = new NotificationType(notification, type);
         notification.setNotificationType(notificationType);
         
-        // Créer le statut de notification
-        NotificationStatus notificationStatus = new NotificationStatus(notification);
-        notification.setNotificationStatus(notificationStatus);
-        
-        return notificationRepository.save(notification);
+        notification = notificationRepository.save(notification);
+        compteurNonLues.ajoutees(Map.of(profil.getProfilId(), 1));
+        metriquesMetier.notificationsEnvoyees("unitaire", 1);
+        return notification;
+    }
+    
+    // Boîte d'envoi : une ligne par canal actif, écrite dans la transaction appelante et livrée
+    // ensuite par DistributeurNotifications
+    public void mettreEnFile(Long profilId, String message, Integer type) {
+        mettreEnFile(List.of(new NotificationACreer(profilId, message, type)), "unitaire");
+    }
+    
+    public void mettreEnFile(List<NotificationACreer> notifications, String origine) {
+        notificationEnvoiRepository.ajouter(notifications, distributeurNotifications.getCanauxActifs());
+        metriquesMetier.notificationsEnvoyees(origine, notifications.size());
     }
     
     public void marquerCommeLue(Long notificationId) {
         Notification notification = notificationRepository.findById(notificationId)
                 .orElseThrow(() -> new RuntimeException("Notification non trouvée"));
         
+        boolean dejaLue = notification.getNotificationStatus().getStatut() != 0;
         notification.getNotificationStatus().setStatut(1); // Lu
         notificationRepository.save(notification);
+        if (!dejaLue) {
+            compteurNonLues.lues(notification.getProfil().getProfilId(), 1);
+        }
+    }
+    
+    public int marquerToutesCommeLues(Long profilId) {
+        return changerStatut(profilId, 1, null, null, null); // Lu
+    }
+    
+    // Changement de statut en une requête des notifications du profil (0 : non lu, 1 : lu),
+    // restreint aux identifiants, au type et aux notifications envoyées avant la date s'ils sont donnés
+    @Transactional
+    public int changerStatut(Long profilId, int statut, Collection<Long> notificationIds, Integer type, LocalDateTime avant) {
+        if (statut != 0 && statut != 1) {
+            throw new RuntimeException("Statut de notification invalide : " + statut);
+        }
+        if (notificationIds != null && notificationIds.size() > lotMax) {
+            throw new RuntimeException("Trop de notifications (" + notificationIds.size() + "), maximum " + lotMax + " par appel");
+        }
+        int modifiees = notificationBatchRepository.changerStatut(profilId, statut, notificationIds, type, avant);
+        if (statut == 1) {
+            compteurNonLues.lues(profilId, modifiees);
+        } else if (modifiees > 0) {
+            compteurNonLues.ajoutees(Map.of(profilId, modifiees));
+        }
+        return modifiees;
+    }
+    
+    public static String messageRappelRetour(String titre, LocalDate dateFinPret) {
+        return String.format("Rappel: votre livre \"%s\" doit être rendu le %s", titre, dateFinPret.toString());
+    }
+    
+    public static String messageRetard(String titre) {
+        return String.format("Votre livre \"%s\" est en retard. Veuillez le rendre rapidement pour éviter des pénalités.", titre);
     }
     
     public void envoyerRappelRetour(Pret pret) {
-        String message = String.format("Rappel: votre livre \"%s\" doit être rendu le %s",
-                pret.getExemplaire().getLivre().getTitre(),
-                pret.getDateFinPret().toString());
+        String message = messageRappelRetour(pret.getExemplaire().getLivre().getTitre(), pret.getDateFinPret());
         
-        createNotification(pret.getProfil(), message, 0); // Type: Rappel
+        mettreEnFile(pret.getProfil().getProfilId(), message, 0); // Type: Rappel
     }
     
     public void envoyerNotificationRetard(Pret pret) {
-        String message = String.format("Votre livre \"%s\" est en retard. Veuillez le rendre rapidement pour éviter des pénalités.",
-                pret.getExemplaire().getLivre().getTitre());
+        String message = messageRetard(pret.getExemplaire().getLivre().getTitre());
         
-        createNotification(pret.getProfil(), message, 0); // Type: Rappel
+        mettreEnFile(pret.getProfil().getProfilId(), message, 0); // Type: Rappel
     }
     
     public void envoyerNotificationDisponibilite(Reservation reservation) {
@@ -69,7 +139,7 @@ public class NotificationService {
                 reservation.getExemplaire().getLivre().getTitre(),
                 reservation.getDateExpiration().toString());
         
-        createNotification(reservation.getProfil(), message, 2); // Type: Disponibilité
+        mettreEnFile(reservation.getProfil().getProfilId(), message, 2); // Type: Disponibilité
     }
     
     public void envoyerNotificationPenalite(Penalite penalite) {
@@ -77,7 +147,7 @@ public class NotificationService {
                 penalite.getMontant(),
                 penalite.getRaisons());
         
-        createNotification(penalite.getProfil(), message, 1); // Type: Pénalité
+        mettreEnFile(penalite.getProfil().getProfilId(), message, 1); // Type: Pénalité
     }
     
     public List<Notification> getAllNotifications() {
@@ -1,17 +1,37 @@
 package com.bibliotheque.services;
 
+import com.bibliotheque.dto.EligibiliteProfil;
+import com.bibliotheque.dto.ExemplairePretable;
+import com.bibliotheque.dto.PretARendre;
+import com.bibliotheque.dto.PretResume;
 import com.bibliotheque.entities.*;
 import com.bibliotheque.repository.*;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
+@Timed("bibliotheque.service")
 public class PretService {
     
+    private static final LocalDate DATE_MIN = LocalDate.of(1000, 1, 1);
+    private static final LocalDate DATE_MAX = LocalDate.of(9999, 12, 31);
+    
     @Autowired
     private PretRepository pretRepository;
     
@@ -30,6 +50,9 @@ public class PretService {
     @Autowired
     private PenaliteRepository penaliteRepository;
     
+    @Autowired
+    private PenaliteCumulRepository penaliteCumulRepository;
+    
     @Autowired
     private ProlongementPretRepository prolongementPretRepository;
     
@@ -40,82 +63,140 @@ public class PretService {
     private SettingsService settingsService;
 
     @Autowired
-    private InscriptionRepository inscriptionRepository;
+    private EligibiliteService eligibiliteService;
+    
+    @Autowired
+    private SituationsComptes situationsComptes;
+    
+    @Autowired
+    private IndexDisponibilite indexDisponibilite;
+    
+    @Autowired
+    private CompteursTableauDeBord compteursTableauDeBord;
+    
+    @Autowired
+    private MetriquesMetier metriquesMetier;
     
-    public List<Pret> getAllPrets() {
-        return pretRepository.findAll();
+    @Autowired
+    private PretLotRepository pretLotRepository;
+    
+    @Autowired
+    private ReservationService reservationService;
+    
+    @Autowired
+    private FileReservations fileReservations;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Value("${bibliotheque.prets.lot-max:500}")
+    private int tailleLotMax;
+    
+    @Value("${bibliotheque.prets.tentatives-conflit:3}")
+    private int tentativesConflit;
+    
+    // Filtres absents remplacés par les bornes du type DATE de MySQL : chaque requête reste un parcours
+    // d'index, par profil ou sur date_pret, borné en haut par le curseur
+    @Transactional(readOnly = true)
+    public List<PretResume> rechercherPrets(Long profilId, LocalDate dateDebut, LocalDate dateFin,
+                                            Boolean rendu, Boolean enRetard,
+                                            LocalDate curseurDate, Long curseurId, int taille) {
+        LocalDate depuis = dateDebut != null ? dateDebut : DATE_MIN;
+        LocalDate jusqua = dateFin != null ? dateFin : DATE_MAX;
+        LocalDate curseur = curseurDate != null ? curseurDate : DATE_MAX;
+        if (curseur.isBefore(jusqua)) {
+            jusqua = curseur;
+        }
+        Long dernierId = curseurId != null ? curseurId : Long.MAX_VALUE;
+        if (profilId != null) {
+            return pretRepository.findPretsResumesByProfil(profilId, depuis, jusqua, rendu, enRetard,
+                    curseur, dernierId, PageRequest.ofSize(taille));
+        }
+        return pretRepository.findPretsResumesByPeriode(depuis, jusqua, rendu, enRetard,
+                curseur, dernierId, PageRequest.ofSize(taille));
     }
     
+    @Transactional(readOnly = true)
     public List<Pret> getPretsActifs() {
         return pretRepository.findPretsActifs();
     }
     
+    @Transactional(readOnly = true)
     public List<Pret> getPretsEnRetard() {
         return pretRepository.findPretsEnRetard();
     }
     
+    @Transactional(readOnly = true)
     public List<Pret> getPretsByProfil(Long profilId) {
         return pretRepository.findPretsActifsByProfil(profilId);
     }
     
+    // Un conflit sur l'exemplaire relance la transaction : la tentative suivante voit le prêt concurrent
+    // validé entre-temps et refuse avec « Exemplaire déjà emprunté »
     public Pret createPret(Long exemplaireId, Long profilId, Long bibliothequaireId, 
                           Integer typePret, Integer dureePret) {
-        Exemplaire exemplaire = exemplaireRepository.findById(exemplaireId)
-                .orElseThrow(() -> new RuntimeException("Exemplaire non trouvé"));
-        
-        Profil profil = profilRepository.findById(profilId)
-                .orElseThrow(() -> new RuntimeException("Profil non trouvé"));
-        
-        Bibliothequaire bibliothequaire = bibliothequaireRepository.findById(bibliothequaireId)
-                .orElseThrow(() -> new RuntimeException("Bibliothécaire non trouvé"));
-        
-        // Vérifier pénalité active
-        List<Penalite> penalitesActives = penaliteRepository.findPenalitesActivesByProfilAndDate(profilId, LocalDate.now());
-        if (!penalitesActives.isEmpty()) {
-            StringBuilder message = new StringBuilder("Ce client a une pénalité active : ");
-            for (Penalite penalite : penalitesActives) {
-                message.append(String.format("Pénalité de %.2f€ du %s au %s. ", 
-                    penalite.getMontant(), 
-                    penalite.getDateDebut(), 
-                    penalite.getDateFin()));
+        for (int tentative = 1; ; tentative++) {
+            try {
+                return transactionTemplate.execute(status ->
+                        creerPret(exemplaireId, profilId, bibliothequaireId, typePret, dureePret));
+            } catch (OptimisticLockingFailureException e) {
+                if (tentative >= tentativesConflit) {
+                    throw new RuntimeException("Exemplaire en cours d'emprunt sur un autre poste, veuillez réessayer");
+                }
             }
-            throw new RuntimeException(message.toString());
         }
+    }
+    
+    private Pret creerPret(Long exemplaireId, Long profilId, Long bibliothequaireId, 
+                           Integer typePret, Integer dureePret) {
+        // Version lue avant les contrôles : un prêt concurrent validé après cette lecture fera échouer la réclamation
+        Long version = exemplaireRepository.findVersion(exemplaireId);
         
-        // Vérifier les quotas
-        Settings settings = settingsService.getCurrentSettings();
-        int quotaMax = settings.getQuotaByType(profil.getAdherant().getType().getType());
-        Long nbPretsActifs = pretRepository.countPretsByProfil(profilId);
-        if (nbPretsActifs >= quotaMax) {
-            throw new RuntimeException("Quota de prêts dépassé pour ce profil");
-        }
-
-        // Vérifier si le profil a une inscription active
-        Optional<LocalDate> dateFinInscription = inscriptionRepository.findDateFinDerniereInscriptionByProfil(profilId);
-        if (dateFinInscription.isEmpty() || dateFinInscription.get().isBefore(LocalDate.now())) {
-            throw new RuntimeException("Le profil n'a pas d'inscription active. Veuillez d'abord vous inscrire.");
+        // Pénalités, quota, inscription et disponibilité de l'exemplaire en une seule requête
+        EligibiliteProfil eligibilite = eligibiliteService.verifierPret(profilId, exemplaireId, bibliothequaireId);
+        if (exemplaireRepository.reclamer(exemplaireId, version) == 0) {
+            throw new OptimisticLockingFailureException("Exemplaire " + exemplaireId + " modifié par un prêt concurrent");
         }
         
+        Exemplaire exemplaire = exemplaireRepository.getReferenceById(exemplaireId);
+        Profil profil = profilRepository.getReferenceById(profilId);
+        Bibliothequaire bibliothequaire = bibliothequaireRepository.getReferenceById(bibliothequaireId);
+        
         LocalDate datePret = LocalDate.now();
         LocalDate dateFinPret = datePret.plusDays(dureePret != null ? dureePret : 14);
         
+        // Le statut fait partie de la ligne du prêt ; le type est persisté en cascade, dans le même flush
         Pret pret = new Pret(exemplaire, profil, bibliothequaire, datePret, dateFinPret);
-        pret = pretRepository.save(pret);
+        pret.setPretType(new PretType(pret, typePret));
         
-        // Créer le type de prêt
-        PretType pretTypeEntity = new PretType(pret, typePret);
-        pret.setPretType(pretTypeEntity);
-        
-        // Créer le statut de prêt
-        PretStatus pretStatus = new PretStatus(pret);
-        pret.setPretStatus(pretStatus);
-        
-        return pretRepository.save(pret);
+        pret = pretRepository.save(pret);
+        situationsComptes.invalider(profilId);
+        indexDisponibilite.pretCree(eligibilite.getExemplaireLivreId(), exemplaireId);
+        compteursTableauDeBord.pretCree();
+        metriquesMetier.pretCree(typePret);
+        return pret;
     }
     
+    // Livre résolu hors transaction : son verrou est pris avant la première lecture du prêt, sans quoi
+    // l'attribution à la tête de file lirait un statut de réservation antérieur au verrou
     public Pret retournerPret(Long pretId, LocalDate dateRendu) {
+        Long livreId = pretRepository.findLivreIdByPretId(pretId)
+                .orElseThrow(() -> new RuntimeException("Prêt non trouvé"));
+        return transactionTemplate.execute(status -> {
+            fileReservations.verrouiller(livreId);
+            return rendrePret(pretId, dateRendu);
+        });
+    }
+    
+    private Pret rendrePret(Long pretId, LocalDate dateRendu) {
         Pret pret = pretRepository.findById(pretId)
                 .orElseThrow(() -> new RuntimeException("Prêt non trouvé"));
+        // Même refus que le retour en lot : un second retour libérerait l'exemplaire d'un prêt plus récent
+        if (pret.getDateRendu() != null) {
+            throw new RuntimeException("Prêt déjà rendu le " + pret.getDateRendu());
+        }
+        Long livreId = pret.getExemplaire().getLivre().getLivreId();
+        Long exemplaireId = pret.getExemplaire().getExemplaireId();
 
         pret.setDateRendu(dateRendu);
         pret.getPretStatus().setRendu(true);
@@ -126,62 +207,235 @@ public class PretService {
             pret.getProfil().getProfilId()
         );
         if (reservation != null && reservation.getReservationStatus().getStatut() < 3) {
+            compteursTableauDeBord.reservationStatutModifie(reservation.getReservationStatus().getStatut(), 3);
             reservation.getReservationStatus().setStatut(3); // Expirée
+            fileReservations.retirer(livreId, reservation.getReservationId());
             reservationRepository.save(reservation);
         }
 
         // --- LOGIQUE DE PENALITE ---
+        // Même règle que le cumul quotidien (délai de grâce, plafond) ; la pénalité en cours est soldée
         Settings settings = settingsService.getCurrentSettings();
-        int gracePeriod = settings.getGracePeriod(); // Délai de grâce en jours
-        double dailyPenalty = settings.getDailyPenalty(); // Montant pénalité par jour
-        double maxPenalty = settings.getMaxPenalty(); // Pénalité max
-
-        LocalDate dateFinPret = pret.getDateFinPret();
-        LocalDate dateLimite = dateFinPret.plusDays(gracePeriod);
-
-        if (dateRendu.isAfter(dateLimite)) {
-            long daysLate = java.time.temporal.ChronoUnit.DAYS.between(dateLimite, dateRendu);
-            double montant = daysLate * dailyPenalty;
-
+        long daysLate = CumulPenalitesService.joursPenalises(pret.getDateFinPret(), dateRendu, settings);
+        if (daysLate > 0) {
             Penalite penalite = new Penalite();
             penalite.setProfil(pret.getProfil());
             penalite.setDateDebut(dateRendu); // Date de début = date_rendu + nombre de jours de retard
-            penalite.setDateFin(dateRendu.plusDays(daysLate)); // Pénalité de 30 jours par défaut
-            penalite.setMontant(java.math.BigDecimal.valueOf(montant));
+            penalite.setDateFin(dateRendu.plusDays(daysLate)); // Suspension d'autant de jours que le retard
+            penalite.setMontant(CumulPenalitesService.montant(daysLate, settings));
             penalite.setRaisons("Retard de rendu du prêt n°" + pret.getPretId() + " - " + daysLate + " jour(s) de retard");
             penalite.setPret(pret);
+            penalite.setPenaliteStatus(new PenaliteStatus()); // Active
 
             penaliteRepository.save(penalite);
+            situationsComptes.invalider(pret.getProfil().getProfilId());
+            compteursTableauDeBord.penaliteEmise(penalite.getMontant());
+            metriquesMetier.penaliteEmise(penalite.getMontant());
         }
+        penaliteCumulRepository.supprimer(List.of(pret.getPretId()));
         // --- FIN LOGIQUE DE PENALITE ---
 
-        return pretRepository.save(pret);
+        try {
+            // Flush immédiat : la version du prêt détecte un retour simultané du même prêt
+            pret = pretRepository.saveAndFlush(pret);
+        } catch (OptimisticLockingFailureException e) {
+            throw new RuntimeException("Prêt rendu simultanément sur un autre poste");
+        }
+        indexDisponibilite.pretRendu(livreId, exemplaireId);
+        compteursTableauDeBord.pretRendu(pret.getDateFinPret());
+        metriquesMetier.pretRendu(dateRendu.isAfter(pret.getDateFinPret()));
+        // L'exemplaire revient à la tête de file des réservations du livre, dans la même transaction
+        reservationService.traiterRetourPourReservations(livreId, exemplaireId);
+        return pret;
     }
     
-    public void verifierRetards() {
-        List<Pret> pretsEchus = pretRepository.findPretsEchus(LocalDate.now());
-        
-        for (Pret pret : pretsEchus) {
-            if (!pret.getPretStatus().getEnRetard()) {
-                pret.getPretStatus().setEnRetard(true);
-                pretRepository.save(pret);
-                
-                // Envoyer notification de retard
-                notificationService.envoyerNotificationRetard(pret);
+    // Prêt de plusieurs exemplaires à un même profil : contrôles du profil une seule fois,
+    // puis un résultat par exemplaire (les exemplaires refusés n'empêchent pas les autres)
+    @Transactional
+    public List<Map<String, Object>> creerPretsEnLot(List<Long> exemplaireIds, Long profilId, Long bibliothequaireId,
+                                                     Integer typePret, Integer dureePret) {
+        verifierTailleLot(exemplaireIds);
+        EligibiliteProfil eligibilite = eligibiliteService.evaluer(profilId, null, bibliothequaireId);
+        if (!eligibilite.isBibliothequaireExiste()) {
+            throw new RuntimeException("Bibliothécaire non trouvé");
+        }
+        eligibiliteService.verifierPenalites(eligibilite);
+        eligibiliteService.verifierInscription(eligibilite);
+        long restants = eligibiliteService.getPretsRestants(eligibilite);
+
+        Map<Long, ExemplairePretable> exemplaires = pretLotRepository.findExemplaires(new HashSet<>(exemplaireIds));
+        List<Map<String, Object>> resultats = new ArrayList<>(exemplaireIds.size());
+        List<Long> candidats = new ArrayList<>();
+        List<Map<String, Object>> resultatsCandidats = new ArrayList<>();
+        Set<Long> vus = new HashSet<>();
+        for (Long exemplaireId : exemplaireIds) {
+            Map<String, Object> resultat = new LinkedHashMap<>();
+            resultat.put("exemplaireId", exemplaireId);
+            resultats.add(resultat);
+
+            ExemplairePretable exemplaire = exemplaires.get(exemplaireId);
+            String erreur = null;
+            if (!vus.add(exemplaireId)) {
+                erreur = "Exemplaire présent plusieurs fois dans le lot";
+            } else if (exemplaire == null) {
+                erreur = "Exemplaire non trouvé";
+            } else if (exemplaire.getEtat() != null && exemplaire.getEtat() >= 4) {
+                erreur = "Exemplaire hors service";
+            } else if (exemplaire.getPretsActifs() > 0) {
+                erreur = "Exemplaire déjà emprunté";
             }
+            if (erreur != null) {
+                resultat.put("succes", false);
+                resultat.put("error", erreur);
+            } else {
+                candidats.add(exemplaireId);
+                resultatsCandidats.add(resultat);
+            }
+        }
+
+        // Réclamation des exemplaires à la version lue avec leur état, par vagues de la taille du quota restant :
+        // un exemplaire prêté entre-temps sur un autre poste est refusé sans consommer de place dans le quota
+        List<Long> acceptes = new ArrayList<>();
+        List<Map<String, Object>> resultatsAcceptes = new ArrayList<>();
+        int suivant = 0;
+        while (suivant < candidats.size() && acceptes.size() < restants) {
+            int fin = (int) Math.min(candidats.size(), suivant + restants - acceptes.size());
+            List<Long> vague = candidats.subList(suivant, fin);
+            Set<Long> reclames = pretLotRepository.reclamerExemplaires(vague.stream().map(exemplaires::get).toList());
+            for (int i = suivant; i < fin; i++) {
+                if (reclames.contains(candidats.get(i))) {
+                    acceptes.add(candidats.get(i));
+                    resultatsAcceptes.add(resultatsCandidats.get(i));
+                } else {
+                    resultatsCandidats.get(i).put("succes", false);
+                    resultatsCandidats.get(i).put("error", "Exemplaire emprunté simultanément sur un autre poste");
+                }
+            }
+            suivant = fin;
+        }
+        for (int i = suivant; i < candidats.size(); i++) {
+            resultatsCandidats.get(i).put("succes", false);
+            resultatsCandidats.get(i).put("error", "Quota de prêts dépassé pour ce profil");
         }
+
+        LocalDate datePret = LocalDate.now();
+        LocalDate dateFinPret = datePret.plusDays(dureePret != null ? dureePret : 14);
+        List<Long> pretIds = pretLotRepository.insererPrets(acceptes, profilId, bibliothequaireId,
+                datePret, dateFinPret, typePret != null ? typePret : 0);
+        if (!pretIds.isEmpty()) {
+            situationsComptes.invalider(profilId);
+        }
+        for (int i = 0; i < pretIds.size(); i++) {
+            Map<String, Object> resultat = resultatsAcceptes.get(i);
+            resultat.put("succes", true);
+            resultat.put("pretId", pretIds.get(i));
+            resultat.put("datePret", datePret.toString());
+            resultat.put("dateFinPret", dateFinPret.toString());
+
+            indexDisponibilite.pretCree(exemplaires.get(acceptes.get(i)).getLivreId(), acceptes.get(i));
+            compteursTableauDeBord.pretCree();
+            metriquesMetier.pretCree(typePret);
+        }
+        return resultats;
     }
     
-    public void envoyerRappels() {
-        LocalDate dateRappel = LocalDate.now().plusDays(3);
-        List<Pret> pretsARendreBientot = pretRepository.findPretsARendreBientot(
-                LocalDate.now(), dateRappel);
-        
-        for (Pret pret : pretsARendreBientot) {
-            notificationService.envoyerRappelRetour(pret);
+    // Retour de plusieurs prêts, éventuellement de profils différents, à la même date ;
+    // mêmes règles que retournerPret (livres verrouillés avant toute lecture), un résultat par prêt
+    public List<Map<String, Object>> retournerPretsEnLot(List<Long> pretIds, LocalDate dateRendu) {
+        verifierTailleLot(pretIds);
+        List<Long> livreIds = pretRepository.findLivreIdsByPretIds(new HashSet<>(pretIds));
+        return transactionTemplate.execute(status -> {
+            fileReservations.verrouiller(livreIds);
+            return rendrePretsEnLot(pretIds, dateRendu);
+        });
+    }
+    
+    private List<Map<String, Object>> rendrePretsEnLot(List<Long> pretIds, LocalDate dateRendu) {
+        Map<Long, PretARendre> prets = pretLotRepository.findPretsARendre(new HashSet<>(pretIds));
+        // Passage à rendu conditionnel : un prêt rendu entre-temps par un autre poste n'est pas traité deux fois
+        Set<Long> reclames = pretLotRepository.marquerRendus(prets.values().stream()
+                .filter(p -> p.getDateRendu() == null)
+                .map(PretARendre::getPretId)
+                .toList(), dateRendu);
+
+        Settings settings = settingsService.getCurrentSettings();
+
+        List<Map<String, Object>> resultats = new ArrayList<>(pretIds.size());
+        List<Long> rendus = new ArrayList<>();
+        List<Long> reservations = new ArrayList<>();
+        List<Object[]> penalites = new ArrayList<>();
+        Set<Long> vus = new HashSet<>();
+        for (Long pretId : pretIds) {
+            Map<String, Object> resultat = new LinkedHashMap<>();
+            resultat.put("pretId", pretId);
+            resultats.add(resultat);
+
+            PretARendre pret = prets.get(pretId);
+            String erreur = null;
+            if (!vus.add(pretId)) {
+                erreur = "Prêt présent plusieurs fois dans le lot";
+            } else if (pret == null) {
+                erreur = "Prêt non trouvé";
+            } else if (pret.getDateRendu() != null) {
+                erreur = "Prêt déjà rendu le " + pret.getDateRendu();
+            } else if (!reclames.contains(pretId)) {
+                erreur = "Prêt rendu simultanément sur un autre poste";
+            }
+            if (erreur != null) {
+                resultat.put("succes", false);
+                resultat.put("error", erreur);
+                continue;
+            }
+
+            rendus.add(pretId);
+            if (pret.getReservationId() != null && pret.getReservationStatut() < 3) {
+                reservations.add(pret.getReservationId());
+                fileReservations.retirer(pret.getLivreId(), pret.getReservationId());
+                compteursTableauDeBord.reservationStatutModifie(pret.getReservationStatut(), 3);
+            }
+
+            boolean enRetard = dateRendu.isAfter(pret.getDateFinPret());
+            long daysLate = CumulPenalitesService.joursPenalises(pret.getDateFinPret(), dateRendu, settings);
+            resultat.put("succes", true);
+            resultat.put("dateRendu", dateRendu.toString());
+            resultat.put("enRetard", enRetard);
+            if (daysLate > 0) {
+                BigDecimal montant = CumulPenalitesService.montant(daysLate, settings);
+                penalites.add(new Object[] { pret.getProfilId(), pretId, dateRendu, dateRendu.plusDays(daysLate), montant,
+                        "Retard de rendu du prêt n°" + pretId + " - " + daysLate + " jour(s) de retard" });
+                resultat.put("penalite", montant);
+                compteursTableauDeBord.penaliteEmise(montant);
+                metriquesMetier.penaliteEmise(montant);
+            }
+
+            indexDisponibilite.pretRendu(pret.getLivreId(), pret.getExemplaireId());
+            compteursTableauDeBord.pretRendu(pret.getDateFinPret());
+            metriquesMetier.pretRendu(enRetard);
+        }
+
+        pretLotRepository.expirerReservations(reservations);
+        pretLotRepository.insererPenalites(penalites);
+        situationsComptes.invalider(penalites.stream().map(p -> (Long) p[0]).collect(Collectors.toSet()));
+        penaliteCumulRepository.supprimer(rendus);
+        for (Long pretId : rendus) {
+            PretARendre pret = prets.get(pretId);
+            if (fileReservations.tete(pret.getLivreId()) != null) {
+                reservationService.traiterRetourPourReservations(pret.getLivreId(), pret.getExemplaireId());
+            }
+        }
+        return resultats;
+    }
+    
+    private void verifierTailleLot(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new RuntimeException("Lot vide");
+        }
+        if (ids.size() > tailleLotMax) {
+            throw new RuntimeException("Lot trop grand : " + ids.size() + " éléments, " + tailleLotMax + " au plus");
         }
     }
     
+    @Transactional
     public Pret prolongerPret(Long pretId, Integer nombreJours) {
         Pret pret = pretRepository.findById(pretId)
                 .orElseThrow(() -> new RuntimeException("Prêt non trouvé"));
@@ -193,42 +447,24 @@ public class PretService {
             throw new RuntimeException("Prolongation trop large");
         }
 
-        // Vérifier pénalité active
-        List<Penalite> penalitesActives = penaliteRepository.findPenalitesActivesByProfilAndDate(profilId, LocalDate.now());
-        if (!penalitesActives.isEmpty()) {
-            StringBuilder message = new StringBuilder("Ce client a une pénalité active : ");
-            for (Penalite penalite : penalitesActives) {
-                message.append(String.format("Pénalité de %.2f€ du %s au %s. ", 
-                    penalite.getMontant(), 
-                    penalite.getDateDebut(), 
-                    penalite.getDateFin()));
-            }
-            throw new RuntimeException(message.toString());
-        }
-
-        // Vérifier si le profil a une inscription active
-        Optional<LocalDate> dateFinInscription = inscriptionRepository.findDateFinDerniereInscriptionByProfil(profilId);
-        if (dateFinInscription.isEmpty() || dateFinInscription.get().isBefore(LocalDate.now())) {
-            throw new RuntimeException("Le profil n'a pas d'inscription active. Veuillez d'abord vous inscrire.");
-        }
+        // Pénalités, inscription et prolongements en une seule requête
+        EligibiliteProfil eligibilite = eligibiliteService.evaluer(profilId, null, null);
+        eligibiliteService.verifierPenalites(eligibilite);
+        eligibiliteService.verifierInscription(eligibilite);
 
         // Calculer la nouvelle date de fin
         LocalDate nouvelleDateFin = pret.getDateFinPret().plusDays(nombreJours);
 
         // Vérifier que la nouvelle date ne dépasse pas la date de fin d'inscription
-        if (nouvelleDateFin.isAfter(dateFinInscription.get())) {
+        if (nouvelleDateFin.isAfter(eligibilite.getDateFinInscription())) {
             throw new RuntimeException("Date limite de l'inscription dépassée, veuillez d'abord vous réinscrire");
         }
 
         // Vérifier les quotas de prolongements
-        Settings settings = settingsService.getCurrentSettings();
-        int quotaMaxProlongements = settings.getQuotaByType(pret.getProfil().getAdherant().getType().getType());
-        Long nbProlongementsActuels = pretRepository.countProlongementsByProfil(profilId);
-        if (nbProlongementsActuels >= quotaMaxProlongements) {
-            throw new RuntimeException("Quota de prolongements dépassé pour ce profil");
-        }
+        eligibiliteService.verifierQuotaProlongements(eligibilite);
 
         // Mettre à jour la date de fin de prêt
+        compteursTableauDeBord.pretProlonge(pret.getDateFinPret(), nouvelleDateFin);
         pret.setDateFinPret(nouvelleDateFin);
 
         // Créer un objet ProlongementPret
@@ -239,6 +475,7 @@ public class PretService {
         prolongement.setStatut(1); // Approuvé
 
         prolongementPretRepository.save(prolongement);
+        situationsComptes.invalider(profilId);
 
         return pretRepository.save(pret);
     }
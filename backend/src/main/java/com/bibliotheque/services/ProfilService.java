@@ -1,12 +1,16 @@
 package com.bibliotheque.services;
 
+import com.bibliotheque.config.CacheConfig;
 import com.bibliotheque.entities.Adherant;
 import com.bibliotheque.entities.AdherantType;
+import com.bibliotheque.entities.Inscription;
 import com.bibliotheque.entities.Profil;
 import com.bibliotheque.repository.AdherantTypeRepository;
+import com.bibliotheque.repository.InscriptionRepository;
 import com.bibliotheque.repository.ProfilRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -21,6 +25,19 @@ public class ProfilService {
     @Autowired
     private AdherantTypeRepository adherantTypeRepository;
     
+    @Autowired
+    private InscriptionRepository inscriptionRepository;
+    
+    @Autowired
+    private CachesReference cachesReference;
+    
+    @Autowired
+    private CompteursTableauDeBord compteursTableauDeBord;
+    
+    @Autowired
+    private SituationsComptes situationsComptes;
+    
+    @Transactional(readOnly = true)
     public List<Profil> getAllProfils() {
         return profilRepository.findAll();
     }
@@ -33,6 +50,7 @@ public class ProfilService {
         return profilRepository.findByEmail(email);
     }
     
+    @Transactional(readOnly = true)
     public List<Profil> getProfilsByType(String type) {
         return profilRepository.findByAdherantType(type);
     }
@@ -44,10 +62,13 @@ public class ProfilService {
         }
         
         // Récupérer ou créer le type d'adhérant
-        AdherantType adherantType = adherantTypeRepository.findByType(typeAdherant)
+        AdherantType adherantType = adherantTypeRepository.findIdByType(typeAdherant)
+                .map(adherantTypeRepository::getReferenceById)
                 .orElseGet(() -> {
                     AdherantType newType = new AdherantType(typeAdherant);
-                    return adherantTypeRepository.save(newType);
+                    AdherantType saved = adherantTypeRepository.save(newType);
+                    cachesReference.vider(CacheConfig.ADHERANT_TYPES);
+                    return saved;
                 });
         
         // Créer l'adhérant
@@ -75,9 +96,13 @@ public class ProfilService {
     }
     
     public void deleteProfil(Long id) {
+        Inscription derniere = inscriptionRepository.findDerniereInscriptionByProfil(id).orElse(null);
         profilRepository.deleteById(id);
+        situationsComptes.invalider(id);
+        compteursTableauDeBord.profilSupprime(derniere);
     }
     
+    @Transactional(readOnly = true)
     public List<Profil> searchProfils(String search) {
         return profilRepository.findByNomOrPrenom(search, search);
     }
@@ -2,14 +2,19 @@ package com.bibliotheque.services;
 
 import com.bibliotheque.entities.*;
 import com.bibliotheque.repository.*;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 
 @Service
+@Timed("bibliotheque.service")
 public class ReservationService {
     
     @Autowired
@@ -22,134 +27,200 @@ public class ReservationService {
     private ProfilRepository profilRepository;
     
     @Autowired
-    private LivreService livreService;
+    private IndexDisponibilite indexDisponibilite;
     
     @Autowired
     private NotificationService notificationService;
     
     @Autowired
-    private SettingsService settingsService;
+    private EligibiliteService eligibiliteService;
     
     @Autowired
-    private PretRepository pretRepository;
+    private CompteursTableauDeBord compteursTableauDeBord;
     
     @Autowired
-    private PenaliteRepository penaliteRepository;
+    private FileReservations fileReservations;
     
     @Autowired
-    private InscriptionRepository inscriptionRepository;
+    private TransactionTemplate transactionTemplate;
     
+    @Value("${bibliotheque.reservations.attente-max-jours:60}")
+    private int attenteMaxJours;
+    
+    @Transactional(readOnly = true)
     public List<Reservation> getAllReservations() {
         return reservationRepository.findAll();
     }
     
+    @Transactional(readOnly = true)
     public List<Reservation> getReservationsEnAttente() {
         return reservationRepository.findReservationsEnAttente();
     }
     
+    @Transactional(readOnly = true)
     public List<Reservation> getReservationsByProfil(Long profilId) {
         return reservationRepository.findReservationsActivesByProfil(profilId);
     }
     
+    // Retient un exemplaire libre du livre s'il en reste un ; sinon la réservation prend place dans la file
+    // du livre et recevra le prochain exemplaire rendu (voir traiterRetourPourReservations).
+    // Sous REPEATABLE READ, la première lecture fixe l'instantané de la transaction : le verrou du livre
+    // est pris avant, pour que la file rechargée voie les réservations validées par son détenteur précédent
+    @Transactional
     public Reservation createReservation(Long livreId, Long profilId) {
-        Profil profil = profilRepository.findById(profilId)
-                .orElseThrow(() -> new RuntimeException("Profil non trouvé"));
+        fileReservations.verrouiller(livreId);
         
-        // Vérifier pénalité active
-        List<Penalite> penalitesActives = penaliteRepository.findPenalitesActivesByProfilAndDate(profilId, LocalDate.now());
-        if (!penalitesActives.isEmpty()) {
-            StringBuilder message = new StringBuilder("Ce client a une pénalité active : ");
-            for (Penalite penalite : penalitesActives) {
-                message.append(String.format("Pénalité de %.2f€ du %s au %s. ", 
-                    penalite.getMontant(), 
-                    penalite.getDateDebut(), 
-                    penalite.getDateFin()));
-            }
-            throw new RuntimeException(message.toString());
-        }
-
-        // Vérifier le quota dynamique
-        Settings settings = settingsService.getCurrentSettings();
-        int quotaMax = settings.getQuotaByType(profil.getAdherant().getType().getType());
-        Long nbPretsActifs = pretRepository.countPretsByProfil(profilId);
-        if (nbPretsActifs >= quotaMax) {
-            throw new RuntimeException("Quota de prêts dépassé pour ce profil");
-        }
-
-        // Verifier si le profil a une inscription active
-        Optional<LocalDate> dateFinInscription = inscriptionRepository.findDateFinDerniereInscriptionByProfil(profilId);
-        if (dateFinInscription.isEmpty() || dateFinInscription.get().isBefore(LocalDate.now())) {
-            throw new RuntimeException("Le profil n'a pas d'inscription active. Veuillez d'abord vous inscrire.");
-        }
-        
-        // Vérifier si le livre est disponible
-        List<Exemplaire> exemplairesDisponibles = livreService.getExemplairesDisponibles(livreId);
+        // Pénalités, quota et inscription en une seule requête
+        eligibiliteService.verifierReservation(profilId);
+        Profil profil = profilRepository.getReferenceById(profilId);
         
-        if (exemplairesDisponibles.isEmpty()) {
-            throw new RuntimeException("Aucun exemplaire disponible pour ce livre");
-        }
-        
-        // Prendre le premier exemplaire disponible
-        Exemplaire exemplaire = exemplairesDisponibles.get(0);
+        Set<Long> retenus = fileReservations.exemplairesRetenus(livreId);
+        Long exemplaireLibre = indexDisponibilite.getExemplairesDisponibles(livreId).stream()
+                .filter(id -> !retenus.contains(id))
+                .findFirst()
+                .orElse(null);
         
         LocalDate dateResa = LocalDate.now();
-        LocalDate dateExpiration = dateResa.plusDays(3); // 3 jours pour récupérer
+        Exemplaire exemplaire;
+        LocalDate dateExpiration;
+        if (exemplaireLibre != null) {
+            exemplaire = exemplaireRepository.getReferenceById(exemplaireLibre);
+            dateExpiration = dateResa.plusDays(3); // 3 jours pour récupérer
+        } else {
+            // L'exemplaire définitif sera celui rendu en premier ; en attendant, un exemplaire en service du livre
+            exemplaire = exemplaireRepository.findByLivreLivreId(livreId).stream()
+                    .filter(e -> e.getExemplaireEtat() != null && e.getExemplaireEtat().getEtat() < 4)
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("Aucun exemplaire disponible pour ce livre"));
+            dateExpiration = dateResa.plusDays(attenteMaxJours);
+        }
         
+        // Le statut (en attente) fait partie de la ligne de la réservation
         Reservation reservation = new Reservation(exemplaire, profil, dateResa, dateExpiration);
-        reservation = reservationRepository.save(reservation);
-        
-        // Créer le statut de réservation
-        ReservationStatus reservationStatus = new ReservationStatus(reservation);
-        reservation.setReservationStatus(reservationStatus);
         
-        return reservationRepository.save(reservation);
+        reservation = reservationRepository.save(reservation);
+        if (exemplaireLibre != null) {
+            fileReservations.retenir(livreId, reservation.getReservationId(), exemplaireLibre);
+        } else {
+            fileReservations.mettreEnAttente(livreId, reservation.getReservationId());
+        }
+        compteursTableauDeBord.reservationCreee();
+        return reservation;
+    }
+    
+    // Rang de la réservation dans la file de son livre, 0 si elle retient déjà un exemplaire
+    @Transactional
+    public int getPositionDansFile(Reservation reservation) {
+        Long livreId = reservation.getExemplaire().getLivre().getLivreId();
+        fileReservations.verrouiller(livreId);
+        return fileReservations.position(livreId, reservation.getReservationId());
     }
     
     public Reservation validerReservation(Long reservationId) {
-        Reservation reservation = reservationRepository.findById(reservationId)
-                .orElseThrow(() -> new RuntimeException("Réservation non trouvée"));
-        
-        reservation.getReservationStatus().setStatut(1); // Disponible
-        
-        // Envoyer notification de disponibilité
-        notificationService.envoyerNotificationDisponibilite(reservation);
-        
-        return reservationRepository.save(reservation);
+        Long livreId = livreDeReservation(reservationId);
+        return transactionTemplate.execute(status -> {
+            fileReservations.verrouiller(livreId);
+            Reservation reservation = reservationRepository.findById(reservationId)
+                    .orElseThrow(() -> new RuntimeException("Réservation non trouvée"));
+            
+            compteursTableauDeBord.reservationStatutModifie(reservation.getReservationStatus().getStatut(), 1);
+            reservation.getReservationStatus().setStatut(1); // Disponible
+            fileReservations.retenir(livreId, reservationId, reservation.getExemplaire().getExemplaireId());
+            
+            // Envoyer notification de disponibilité
+            notificationService.envoyerNotificationDisponibilite(reservation);
+            
+            return reservationRepository.save(reservation);
+        });
     }
     
     public Reservation rejeterReservation(Long reservationId) {
-        Reservation reservation = reservationRepository.findById(reservationId)
-                .orElseThrow(() -> new RuntimeException("Réservation non trouvée"));
-        
-        reservation.getReservationStatus().setStatut(2); // Annulée
-        
-        return reservationRepository.save(reservation);
+        return changerStatut(reservationId, 2); // Annulée
     }
     
     public void annulerReservation(Long reservationId) {
-        Reservation reservation = reservationRepository.findById(reservationId)
-                .orElseThrow(() -> new RuntimeException("Réservation non trouvée"));
-        
-        reservation.getReservationStatus().setStatut(2); // Annulée
-        reservationRepository.save(reservation);
+        changerStatut(reservationId, 2); // Annulée
     }
     
+    // Livres résolus hors transaction, comme dans changerStatut : leurs verrous sont pris avant la première
+    // lecture des réservations. Celles qui expirent entre les deux requêtes attendent le passage suivant.
     public void verifierReservationsExpirees() {
-        List<Reservation> reservationsExpirees = reservationRepository.findReservationsExpirees(LocalDate.now());
-        
-        for (Reservation reservation : reservationsExpirees) {
-            reservation.getReservationStatus().setStatut(3); // Expirée
-            reservationRepository.save(reservation);
+        LocalDate aujourdhui = LocalDate.now();
+        List<Long> livreIds = reservationRepository.findLivresReservationsExpirees(aujourdhui);
+        if (livreIds.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            fileReservations.verrouiller(livreIds);
+            for (Reservation reservation : reservationRepository.findReservationsExpireesByLivres(livreIds, aujourdhui)) {
+                liberer(reservation.getExemplaire().getLivre().getLivreId(), reservation, 3); // Expirée
+                reservationRepository.save(reservation);
+            }
+        });
+    }
+    
+    // Exemplaire rendu : il revient à la tête de file du livre, qui passe disponible et est notifiée.
+    // À appeler dans la transaction du retour, pour que le prêt rendu et l'attribution soient validés ensemble
+    @Transactional
+    public Reservation traiterRetourPourReservations(Long livreId, Long exemplaireId) {
+        fileReservations.verrouiller(livreId);
+        return attribuerATete(livreId, exemplaireId);
+    }
+    
+    // Sous le verrou du livre
+    private Reservation attribuerATete(Long livreId, Long exemplaireId) {
+        if (fileReservations.exemplairesRetenus(livreId).contains(exemplaireId)) {
+            return null;
         }
+        Long reservationId;
+        while ((reservationId = fileReservations.tete(livreId)) != null) {
+            Reservation reservation = reservationRepository.findById(reservationId).orElse(null);
+            if (reservation == null || reservation.getReservationStatus().getStatut() != 0) {
+                // Réservation sortie de la file par un autre chemin (retour du même profil, traitement de masse)
+                fileReservations.retirer(livreId, reservationId);
+                continue;
+            }
+            reservation.setExemplaire(exemplaireRepository.getReferenceById(exemplaireId));
+            reservation.setDateExpiration(LocalDate.now().plusDays(3)); // 3 jours pour récupérer
+            compteursTableauDeBord.reservationStatutModifie(0, 1);
+            reservation.getReservationStatus().setStatut(1); // Disponible
+            fileReservations.retenir(livreId, reservationId, exemplaireId);
+            notificationService.envoyerNotificationDisponibilite(reservation);
+            return reservationRepository.save(reservation);
+        }
+        return null;
+    }
+    
+    private Reservation changerStatut(Long reservationId, int statut) {
+        Long livreId = livreDeReservation(reservationId);
+        return transactionTemplate.execute(status -> {
+            fileReservations.verrouiller(livreId);
+            Reservation reservation = reservationRepository.findById(reservationId)
+                    .orElseThrow(() -> new RuntimeException("Réservation non trouvée"));
+            
+            liberer(livreId, reservation, statut);
+            return reservationRepository.save(reservation);
+        });
     }
     
-    public void traiterRetourPourReservations(Long livreId) {
-        List<Reservation> reservationsEnAttente = reservationRepository.findReservationsEnAttenteByLivre(livreId);
+    // Livre de la réservation, lu avant la transaction qui prend son verrou : la réservation et la file
+    // sont lues sous le verrou, dans un instantané postérieur à la dernière écriture sur ce livre
+    private Long livreDeReservation(Long reservationId) {
+        return reservationRepository.findLivreIdByReservationId(reservationId)
+                .orElseThrow(() -> new RuntimeException("Réservation non trouvée"));
+    }
+    
+    // Sort la réservation de la file ; l'exemplaire qu'elle retenait, s'il est en rayon, passe à la tête de file
+    private void liberer(Long livreId, Reservation reservation, int statut) {
+        boolean retenait = fileReservations.position(livreId, reservation.getReservationId()) == 0;
+        Long exemplaireId = reservation.getExemplaire().getExemplaireId();
+        
+        compteursTableauDeBord.reservationStatutModifie(reservation.getReservationStatus().getStatut(), statut);
+        reservation.getReservationStatus().setStatut(statut);
+        fileReservations.retirer(livreId, reservation.getReservationId());
         
-        if (!reservationsEnAttente.isEmpty()) {
-            // Valider la première réservation en attente
-            Reservation premiereReservation = reservationsEnAttente.get(0);
-            validerReservation(premiereReservation.getReservationId());
+        if (retenait && indexDisponibilite.isExemplaireDisponible(livreId, exemplaireId)) {
+            attribuerATete(livreId, exemplaireId);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,255 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.dto.NotificationACreer;
+import com.bibliotheque.dto.RetardBatchRapport;
+import com.bibliotheque.entities.BatchCheckpoint;
+import com.bibliotheque.entities.Settings;
+import com.bibliotheque.repository.BatchCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Détection planifiée des retards, par lots de taille fixe.
+// Chaque lot est une transaction : mise à jour ensembliste des prêts, mise en boîte d'envoi des
+// notifications puis enregistrement du point de reprise. Un redémarrage reprend après le dernier lot validé.
+@Service
+public class RetardBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetardBatchService.class);
+
+    static final String JOB_RETARDS = "retards";
+
+    static final String JOB_RAPPELS = "rappels";
+
+    private static final String SQL_PRETS_ECHUS =
+            "SELECT p.pret_id, p.profil_id, l.titre FROM pret p " +
+            "JOIN exemplaire e ON e.exemplaire_id = p.exemplaire_id " +
+            "JOIN livre l ON l.livre_id = e.livre_id " +
+            "WHERE p.date_fin_pret < ? AND p.rendu = false AND p.en_retard = false AND p.pret_id > ? " +
+            "ORDER BY p.pret_id LIMIT ?";
+
+    private static final String SQL_MARQUER_RETARD =
+            "UPDATE pret SET en_retard = true WHERE en_retard = false AND pret_id IN (:ids)";
+
+    private static final String SQL_PRETS_A_RAPPELER =
+            "SELECT p.pret_id, p.profil_id, l.titre, p.date_fin_pret FROM pret p " +
+            "JOIN exemplaire e ON e.exemplaire_id = p.exemplaire_id " +
+            "JOIN livre l ON l.livre_id = e.livre_id " +
+            "WHERE p.date_fin_pret BETWEEN ? AND ? AND p.rendu = false " +
+            "AND (p.date_fin_pret > ? OR p.pret_id > ?) " +
+            "ORDER BY p.date_fin_pret, p.pret_id LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private BatchCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private SettingsService settingsService;
+
+    @Value("${bibliotheque.retards.chunk-size:1000}")
+    private int chunkSize;
+
+    private final AtomicBoolean enCours = new AtomicBoolean(false);
+
+    private final AtomicReference<RetardBatchRapport> dernierRapport = new AtomicReference<>();
+
+    @Scheduled(cron = "${bibliotheque.retards.cron:0 0 2 * * *}")
+    public void executerPlanifie() {
+        executer(LocalDate.now());
+    }
+
+    public RetardBatchRapport getDernierRapport() {
+        return dernierRapport.get();
+    }
+
+    public RetardBatchRapport executer(LocalDate date) {
+        if (!enCours.compareAndSet(false, true)) {
+            throw new RuntimeException("Le traitement des retards est déjà en cours");
+        }
+        try {
+            long debut = System.nanoTime();
+            RetardBatchRapport rapport = new RetardBatchRapport();
+            rapport.setDateTraitement(date);
+            rapport.setDebut(LocalDateTime.now());
+
+            List<Long> latences = new ArrayList<>();
+            detecterRetards(date, rapport, latences);
+            envoyerRappels(date, rapport, latences);
+
+            rapport.setChunks(latences.size());
+            rapport.setLatenceChunkMaxMs(latences.stream().mapToLong(Long::longValue).max().orElse(0));
+            rapport.setLatenceChunkMoyenneMs(latences.stream().mapToLong(Long::longValue).average().orElse(0));
+            rapport.setDureeMs((System.nanoTime() - debut) / 1_000_000);
+            dernierRapport.set(rapport);
+
+            log.info("Traitement des retards du {} : {} prêt(s) en retard, {} rappel(s), {} lot(s) en {} ms (max {} ms/lot)",
+                    date, rapport.getPretsMisEnRetard(), rapport.getRappelsEnvoyes(), rapport.getChunks(),
+                    rapport.getDureeMs(), rapport.getLatenceChunkMaxMs());
+            return rapport;
+        } finally {
+            enCours.set(false);
+        }
+    }
+
+    private void detecterRetards(LocalDate date, RetardBatchRapport rapport, List<Long> latences) {
+        BatchCheckpoint checkpoint = checkpointRepository.findById(JOB_RETARDS)
+                .orElseGet(() -> new BatchCheckpoint(JOB_RETARDS));
+
+        // Reprise uniquement si le traitement interrompu concernait la même date
+        long dernierId = 0L;
+        if (date.equals(checkpoint.getDateTraitement()) && !checkpoint.getTermine()) {
+            dernierId = checkpoint.getDernierId();
+        }
+        rapport.setReprisDepuisId(dernierId);
+        checkpoint.setDateTraitement(date);
+        checkpoint.setTermine(false);
+
+        while (true) {
+            long debutChunk = System.nanoTime();
+            final long depuis = dernierId;
+            long[] resultat = transactionTemplate.execute(status -> traiterChunkRetards(date, depuis, checkpoint));
+            if (resultat == null || resultat[0] == 0) {
+                break;
+            }
+            latences.add((System.nanoTime() - debutChunk) / 1_000_000);
+            dernierId = resultat[0];
+            rapport.setPretsMisEnRetard(rapport.getPretsMisEnRetard() + resultat[1]);
+            rapport.setNotificationsCreees(rapport.getNotificationsCreees() + resultat[1]);
+        }
+
+        checkpoint.setTermine(true);
+        checkpoint.setDateMaj(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    // Retourne {dernier pret_id du lot (0 si lot vide), lignes mises à jour}
+    private long[] traiterChunkRetards(LocalDate date, long depuis, BatchCheckpoint checkpoint) {
+        List<Long> pretIds = new ArrayList<>();
+        List<NotificationACreer> notifications = new ArrayList<>();
+        jdbcTemplate.query(SQL_PRETS_ECHUS, rs -> {
+            pretIds.add(rs.getLong(1));
+            notifications.add(new NotificationACreer(rs.getLong(2), NotificationService.messageRetard(rs.getString(3)), 0));
+        }, Date.valueOf(date), depuis, chunkSize);
+
+        if (pretIds.isEmpty()) {
+            return new long[] { 0L, 0L };
+        }
+
+        int misEnRetard = namedParameterJdbcTemplate.update(SQL_MARQUER_RETARD, new MapSqlParameterSource("ids", pretIds));
+        notificationService.mettreEnFile(notifications, "lot");
+
+        long dernierId = pretIds.get(pretIds.size() - 1);
+        checkpoint.setDernierId(dernierId);
+        checkpoint.setDateMaj(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+        return new long[] { dernierId, misEnRetard };
+    }
+
+    // Rappels des échéances jusqu'à date + reminderDays. Le point de reprise "rappels" retient la
+    // dernière échéance traitée : un nouveau passage ne renvoie rien de déjà rappelé et rattrape les
+    // jours manqués. En cours de passage, (date_traitement, dernier_id) est la position (échéance, pret_id)
+    // du dernier lot validé.
+    private void envoyerRappels(LocalDate date, RetardBatchRapport rapport, List<Long> latences) {
+        Settings settings = settingsService.getCurrentSettings();
+        int joursAvant = settings != null && settings.getReminderDays() > 0 ? settings.getReminderDays() : 3;
+        LocalDate echeance = date.plusDays(joursAvant);
+
+        BatchCheckpoint checkpoint = checkpointRepository.findById(JOB_RAPPELS)
+                .orElseGet(() -> new BatchCheckpoint(JOB_RAPPELS));
+        LocalDate depuisDate;
+        long depuisId = 0L;
+        if (checkpoint.getDateTraitement() == null) {
+            depuisDate = echeance;
+        } else if (checkpoint.getTermine()) {
+            depuisDate = checkpoint.getDateTraitement().plusDays(1);
+        } else {
+            depuisDate = checkpoint.getDateTraitement();
+            depuisId = checkpoint.getDernierId();
+        }
+        // Les prêts déjà échus relèvent de la notification de retard, pas du rappel
+        if (depuisDate.isBefore(date)) {
+            depuisDate = date;
+            depuisId = 0L;
+        }
+        rapport.setRappelsDepuis(depuisDate);
+
+        while (!depuisDate.isAfter(echeance)) {
+            long debutChunk = System.nanoTime();
+            final LocalDate positionDate = depuisDate;
+            final long positionId = depuisId;
+            long[] resultat = transactionTemplate.execute(
+                    status -> traiterChunkRappels(positionDate, positionId, echeance, checkpoint));
+            if (resultat == null || resultat[2] == 0) {
+                break;
+            }
+            latences.add((System.nanoTime() - debutChunk) / 1_000_000);
+            depuisDate = LocalDate.ofEpochDay(resultat[0]);
+            depuisId = resultat[1];
+            rapport.setRappelsEnvoyes(rapport.getRappelsEnvoyes() + resultat[2]);
+            rapport.setNotificationsCreees(rapport.getNotificationsCreees() + resultat[2]);
+        }
+
+        if (checkpoint.getDateTraitement() == null || !echeance.isBefore(checkpoint.getDateTraitement())) {
+            checkpoint.setDateTraitement(echeance);
+        }
+        checkpoint.setDernierId(0L);
+        checkpoint.setTermine(true);
+        checkpoint.setDateMaj(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    // Retourne {échéance du dernier prêt du lot en jours epoch, son pret_id, rappels (0 si lot vide)} ;
+    // point de reprise enregistré dans la même transaction que la mise en file
+    private long[] traiterChunkRappels(LocalDate depuisDate, long depuisId, LocalDate echeance, BatchCheckpoint checkpoint) {
+        List<Long> pretIds = new ArrayList<>();
+        List<LocalDate> echeances = new ArrayList<>();
+        List<NotificationACreer> notifications = new ArrayList<>();
+        jdbcTemplate.query(SQL_PRETS_A_RAPPELER, rs -> {
+            LocalDate dateFinPret = rs.getDate(4).toLocalDate();
+            pretIds.add(rs.getLong(1));
+            echeances.add(dateFinPret);
+            notifications.add(new NotificationACreer(rs.getLong(2),
+                    NotificationService.messageRappelRetour(rs.getString(3), dateFinPret), 0));
+        }, Date.valueOf(depuisDate), Date.valueOf(echeance), Date.valueOf(depuisDate), depuisId, chunkSize);
+
+        if (pretIds.isEmpty()) {
+            return new long[] { 0L, 0L, 0L };
+        }
+        notificationService.mettreEnFile(notifications, "lot");
+
+        LocalDate derniereEcheance = echeances.get(echeances.size() - 1);
+        long dernierId = pretIds.get(pretIds.size() - 1);
+        checkpoint.setDateTraitement(derniereEcheance);
+        checkpoint.setDernierId(dernierId);
+        checkpoint.setTermine(false);
+        checkpoint.setDateMaj(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+        return new long[] { derniereEcheance.toEpochDay(), dernierId, notifications.size() };
+    }
+}
@@ -3,6 +3,7 @@ package com.bibliotheque.services;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.bibliotheque.config.CacheConfig;
 import com.bibliotheque.entities.Settings;
 import com.bibliotheque.repository.SettingsRepository;
 
@@ -10,12 +11,16 @@ import com.bibliotheque.repository.SettingsRepository;
 public class SettingsService {
     @Autowired
     private SettingsRepository settingsRepository;
+    @Autowired
+    private CachesReference cachesReference;
 
     public Settings getCurrentSettings() {
         return settingsRepository.findTopByOrderByIdDesc();
     }
 
     public Settings saveSettings(Settings settings) {
-        return settingsRepository.save(settings);
+        Settings saved = settingsRepository.save(settings);
+        cachesReference.vider(CacheConfig.SETTINGS);
+        return saved;
     }
 } 
\ No newline at end of file
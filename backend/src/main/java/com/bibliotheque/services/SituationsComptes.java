@@ -0,0 +1,63 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.config.CacheConfig;
+import com.bibliotheque.dto.SituationCompte;
+import com.bibliotheque.repository.EligibiliteRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+// Situation de compte par profil, lue en base au premier contrôle puis servie depuis le cache.
+// Les écritures qui la modifient (prêt, prolongement, pénalité, inscription) invalident le profil
+// à la fin de leur transaction ; un chargement en cours au moment de l'invalidation est écarté.
+@Service
+public class SituationsComptes {
+
+    private final EligibiliteRepository eligibiliteRepository;
+
+    private final Cache<Object, Object> cache;
+
+    @SuppressWarnings("unchecked")
+    public SituationsComptes(EligibiliteRepository eligibiliteRepository, CacheManager cacheManager) {
+        this.eligibiliteRepository = eligibiliteRepository;
+        this.cache = ((CaffeineCache) cacheManager.getCache(CacheConfig.SITUATIONS_COMPTES)).getNativeCache();
+    }
+
+    public SituationCompte get(Long profilId) {
+        SituationCompte situation = (SituationCompte) cache.get(profilId,
+                k -> eligibiliteRepository.findSituation(profilId, LocalDate.now()).orElse(null));
+        if (situation == null) {
+            throw new RuntimeException("Profil non trouvé");
+        }
+        return situation;
+    }
+
+    public void invalider(Long profilId) {
+        invalider(List.of(profilId));
+    }
+
+    // Après commit ou annulation : une situation rechargée pendant la transaction peut refléter ses écritures
+    public void invalider(Collection<Long> profilIds) {
+        if (profilIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(profilIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll(ids);
+                }
+            });
+        } else {
+            cache.invalidateAll(ids);
+        }
+    }
+}
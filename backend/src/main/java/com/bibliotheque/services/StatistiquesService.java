@@ -0,0 +1,364 @@
+package com.bibliotheque.services;
+
+import com.bibliotheque.entities.BatchCheckpoint;
+import com.bibliotheque.repository.BatchCheckpointRepository;
+import com.bibliotheque.repository.PretRepository;
+import com.bibliotheque.repository.ReservationRepository;
+import com.bibliotheque.repository.StatJournaliereRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.bibliotheque.repository.StatJournaliereRepository.EMPRUNTS_LIVRE;
+import static com.bibliotheque.repository.StatJournaliereRepository.NOUVEAUX_UTILISATEURS;
+import static com.bibliotheque.repository.StatJournaliereRepository.NOUVEAUX_UTILISATEURS_TYPE;
+import static com.bibliotheque.repository.StatJournaliereRepository.PRETS;
+import static com.bibliotheque.repository.StatJournaliereRepository.RETOURS;
+
+// Statistiques à partir des agrégats journaliers (stat_journaliere).
+// Chaque jour révolu est agrégé une fois, dans sa propre transaction, puis marqué dans batch_checkpoint ;
+// les jours pas encore agrégés (en pratique aujourd'hui) sont calculés à la volée. Les retours pouvant
+// être saisis avec une date antérieure, les derniers jours de retours sont recalculés à chaque passage.
+@Service
+public class StatistiquesService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatistiquesService.class);
+
+    static final String JOB_STATISTIQUES = "statistiques";
+
+    private static final LocalDate DEBUT_HISTORIQUE = LocalDate.of(1900, 1, 1);
+
+    private static final List<String> METRIQUES = List.of(PRETS, RETOURS, NOUVEAUX_UTILISATEURS, EMPRUNTS_LIVRE, NOUVEAUX_UTILISATEURS_TYPE);
+
+    @Autowired
+    private StatJournaliereRepository statRepository;
+
+    @Autowired
+    private BatchCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PretRepository pretRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${bibliotheque.statistiques.fenetre-retours-jours:30}")
+    private int fenetreRetours;
+
+    // Dernier jour présent dans stat_journaliere (null tant que rien n'a été agrégé)
+    private volatile LocalDate dernierJourAgrege;
+
+    // Une seule agrégation à la fois
+    private final ReentrantLock verrou = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        agreger();
+    }
+
+    @Scheduled(cron = "${bibliotheque.statistiques.cron:0 15 0 * * *}")
+    public void agregationPlanifiee() {
+        agreger();
+    }
+
+    // Agrège les jours révolus non encore traités ; retourne le nombre de jours agrégés
+    public int agreger() {
+        verrou.lock();
+        try {
+            return agregerSousVerrou();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private int agregerSousVerrou() {
+        long debut = System.nanoTime();
+        LocalDate hier = LocalDate.now().minusDays(1);
+        BatchCheckpoint checkpoint = checkpointRepository.findById(JOB_STATISTIQUES)
+                .orElseGet(() -> new BatchCheckpoint(JOB_STATISTIQUES));
+        LocalDate dernier = checkpoint.getDateTraitement();
+
+        if (dernier != null) {
+            LocalDate debutFenetre = hier.minusDays(fenetreRetours - 1L);
+            LocalDate finFenetre = dernier.isBefore(hier) ? dernier : hier;
+            transactionTemplate.executeWithoutResult(status -> {
+                for (LocalDate jour = debutFenetre; !jour.isAfter(finFenetre); jour = jour.plusDays(1)) {
+                    List<Object[]> retours = new ArrayList<>();
+                    retours.add(new Object[] { RETOURS, 0L, statRepository.compterRetours(jour) });
+                    statRepository.remplacerJour(jour, List.of(RETOURS), retours);
+                }
+            });
+        }
+
+        int jours = 0;
+        LocalDate jour = dernier != null ? dernier.plusDays(1) : statRepository.premierJourActivite();
+        for (; !jour.isAfter(hier); jour = jour.plusDays(1)) {
+            final LocalDate jourTraite = jour;
+            transactionTemplate.executeWithoutResult(status -> {
+                statRepository.remplacerJour(jourTraite, METRIQUES, statRepository.agregerJour(jourTraite));
+                checkpoint.setDateTraitement(jourTraite);
+                checkpoint.setTermine(true);
+                checkpoint.setDateMaj(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+            });
+            dernierJourAgrege = jourTraite;
+            jours++;
+        }
+        if (jours == 0) {
+            dernierJourAgrege = dernier;
+        } else {
+            log.info("Statistiques : {} jour(s) agrégé(s) jusqu'au {} en {} ms",
+                    jours, dernierJourAgrege, (System.nanoTime() - debut) / 1_000_000);
+        }
+        return jours;
+    }
+
+    // Vide les agrégats et recalcule tout l'historique
+    public int reconstruire() {
+        verrou.lock();
+        try {
+            return reconstruireSousVerrou();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private int reconstruireSousVerrou() {
+        transactionTemplate.executeWithoutResult(status -> {
+            statRepository.viderTout();
+            checkpointRepository.deleteById(JOB_STATISTIQUES);
+        });
+        dernierJourAgrege = null;
+        return agreger();
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Integer, Long> getPretsParMois(int annee) {
+        LocalDate debut = LocalDate.of(annee, 1, 1);
+        LocalDate fin = LocalDate.of(annee, 12, 31);
+        Map<Integer, Long> parMois = new HashMap<>();
+        for (int mois = 1; mois <= 12; mois++) {
+            parMois.put(mois, 0L);
+        }
+        for (Object[] ligne : sommesParMois(List.of(PRETS), debut, fin)) {
+            parMois.merge((Integer) ligne[2], (Long) ligne[3], Long::sum);
+        }
+        return parMois;
+    }
+
+    // Prêts, retours et nouveaux utilisateurs des nbMois derniers mois (mois en cours inclus)
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getStatistiquesMensuelles(int nbMois) {
+        LocalDate debut = LocalDate.now().minusMonths(nbMois - 1L).withDayOfMonth(1);
+        LocalDate fin = LocalDate.now().withDayOfMonth(1).plusMonths(1).minusDays(1);
+        Map<String, Long> totaux = new HashMap<>();
+        for (Object[] ligne : sommesParMois(List.of(PRETS, RETOURS, NOUVEAUX_UTILISATEURS), debut, fin)) {
+            totaux.merge(ligne[0] + "_" + ligne[1] + "_" + ligne[2], (Long) ligne[3], Long::sum);
+        }
+
+        List<Map<String, Object>> mensuelles = new ArrayList<>();
+        for (LocalDate mois = debut; !mois.isAfter(fin); mois = mois.plusMonths(1)) {
+            String suffixe = "_" + mois.getYear() + "_" + mois.getMonthValue();
+            Map<String, Object> moisData = new HashMap<>();
+            moisData.put("month", mois.format(DateTimeFormatter.ofPattern("MMM", Locale.FRENCH)));
+            moisData.put("loans", totaux.getOrDefault(PRETS + suffixe, 0L));
+            moisData.put("returns", totaux.getOrDefault(RETOURS + suffixe, 0L));
+            moisData.put("newUsers", totaux.getOrDefault(NOUVEAUX_UTILISATEURS + suffixe, 0L));
+            mensuelles.add(moisData);
+        }
+        return mensuelles;
+    }
+
+    @Transactional(readOnly = true)
+    public long getTotal(String metrique, LocalDate debut, LocalDate fin) {
+        long total = debut.isAfter(finAgregee(fin)) ? 0L : statRepository.somme(metrique, debut, finAgregee(fin));
+        for (Object[] ligne : lignesNonAgregees(debut, fin)) {
+            if (metrique.equals(ligne[1])) {
+                total += (Long) ligne[3];
+            }
+        }
+        return total;
+    }
+
+    @Transactional(readOnly = true)
+    public long getTotal(String metrique) {
+        return getTotal(metrique, DEBUT_HISTORIQUE, LocalDate.now());
+    }
+
+    // Livres les plus empruntés sur la période : titre, emprunts, auteur
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getTopLivres(LocalDate debut, LocalDate fin, int limite) {
+        Map<Long, Long> emprunts = sommesParCle(EMPRUNTS_LIVRE, debut, fin, limite);
+        List<Map.Entry<Long, Long>> classement = new ArrayList<>(emprunts.entrySet());
+        classement.sort(Map.Entry.<Long, Long>comparingByValue().reversed());
+        classement = classement.subList(0, Math.min(limite, classement.size()));
+
+        Map<Long, String[]> livres = statRepository.titresEtAuteurs(classement.stream().map(Map.Entry::getKey).toList());
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (Map.Entry<Long, Long> entree : classement) {
+            String[] livre = livres.get(entree.getKey());
+            if (livre == null) {
+                continue;
+            }
+            Map<String, Object> bookData = new HashMap<>();
+            bookData.put("titre", livre[0]);
+            bookData.put("emprunts", entree.getValue());
+            bookData.put("auteur", livre[1]);
+            top.add(bookData);
+        }
+        return top;
+    }
+
+    // Prêts, retours et réservations des 7 derniers jours, 10 plus récents tous types confondus
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getActivitesRecentes() {
+        List<Map<String, Object>> activites = new ArrayList<>();
+
+        // Prêts récents (7 derniers jours)
+        List<Object[]> pretsRecents = pretRepository.findRecentPrets(LocalDate.now().minusDays(7));
+        for (Object[] pret : pretsRecents) {
+            Map<String, Object> activite = new HashMap<>();
+            activite.put("id", "pret_" + pret[0]);
+            activite.put("message", "Nouveau prêt: \"" + pret[1] + "\" par " + pret[2] + " " + pret[3]);
+            activite.put("time", calculateTimeAgo((LocalDate) pret[4]));
+            activite.put("type", "pret");
+            activite.put("date", pret[4]);
+            activites.add(activite);
+        }
+
+        // Retours récents
+        List<Object[]> retoursRecents = pretRepository.findRecentReturns(LocalDate.now().minusDays(7));
+        for (Object[] retour : retoursRecents) {
+            Map<String, Object> activite = new HashMap<>();
+            activite.put("id", "retour_" + retour[0]);
+            activite.put("message", "Retour: \"" + retour[1] + "\" par " + retour[2] + " " + retour[3]);
+            activite.put("time", calculateTimeAgo((LocalDate) retour[4]));
+            activite.put("type", "retour");
+            activite.put("date", retour[4]);
+            activites.add(activite);
+        }
+
+        // Nouvelles réservations
+        List<Object[]> reservationsRecentes = reservationRepository.findRecentReservations(LocalDate.now().minusDays(7));
+        for (Object[] reservation : reservationsRecentes) {
+            Map<String, Object> activite = new HashMap<>();
+            activite.put("id", "reservation_" + reservation[0]);
+            activite.put("message", "Nouvelle réservation: \"" + reservation[1] + "\" par " + reservation[2] + " " + reservation[3]);
+            activite.put("time", calculateTimeAgo((LocalDate) reservation[4]));
+            activite.put("type", "reservation");
+            activite.put("date", reservation[4]);
+            activites.add(activite);
+        }
+
+        // Trier par date (plus récent en premier) et limiter à 10
+        activites.sort((a, b) -> {
+            LocalDate dateA = (LocalDate) a.get("date");
+            LocalDate dateB = (LocalDate) b.get("date");
+            return dateB.compareTo(dateA); // Tri décroissant
+        });
+
+        return activites.subList(0, Math.min(activites.size(), 10));
+    }
+
+    // Répartition des utilisateurs inscrits par type d'adhérent : type, count
+    @Transactional(readOnly = true)
+    public List<Object[]> getRepartitionUtilisateurs() {
+        Map<Long, Long> parType = sommesParCle(NOUVEAUX_UTILISATEURS_TYPE, DEBUT_HISTORIQUE, LocalDate.now(), Integer.MAX_VALUE);
+        Map<Long, String> types = statRepository.typesAdherant();
+        List<Object[]> repartition = new ArrayList<>();
+        parType.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .forEach(e -> repartition.add(new Object[] { types.get(e.getKey()), e.getValue() }));
+        return repartition;
+    }
+
+    private List<Object[]> sommesParMois(List<String> metriques, LocalDate debut, LocalDate fin) {
+        List<Object[]> lignes = new ArrayList<>();
+        if (!debut.isAfter(finAgregee(fin))) {
+            lignes.addAll(statRepository.sommesParMois(metriques, debut, finAgregee(fin)));
+        }
+        for (Object[] ligne : lignesNonAgregees(debut, fin)) {
+            if (metriques.contains(ligne[1])) {
+                LocalDate jour = (LocalDate) ligne[0];
+                lignes.add(new Object[] { ligne[1], jour.getYear(), jour.getMonthValue(), ligne[3] });
+            }
+        }
+        return lignes;
+    }
+
+    // Sommes par clé sur la période, agrégats et jours non agrégés fusionnés.
+    // Hors des limite premières clés agrégées, seules comptent les clés actives les jours non agrégés.
+    private Map<Long, Long> sommesParCle(String metrique, LocalDate debut, LocalDate fin, int limite) {
+        Map<Long, Long> nonAgregees = new HashMap<>();
+        for (Object[] ligne : lignesNonAgregees(debut, fin)) {
+            if (metrique.equals(ligne[1])) {
+                nonAgregees.merge((Long) ligne[2], (Long) ligne[3], Long::sum);
+            }
+        }
+        Map<Long, Long> sommes = new LinkedHashMap<>();
+        if (!debut.isAfter(finAgregee(fin))) {
+            sommes.putAll(statRepository.sommesParCle(metrique, debut, finAgregee(fin), null, limite));
+            sommes.putAll(statRepository.sommesParCle(metrique, debut, finAgregee(fin), nonAgregees.keySet(), Integer.MAX_VALUE));
+        }
+        nonAgregees.forEach((cle, valeur) -> sommes.merge(cle, valeur, Long::sum));
+        return sommes;
+    }
+
+    private LocalDate finAgregee(LocalDate fin) {
+        LocalDate dernier = dernierJourAgrege;
+        if (dernier == null) {
+            return DEBUT_HISTORIQUE.minusDays(1);
+        }
+        return fin.isBefore(dernier) ? fin : dernier;
+    }
+
+    // Lignes {jour, metrique, cle, valeur} calculées depuis les tables sources pour les jours de la période
+    // postérieurs au dernier jour agrégé
+    private List<Object[]> lignesNonAgregees(LocalDate debut, LocalDate fin) {
+        LocalDate dernier = dernierJourAgrege;
+        LocalDate premier = dernier != null ? dernier.plusDays(1) : LocalDate.now();
+        if (premier.isBefore(debut)) {
+            premier = debut;
+        }
+        LocalDate aujourdhui = LocalDate.now();
+        LocalDate derniere = fin.isAfter(aujourdhui) ? aujourdhui : fin;
+
+        List<Object[]> lignes = new ArrayList<>();
+        for (LocalDate jour = premier; !jour.isAfter(derniere); jour = jour.plusDays(1)) {
+            for (Object[] ligne : statRepository.agregerJour(jour)) {
+                lignes.add(new Object[] { jour, ligne[0], ligne[1], ligne[2] });
+            }
+        }
+        return lignes;
+    }
+
+    private String calculateTimeAgo(LocalDate date) {
+        long days = LocalDate.now().toEpochDay() - date.toEpochDay();
+        if (days == 0) return "Aujourd'hui";
+        if (days == 1) return "Hier";
+        if (days < 7) return "Il y a " + days + " jours";
+        if (days < 30) return "Il y a " + (days / 7) + " semaines";
+        return "Il y a " + (days / 30) + " mois";
+    }
+}
@@ -0,0 +1,25 @@
+package com.bibliotheque.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Mises à jour des états en mémoire (index, compteurs, métriques) consécutives à une écriture :
+// exécutées après le commit de la transaction courante, jamais pour une transaction annulée,
+// et immédiatement hors transaction.
+public final class ApresCommit {
+
+    private ApresCommit() {}
+
+    public static void executer(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
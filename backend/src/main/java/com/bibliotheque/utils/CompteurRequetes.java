@@ -0,0 +1,125 @@
+package com.bibliotheque.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Comptage des requêtes SQL exécutées sur le thread courant, par contexte ouvert
+// (une requête HTTP via DetecteurRequetes, ou un test). Les contextes s'emboîtent :
+// chaque requête SQL est comptée dans tous les contextes ouverts du thread.
+//
+// En test d'intégration (MockMvc, même thread que le contrôleur) :
+//   try (CompteurRequetes.Contexte requetes = CompteurRequetes.ouvrir()) {
+//       mockMvc.perform(get("/profils/notifications/all"));
+//       requetes.verifierAuPlus(3);
+//       requetes.verifierSansRepetition(2);
+//   }
+public final class CompteurRequetes {
+
+    private static final ThreadLocal<Deque<Contexte>> CONTEXTES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private static final Pattern CHAINES = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NOMBRES = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern LISTES = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern ESPACES = Pattern.compile("\\s+");
+
+    private CompteurRequetes() {}
+
+    public static Contexte ouvrir() {
+        Contexte contexte = new Contexte();
+        CONTEXTES.get().push(contexte);
+        return contexte;
+    }
+
+    public static boolean actif() {
+        return !CONTEXTES.get().isEmpty();
+    }
+
+    public static void enregistrer(String sql, long dureeMs) {
+        Deque<Contexte> contextes = CONTEXTES.get();
+        if (contextes.isEmpty()) {
+            return;
+        }
+        String forme = normaliser(sql);
+        for (Contexte contexte : contextes) {
+            contexte.ajouter(forme, dureeMs);
+        }
+    }
+
+    // Même requête à des identifiants près : littéraux et listes IN remplacés par ?
+    static String normaliser(String sql) {
+        String forme = CHAINES.matcher(sql).replaceAll("?");
+        forme = NOMBRES.matcher(forme).replaceAll("?");
+        forme = LISTES.matcher(forme).replaceAll("(?)");
+        return ESPACES.matcher(forme).replaceAll(" ").trim();
+    }
+
+    public static class Contexte implements AutoCloseable {
+        private int total;
+        private long dureeTotaleMs;
+        private final Map<String, Integer> parForme = new LinkedHashMap<>();
+
+        private void ajouter(String forme, long dureeMs) {
+            total++;
+            dureeTotaleMs += dureeMs;
+            parForme.merge(forme, 1, Integer::sum);
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public long getDureeTotaleMs() {
+            return dureeTotaleMs;
+        }
+
+        // Formes exécutées au moins seuil fois, de la plus répétée à la moins répétée : candidates N+1
+        public Map<String, Integer> getRepetitions(int seuil) {
+            return parForme.entrySet().stream()
+                    .filter(e -> e.getValue() >= seuil)
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+        }
+
+        public void verifierAuPlus(int max) {
+            if (total > max) {
+                throw new AssertionError(String.format("%d requêtes SQL exécutées, %d attendues au plus%s",
+                        total, max, resume(2)));
+            }
+        }
+
+        // Échoue si une même forme de requête est exécutée plus de max fois
+        public void verifierSansRepetition(int max) {
+            Map<String, Integer> repetitions = getRepetitions(max + 1);
+            if (!repetitions.isEmpty()) {
+                throw new AssertionError(String.format("Requêtes répétées plus de %d fois (N+1 probable)%s", max, resume(max + 1)));
+            }
+        }
+
+        public String resume(int seuil) {
+            Map<String, Integer> repetitions = getRepetitions(seuil);
+            if (repetitions.isEmpty()) {
+                return "";
+            }
+            return repetitions.entrySet().stream()
+                    .limit(5)
+                    .map(e -> String.format("%n  %d × %s", e.getValue(), tronquer(e.getKey())))
+                    .collect(Collectors.joining("", " :", ""));
+        }
+
+        @Override
+        public void close() {
+            CONTEXTES.get().remove(this);
+            if (CONTEXTES.get().isEmpty()) {
+                CONTEXTES.remove();
+            }
+        }
+
+        private static String tronquer(String sql) {
+            return sql.length() > 200 ? sql.substring(0, 200) + "…" : sql;
+        }
+    }
+}
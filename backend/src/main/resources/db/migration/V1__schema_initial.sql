@@ -0,0 +1,303 @@
+-- Schéma de référence : tables telles que créées jusqu'ici par la mise à jour automatique d'Hibernate.
+-- Une base existante sans historique Flyway est marquée à cette version sans exécuter ce script
+-- (spring.flyway.baseline-on-migrate) ; les versions suivantes s'appliquent ensuite à toutes les bases.
+
+create table adherant (
+    adherant_id bigint not null auto_increment,
+    type_id bigint not null,
+    primary key (adherant_id)
+) engine=InnoDB;
+
+create table adherant_type (
+    id bigint not null auto_increment,
+    type varchar(50),
+    primary key (id)
+) engine=InnoDB;
+
+create table auteur (
+    date_deces date,
+    date_naissance date,
+    auteur_id bigint not null auto_increment,
+    nationalite varchar(50),
+    nom varchar(50) not null,
+    prenom varchar(50),
+    biographie TEXT,
+    primary key (auteur_id)
+) engine=InnoDB;
+
+create table batch_checkpoint (
+    date_traitement date,
+    termine bit not null,
+    date_maj datetime(6),
+    dernier_id bigint not null,
+    job_name varchar(50) not null,
+    primary key (job_name)
+) engine=InnoDB;
+
+create table bibliothequaire (
+    bibliothequaire_id bigint not null auto_increment,
+    email varchar(100) not null,
+    nom varchar(100) not null,
+    pwd varchar(255) not null,
+    primary key (bibliothequaire_id)
+) engine=InnoDB;
+
+create table categorie (
+    categorie_id bigint not null auto_increment,
+    categorie_parent_id bigint,
+    nom varchar(50) not null,
+    description TEXT,
+    primary key (categorie_id)
+) engine=InnoDB;
+
+create table editeur (
+    editeur_id bigint not null auto_increment,
+    contact varchar(100),
+    nom varchar(100) not null,
+    adresse TEXT,
+    site_web varchar(255),
+    primary key (editeur_id)
+) engine=InnoDB;
+
+create table emplacement (
+    emplacement_id bigint not null auto_increment,
+    etagere varchar(20),
+    position varchar(20),
+    nom varchar(50) not null,
+    salle varchar(50),
+    description TEXT,
+    primary key (emplacement_id)
+) engine=InnoDB;
+
+create table exemplaire (
+    date_acquisition date,
+    etat integer,
+    emplacement_id bigint,
+    exemplaire_id bigint not null auto_increment,
+    livre_id bigint not null,
+    version BIGINT DEFAULT 0 not null,
+    num_exemplaire varchar(20) not null,
+    primary key (exemplaire_id)
+) engine=InnoDB;
+
+create table inscription (
+    date_debut date not null,
+    date_fin date not null,
+    inscription_id bigint not null auto_increment,
+    profil_id bigint not null,
+    tarif_id bigint not null,
+    primary key (inscription_id)
+) engine=InnoDB;
+
+create table inscription_status (
+    statut integer not null,
+    id bigint not null auto_increment,
+    inscription_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table livre (
+    date_publication date,
+    editeur_id bigint,
+    livre_id bigint not null auto_increment,
+    isbn varchar(20) not null,
+    edition varchar(50),
+    titre varchar(100) not null,
+    description TEXT,
+    image_couverture varchar(255),
+    primary key (livre_id)
+) engine=InnoDB;
+
+create table livre_auteur (
+    auteur_id bigint not null,
+    livre_id bigint not null
+) engine=InnoDB;
+
+create table livre_categorie (
+    categorie_id bigint not null,
+    livre_id bigint not null
+) engine=InnoDB;
+
+create table notification (
+    statut INT DEFAULT 0 not null,
+    date_envoi datetime(6) not null,
+    notification_id bigint not null auto_increment,
+    profil_id bigint not null,
+    message TEXT not null,
+    primary key (notification_id)
+) engine=InnoDB;
+
+create table notification_envoi (
+    statut integer not null,
+    tentatives integer not null,
+    type integer not null,
+    date_creation datetime(6) not null,
+    date_envoi datetime(6),
+    envoi_id bigint not null auto_increment,
+    prochaine_tentative datetime(6) not null,
+    profil_id bigint not null,
+    canal varchar(20) not null,
+    derniere_erreur varchar(500),
+    message TEXT not null,
+    primary key (envoi_id)
+) engine=InnoDB;
+
+create table notification_type (
+    type integer not null,
+    id bigint not null auto_increment,
+    notification_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table penalite (
+    date_debut date not null,
+    date_fin date not null,
+    montant decimal(10,2) not null,
+    statut integer,
+    penalite_id bigint not null auto_increment,
+    pret_id bigint,
+    profil_id bigint not null,
+    raisons TEXT,
+    primary key (penalite_id)
+) engine=InnoDB;
+
+create table penalite_cumul (
+    date_calcul date not null,
+    jours_retard integer not null,
+    montant decimal(10,2) not null,
+    pret_id bigint not null,
+    profil_id bigint not null,
+    primary key (pret_id)
+) engine=InnoDB;
+
+create table pret (
+    date_fin_pret date not null,
+    date_pret date not null,
+    date_rendu date,
+    en_retard BOOLEAN DEFAULT FALSE not null,
+    rendu BOOLEAN DEFAULT FALSE not null,
+    bibliothequaire_id bigint not null,
+    exemplaire_id bigint not null,
+    pret_id bigint not null auto_increment,
+    profil_id bigint,
+    version BIGINT DEFAULT 0 not null,
+    primary key (pret_id)
+) engine=InnoDB;
+
+create table pret_type (
+    type_pret integer not null,
+    id bigint not null auto_increment,
+    pret_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table profil (
+    date_inscription date not null,
+    adherant_id bigint not null,
+    profil_id bigint not null auto_increment,
+    telephone varchar(20),
+    nom varchar(50) not null,
+    prenom varchar(50) not null,
+    email varchar(100) not null,
+    pwd varchar(255) not null,
+    primary key (profil_id)
+) engine=InnoDB;
+
+create table prolongement_pret (
+    statut integer not null,
+    date_demande datetime(6) not null,
+    nouvelle_date_fin datetime(6) not null,
+    pret_id bigint not null,
+    prolongement_id bigint not null auto_increment,
+    motif_refus TEXT,
+    primary key (prolongement_id)
+) engine=InnoDB;
+
+create table reservation (
+    date_expiration date not null,
+    date_resa date not null,
+    statut INT DEFAULT 0 not null,
+    exemplaire_id bigint not null,
+    profil_id bigint not null,
+    reservation_id bigint not null auto_increment,
+    primary key (reservation_id)
+) engine=InnoDB;
+
+create table settings (
+    anonymous_quota integer not null,
+    daily_penalty float(53) not null,
+    default_loan_duration integer not null,
+    grace_period integer not null,
+    max_penalty float(53) not null,
+    max_renewals integer not null,
+    professional_quota integer not null,
+    professor_quota integer not null,
+    reminder_days integer not null,
+    student_quota integer not null,
+    id bigint not null auto_increment,
+    primary key (id)
+) engine=InnoDB;
+
+create table stat_journaliere (
+    jour date not null,
+    cle bigint not null,
+    stat_id bigint not null auto_increment,
+    valeur bigint not null,
+    metrique varchar(30) not null,
+    primary key (stat_id)
+) engine=InnoDB;
+
+create table tarif_inscription (
+    montant decimal(38,2) not null,
+    nb_mois integer not null,
+    tarif_id bigint not null auto_increment,
+    type_adherant_id bigint not null,
+    description varchar(255),
+    primary key (tarif_id)
+) engine=InnoDB;
+
+alter table bibliothequaire add constraint UK_dn58ghbji24qw1epq080mq9px unique (email);
+alter table categorie add constraint UK_89y3d23ia9ruhfhdmya9aspq7 unique (nom);
+create index idx_exemplaire_livre_etat on exemplaire (livre_id, etat);
+alter table livre add constraint UK_9lix5phlv9fnqt4gsyu0qgb5 unique (isbn);
+create index idx_notification_profil_statut on notification (profil_id, statut);
+create index idx_envoi_statut_prochaine on notification_envoi (statut, prochaine_tentative);
+alter table notification_type add constraint UK_kimw2q6hitksmvbstt1uct04n unique (notification_id);
+create index idx_penalite_profil_statut on penalite (profil_id, statut);
+create index idx_penalite_cumul_profil on penalite_cumul (profil_id);
+create index idx_pret_rendu_fin on pret (rendu, date_fin_pret);
+create index idx_pret_exemplaire_rendu on pret (exemplaire_id, rendu);
+create index idx_pret_profil_rendu on pret (profil_id, rendu);
+alter table pret_type add constraint UK_g5oqj8s4syl4eluqawt2ggkji unique (pret_id);
+alter table profil add constraint UK_ktevdx52kug698qnt6w2mnx7i unique (adherant_id);
+alter table profil add constraint UK_4bvved4j0itu3lpkuf3usgttj unique (email);
+create index idx_reservation_exemplaire_statut on reservation (exemplaire_id, statut);
+create index idx_reservation_statut on reservation (statut);
+create index idx_stat_metrique_jour on stat_journaliere (metrique, jour);
+alter table stat_journaliere add constraint uk_stat_jour_metrique_cle unique (jour, metrique, cle);
+
+alter table adherant add constraint FKgjnfoxchdvf39en92u5s59ygf foreign key (type_id) references adherant_type (id);
+alter table categorie add constraint FKtrfucjytmtcg858ad657gmfaf foreign key (categorie_parent_id) references categorie (categorie_id);
+alter table exemplaire add constraint FK2dtrqxm69vcu6wuldts30nemi foreign key (emplacement_id) references emplacement (emplacement_id);
+alter table exemplaire add constraint FKkcraqrinp6mtrkkg9rigi6len foreign key (livre_id) references livre (livre_id);
+alter table inscription add constraint FK2cjnhgbd7jftgo0f27kcvufxp foreign key (profil_id) references profil (profil_id);
+alter table inscription add constraint FKbde89qef9n48x1gt4i94kr2wq foreign key (tarif_id) references tarif_inscription (tarif_id);
+alter table inscription_status add constraint FKnyu4s6n6yii36qtwkph3k9vva foreign key (inscription_id) references inscription (inscription_id);
+alter table livre add constraint FKgowgjbkkxnvjykexh6nlmjjd7 foreign key (editeur_id) references editeur (editeur_id);
+alter table livre_auteur add constraint FK533ac38q7nxli9y51r41msgmm foreign key (auteur_id) references auteur (auteur_id);
+alter table livre_auteur add constraint FK6l2ts4qpssk4gpatfgy0r4ypn foreign key (livre_id) references livre (livre_id);
+alter table livre_categorie add constraint FKa7nytjf7hfypiuvp8o3ylytsk foreign key (categorie_id) references categorie (categorie_id);
+alter table livre_categorie add constraint FKf9obfrssdil3ncriy89k7wmtx foreign key (livre_id) references livre (livre_id);
+alter table notification add constraint FK7pgem6rmesolld5tun8bel0k5 foreign key (profil_id) references profil (profil_id);
+alter table notification_type add constraint FKcf5p1943af630bn3470q9tie4 foreign key (notification_id) references notification (notification_id);
+alter table penalite add constraint FKq71rwmhrs9thsvovwqsd28n19 foreign key (pret_id) references pret (pret_id);
+alter table penalite add constraint FKbrca6qixeaxnaxhtpbdfkyymh foreign key (profil_id) references profil (profil_id);
+alter table pret add constraint FKik5yll9ulwto9fb5u2dqrap48 foreign key (bibliothequaire_id) references bibliothequaire (bibliothequaire_id);
+alter table pret add constraint FKjtomu4b9nf3r5tlk8uo9y2exl foreign key (exemplaire_id) references exemplaire (exemplaire_id);
+alter table pret add constraint FKjlfsvrjj7jpto1pnceke5vuk7 foreign key (profil_id) references profil (profil_id);
+alter table pret_type add constraint FKlrttdk1tut44asixyc09g9b0j foreign key (pret_id) references pret (pret_id);
+alter table profil add constraint FKxh7t5etgl2fympvvfe09x9pj foreign key (adherant_id) references adherant (adherant_id);
+alter table prolongement_pret add constraint FKd9ebyjaytbsb8hxupiwj3wqwk foreign key (pret_id) references pret (pret_id);
+alter table reservation add constraint FKt4hc763wl99xtltmwk9586vdo foreign key (exemplaire_id) references exemplaire (exemplaire_id);
+alter table reservation add constraint FKt1x7c2ycmp2s2xwm54t6qa0v1 foreign key (profil_id) references profil (profil_id);
+alter table tarif_inscription add constraint FK1gu2myywubtp14mcnh5u9529k foreign key (type_adherant_id) references adherant_type (id);
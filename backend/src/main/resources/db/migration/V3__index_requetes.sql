@@ -0,0 +1,25 @@
+-- Index des prédicats fréquents des dépôts, vérifiés par EXPLAIN (bench/VerificationPlans).
+
+-- Statistiques du jour, activité récente et liste paginée des prêts (tri date_pret, pret_id)
+create index idx_pret_date_pret on pret (date_pret);
+create index idx_pret_date_rendu on pret (date_rendu);
+
+-- Dernière inscription d'un profil (quota, éligibilité) ; inscriptions en cours
+create index idx_inscription_profil_debut on inscription (profil_id, date_debut, date_fin);
+create index idx_inscription_fin on inscription (date_fin);
+
+-- Pénalités actives d'un profil à une date ; totaux par statut sans lecture de la table
+drop index idx_penalite_profil_statut on penalite;
+create index idx_penalite_profil_statut_dates on penalite (profil_id, statut, date_debut, date_fin);
+create index idx_penalite_statut on penalite (statut, montant);
+
+-- Réservations expirées (statut en attente ou disponible, date d'expiration passée) ; activité récente
+drop index idx_reservation_statut on reservation;
+create index idx_reservation_statut_expiration on reservation (statut, date_expiration);
+create index idx_reservation_date_resa on reservation (date_resa);
+
+-- Notifications d'un profil, les plus récentes d'abord
+create index idx_notification_profil_date on notification (profil_id, date_envoi);
+
+-- Nouveaux utilisateurs par jour ou par période
+create index idx_profil_date_inscription on profil (date_inscription);
@@ -0,0 +1,8 @@
+-- Battement écrit sur le primaire et relu sur la réplique pour en mesurer le retard (GardeReplique)
+create table replique_battement (
+    id integer not null,
+    horodatage bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+insert into replique_battement (id, horodatage) values (1, 0);
@@ -8,6 +8,8 @@ import { apiService } from '../../services/api';
 const LoanManagement: React.FC = () => {
   const [loans, setLoans] = useState<Loan[]>([]);
   const [loading, setLoading] = useState(true);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [searchTerm, setSearchTerm] = useState('');
   const [statusFilter, setStatusFilter] = useState('all');
   const [showModal, setShowModal] = useState(false);
@@ -33,8 +35,9 @@ const LoanManagement: React.FC = () => {
   const loadLoans = async () => {
     try {
       setLoading(true);
-      const data = await apiService.getPrets();
-      setLoans(data);
+      const page = await apiService.getPrets();
+      setLoans(page.items);
+      setNextCursor(page.hasMore ? page.nextCursor : null);
     } catch (error) {
       console.error('Erreur lors du chargement des prêts:', error);
     } finally {
@@ -42,6 +45,21 @@ const LoanManagement: React.FC = () => {
     }
   };
 
+  // Page suivante de la liste paginée par curseur, ajoutée aux prêts déjà affichés
+  const loadMoreLoans = async () => {
+    if (!nextCursor) return;
+    try {
+      setLoadingMore(true);
+      const page = await apiService.getPrets({ curseur: nextCursor });
+      setLoans(prev => [...prev, ...page.items]);
+      setNextCursor(page.hasMore ? page.nextCursor : null);
+    } catch (error) {
+      console.error('Erreur lors du chargement des prêts:', error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   const loadProfilesAndExemplaires = async () => {
     try {
       const profils = await apiService.getProfils();
@@ -59,6 +77,7 @@ const LoanManagement: React.FC = () => {
     try {
       setLoading(true);
       let data;
+      let cursor: string | null = null;
       switch (status) {
         case 'active':
           data = await apiService.getPretsActifs();
@@ -66,10 +85,14 @@ const LoanManagement: React.FC = () => {
         case 'overdue':
           data = await apiService.getPretsEnRetard();
           break;
-        default:
-          data = await apiService.getPrets();
+        default: {
+          const page = await apiService.getPrets();
+          data = page.items;
+          cursor = page.hasMore ? page.nextCursor : null;
+        }
       }
       setLoans(data);
+      setNextCursor(cursor);
     } catch (error) {
       console.error('Erreur lors du filtrage des prêts:', error);
     } finally {
@@ -400,6 +423,17 @@ const LoanManagement: React.FC = () => {
           data={filteredLoans}
           loading={loading}
         />
+        {nextCursor && !loading && (
+          <div className="flex justify-center mt-4">
+            <button
+              onClick={loadMoreLoans}
+              disabled={loadingMore}
+              className="px-4 py-2 border border-gray-300 rounded-md text-gray-700 hover:bg-gray-50 disabled:opacity-50"
+            >
+              {loadingMore ? 'Chargement...' : 'Charger plus de prêts'}
+            </button>
+          </div>
+        )}
       </div>
     </div>
   );
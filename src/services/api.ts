@@ -191,8 +191,11 @@ class ApiService {
     return response.ok;
   }
 
-  async getPrets() {
-    const response = await fetch(`${API_BASE_URL}/prets`, {
+  async getPrets(filters: Record<string, string | number | boolean> = {}) {
+    const params = new URLSearchParams();
+    Object.entries(filters).forEach(([key, value]) => params.append(key, String(value)));
+    const query = params.toString();
+    const response = await fetch(`${API_BASE_URL}/prets${query ? `?${query}` : ''}`, {
       headers: this.getAuthHeaders(),
     });
     return response.json();